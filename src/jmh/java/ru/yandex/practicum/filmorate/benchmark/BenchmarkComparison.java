@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сравнение двух JSON-результатов JMH: печатает изменение каждого бенчмарка и завершается с кодом 1,
+ * если что-то стало хуже больше чем на порог (по умолчанию 10%).
+ * Запуск: mvn -Pbenchmark compile exec:exec -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.BenchmarkComparison
+ * -Dbenchmark.args="target/jmh-results/base.json target/jmh-results/head.json 10"
+ */
+public final class BenchmarkComparison {
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: BenchmarkComparison <base.json> <head.json> [порог, %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> base = load(Path.of(args[0]));
+        Map<String, JsonNode> head = load(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : head.entrySet()) {
+            JsonNode before = base.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s новый%n", entry.getKey());
+                continue;
+            }
+            double oldScore = before.path("primaryMetric").path("score").asDouble();
+            double newScore = entry.getValue().path("primaryMetric").path("score").asDouble();
+            String unit = entry.getValue().path("primaryMetric").path("scoreUnit").asText();
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            double change = oldScore == 0 ? 0 : (newScore - oldScore) * 100.0 / oldScore;
+            double worse = higherIsBetter ? -change : change;
+            boolean regression = worse > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %12.3f -> %12.3f %-8s %+7.1f%% %s%n", entry.getKey(), oldScore, newScore, unit,
+                    change, regression ? "РЕГРЕССИЯ" : "");
+        }
+        System.out.printf("Регрессий больше %.1f%%: %d%n", threshold, regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> load(Path path) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(path.toFile())) {
+            Map<String, String> params = new TreeMap<>();
+            node.path("params").fields().forEachRemaining(p -> params.put(p.getKey(), p.getValue().asText()));
+            String key = node.path("benchmark").asText().replace(BenchmarkComparison.class.getPackageName() + ".", "")
+                    + (params.isEmpty() ? "" : " " + params);
+            results.put(key, node);
+        }
+        return results;
+    }
+}
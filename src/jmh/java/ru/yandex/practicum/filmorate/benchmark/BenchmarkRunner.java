@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Точка входа бенчмарков: принимает обычные аргументы JMH и, если формат результата не задан явно,
+ * пишет результат в target/jmh-results/&lt;commit&gt;.json, чтобы прогоны разных коммитов можно было сравнить
+ * через {@link BenchmarkComparison}.
+ */
+public final class BenchmarkRunner {
+    private static final Path RESULTS_DIR = Path.of("target", "jmh-results");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp()) {
+            cmd.showHelp();
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResult().hasValue() && !cmd.getResultFormat().hasValue()) {
+            Files.createDirectories(RESULTS_DIR);
+            Path result = RESULTS_DIR.resolve(label() + ".json");
+            builder.resultFormat(ResultFormatType.JSON).result(result.toString());
+            System.out.println("Результаты будут записаны в " + result);
+        }
+        Runner runner = new Runner(builder.build());
+        if (cmd.shouldList()) {
+            runner.list();
+            return;
+        }
+        runner.run();
+    }
+
+    private static String label() {
+        String label = System.getProperty("benchmark.label");
+        if (label != null && !label.isBlank()) {
+            return label;
+        }
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").start();
+            String commit = new String(git.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (git.waitFor() == 0 && !commit.isEmpty()) {
+                return commit;
+            }
+        } catch (IOException e) {
+            // git недоступен — подписываем результат временем запуска
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья: прежний HashSet.retainAll против пересечения отсортированных списков смежности.
+ * skewed — 10 друзей против 100k, balanced — 10k против 10k.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFriendsBenchmark {
+    private static final long USER = 1;
+    private static final long OTHER = 2;
+
+    @Param({"skewed", "balanced"})
+    private String shape;
+
+    private InMemoryFriendshipStorage storage;
+    private Set<Long> userFriendsBoxed;
+    private Set<Long> otherFriendsBoxed;
+    private long[] userFriends;
+    private long[] otherFriends;
+    private long[] out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int userDegree = "skewed".equals(shape) ? 10 : 10_000;
+        int otherDegree = "skewed".equals(shape) ? 100_000 : 10_000;
+        // пространство id вдвое больше степени, поэтому примерно половина друзей окажется общей
+        Random random = new Random(42);
+        long universe = 2L * Math.max(userDegree, otherDegree);
+
+        storage = new InMemoryFriendshipStorage();
+        userFriendsBoxed = new HashSet<>();
+        otherFriendsBoxed = new HashSet<>();
+        while (userFriendsBoxed.size() < userDegree) {
+            long id = 3 + (long) (random.nextDouble() * universe);
+            storage.addFriendship(USER, id);
+            userFriendsBoxed.add(id);
+        }
+        while (otherFriendsBoxed.size() < otherDegree) {
+            long id = 3 + (long) (random.nextDouble() * universe);
+            storage.addFriendship(OTHER, id);
+            otherFriendsBoxed.add(id);
+        }
+        userFriends = storage.getFriendIds(USER);
+        otherFriends = storage.getFriendIds(OTHER);
+        out = new long[Math.min(userDegree, otherDegree)];
+
+        long[] merged = Arrays.copyOf(out, SortedLongSet.mergeIntersect(
+                userFriends, userFriends.length, otherFriends, otherFriends.length, out));
+        long[] galloped = Arrays.copyOf(out, SortedLongSet.gallopIntersect(
+                userFriends, userFriends.length, otherFriends, otherFriends.length, out));
+        if (!Arrays.equals(merged, galloped) || !Arrays.equals(merged, storage.getCommonFriendIds(USER, OTHER))) {
+            throw new IllegalStateException("Стратегии пересечения дали разный результат");
+        }
+    }
+
+    @Benchmark
+    public Set<Long> hashSetRetainAll() {
+        Set<Long> common = new HashSet<>(userFriendsBoxed);
+        common.retainAll(otherFriendsBoxed);
+        return common;
+    }
+
+    @Benchmark
+    public long[] storageCommonFriends() {
+        return storage.getCommonFriendIds(USER, OTHER);
+    }
+
+    @Benchmark
+    public int linearMerge() {
+        return SortedLongSet.mergeIntersect(userFriends, userFriends.length, otherFriends, otherFriends.length, out);
+    }
+
+    @Benchmark
+    public int gallop() {
+        return SortedLongSet.gallopIntersect(userFriends, userFriends.length, otherFriends, otherFriends.length, out);
+    }
+}
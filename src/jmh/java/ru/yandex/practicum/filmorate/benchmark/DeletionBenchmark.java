@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DeletionService;
+import ru.yandex.practicum.filmorate.service.EdgeCleaner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Удаление пользователя с degree друзьями и degree лайками в каталоге из SCALE фильмов и пользователей.
+ * deleteUser — время ответа на DELETE: рёбра сверх inline-edges снимаются уже после него, в фоне;
+ * deleteUserAndWait — до снятия последнего ребра; scanCascade — каскад без обратных индексов, который
+ * проверяет каждый фильм и каждого пользователя каталога и потому стоит O(каталога) при любой степени, а для
+ * «звезды» ещё и копирует её массив на каждое снятое ребро.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DeletionBenchmark {
+    private static final int SCALE = 100_000;
+    private static final long STAR = 1;
+
+    @Param({"10", "100000"})
+    private int degree;
+
+    private SyntheticDataset dataset;
+    private EdgeCleaner edgeCleaner;
+    private DeletionService deletionService;
+    private CompletableFuture<Void> cleanup = CompletableFuture.completedFuture(null);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(SCALE, SCALE + 1, 0, 0, 42);
+        edgeCleaner = new EdgeCleaner(1_000, 500, new MetricsRegistry());
+        deletionService = new DeletionService(dataset.getFilmService(), dataset.getUserService(), edgeCleaner);
+    }
+
+    @Setup(Level.Iteration)
+    public void restoreStar() {
+        cleanup.join();
+        if (dataset.getUserStorage().getUserById(STAR).isEmpty()) {
+            User user = SyntheticDataset.user((int) STAR);
+            user.setId(STAR);
+            dataset.getUserStorage().restoreUser(user);
+        }
+        for (long id = 1; id <= degree; id++) {
+            dataset.getUserService().addFriend(STAR, id + 1);
+            dataset.getFilmService().addLike(id, STAR);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cleanup.join();
+        edgeCleaner.close();
+    }
+
+    @Benchmark
+    public CompletableFuture<Void> deleteUser() {
+        cleanup = deletionService.deleteUser(STAR);
+        return cleanup;
+    }
+
+    @Benchmark
+    public CompletableFuture<Void> deleteUserAndWait() {
+        cleanup = deletionService.deleteUser(STAR);
+        cleanup.join();
+        return cleanup;
+    }
+
+    @Benchmark
+    public boolean scanCascade() {
+        for (long filmId = 1; filmId <= SCALE; filmId++) {
+            dataset.getLikeStorage().removeLike(filmId, STAR);
+        }
+        for (long userId = 2; userId <= SCALE + 1; userId++) {
+            dataset.getFriendshipStorage().removeFriendship(STAR, userId);
+        }
+        return dataset.getUserStorage().deleteUser(STAR).isPresent();
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.EventBatch;
+import ru.yandex.practicum.filmorate.events.EventDispatcher;
+import ru.yandex.practicum.filmorate.events.EventRing;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Поток событий под нагрузкой: цена публикации в одиночку и при четырёх издателях, а также конвейер целиком —
+ * издатели публикуют, пока EventDispatcher раздаёт события subscribers подписчикам пачками. Счётчики
+ * delivered и missed показывают, сколько событий дошло до подписчиков и сколько они не успели прочитать.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventStreamBenchmark {
+    private static final int CAPACITY = 1 << 16;
+    private static final int SUBSCRIBERS = 4;
+
+    private EventRing ring;
+    private EventDispatcher dispatcher;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ring = new EventRing(CAPACITY);
+        dispatcher = new EventDispatcher(ring, 1000);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            dispatcher.subscribe(0, this::consume);
+        }
+        dispatcher.start(Duration.ofMillis(20));
+        delivered.reset();
+        missed.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        dispatcher.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Delivery {
+        public long delivered;
+        public long missed;
+    }
+
+    private boolean consume(EventBatch batch) {
+        delivered.add(batch.events().size());
+        missed.add(batch.missed());
+        return true;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long publish() {
+        return ring.publish(ChangeEvent.Type.LIKE_ADDED, 1, 2);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long publishContended() {
+        return ring.publish(ChangeEvent.Type.LIKE_ADDED, 1, 2);
+    }
+
+    @Benchmark
+    @Group("pipeline")
+    @GroupThreads(2)
+    public long pipelinePublish() {
+        return ring.publish(ChangeEvent.Type.FRIEND_ADDED, 1, 2);
+    }
+
+    @Benchmark
+    @Group("pipeline")
+    @GroupThreads(1)
+    public void pipelineDelivery(Delivery counters) {
+        // раз в миллисекунду переносит счётчики подписчиков в отчёт JMH, не отнимая процессор у издателей
+        counters.delivered += delivered.sumThenReset();
+        counters.missed += missed.sumThenReset();
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
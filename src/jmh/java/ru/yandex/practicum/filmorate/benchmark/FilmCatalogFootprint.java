@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.MappedFilmStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Каталог фильмов в куче и вне кучи: удерживаемая куча, длительность полной сборки мусора при живом каталоге
+ * и число/время сборок на потоке чтений getFilmById.
+ * Запуск: mvn -Pbenchmark compile exec:exec
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.FilmCatalogFootprint -Dbenchmark.args="1000000"
+ */
+public class FilmCatalogFootprint {
+    private static final int READS = 10_000_000;
+
+    public static void main(String[] args) throws IOException {
+        int films = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("film-catalog");
+
+        System.out.printf("films=%d%n", films);
+        report("InMemoryFilmStorage", films, InMemoryFilmStorage::new);
+        report("MappedFilmStorage", films, () -> {
+            try {
+                return new MappedFilmStorage(directory);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Files.deleteIfExists(directory);
+    }
+
+    private static void report(String label, int films, Supplier<FilmStorage> factory)
+            throws IOException {
+        FilmStorage[] holder = new FilmStorage[1];
+        long heap = HeapFootprint.measure(() -> {
+            FilmStorage storage = factory.get();
+            for (int i = 1; i <= films; i++) {
+                storage.addFilm(SyntheticDataset.film(i));
+            }
+            holder[0] = storage;
+            return storage;
+        });
+        FilmStorage storage = holder[0];
+
+        long fullGcStarted = System.nanoTime();
+        System.gc();
+        long fullGcMillis = (System.nanoTime() - fullGcStarted) / 1_000_000;
+
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        SplittableRandom random = new SplittableRandom(7);
+        long checksum = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            checksum += storage.getFilmById(1L + random.nextInt(films)).orElseThrow().getDuration();
+        }
+        long readMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.printf("%-20s heap %s (%.1f bytes/film), full GC %d ms, %d reads: %d ms, GC %d collections / %d ms%n",
+                label, HeapFootprint.megabytes(heap), (double) heap / films, fullGcMillis, READS, readMillis,
+                gcCount() - gcCountBefore, gcTime() - gcTimeBefore);
+        Reference.reachabilityFence(checksum);
+        if (storage instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
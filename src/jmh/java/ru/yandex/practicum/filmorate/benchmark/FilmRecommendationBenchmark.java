@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации фильмов по степенному распределению лайков: обычный пользователь и «киноман», лайкнувший
+ * heavyLikes фильмов (включая самые популярные), с ограничением работы maxEdges и без него.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmRecommendationBenchmark {
+    private static final long HEAVY_USER = 1;
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"20"})
+    private int likesPerUser;
+
+    @Param({"5000"})
+    private int heavyLikes;
+
+    @Param({"20000", "50000"})
+    private int maxEdges;
+
+    private SyntheticDataset dataset;
+    private FilmRecommender bounded;
+    private FilmRecommender unbounded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(users, users, likesPerUser, 0, 42);
+        InMemoryLikeStorage storage = dataset.getLikeStorage();
+        for (long filmId = 1; filmId <= heavyLikes; filmId++) {
+            storage.addLike(filmId, HEAVY_USER);
+        }
+        bounded = new FilmRecommender(storage, maxEdges, 64, 50);
+        unbounded = new FilmRecommender(storage, Integer.MAX_VALUE, 64, 50);
+        System.out.printf("%nlikes %d, top film likes %d%n", storage.getLikeEdgeCount(), storage.getLikeCount(1));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public FilmRecommender.Ranking randomUser(ThreadRandom state) {
+        return bounded.recommend(dataset.randomUserId(state.random), 10);
+    }
+
+    @Benchmark
+    public FilmRecommender.Ranking heavyUserBounded() {
+        return bounded.recommend(HEAVY_USER, 10);
+    }
+
+    @Benchmark
+    public FilmRecommender.Ranking heavyUserUnbounded() {
+        return unbounded.recommend(HEAVY_USER, 10);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.util.TopCounts;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по каталогу из films фильмов: названия из 2 слов, описания из 12, слова выбираются из словаря
+ * VOCABULARY псевдорусских слов по степенному закону. Запросы: редкое слово, самое частое слово,
+ * два слова (частое и среднее), автодополнение по 2 и 4 буквам, то же с учётом лайков,
+ * и переиндексация изменённого фильма.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FilmSearchBenchmark {
+    private static final int VOCABULARY = 20_000;
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "ле", "на", "то", "вё", "зо", "ра", "ше", "лу",
+            "дя", "пи", "ну", "го", "ве", "ст", "ой", "ба", "ть"};
+
+    @Param({"1000000"})
+    private int films;
+
+    private FilmSearchIndex index;
+    private String[] words;
+    private PowerLawSampler wordSampler;
+    private String rare;
+    private String common;
+    private String twoWords;
+    private String prefix2;
+    private String prefix4;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(i);
+        }
+        wordSampler = new PowerLawSampler(VOCABULARY, 1.1);
+        SplittableRandom random = new SplittableRandom(42);
+        index = new FilmSearchIndex();
+        long started = System.nanoTime();
+        for (int i = 1; i <= films; i++) {
+            index.add(film(i, random));
+        }
+        rare = words[5_000];
+        common = words[0];
+        twoWords = words[0] + " " + words[100];
+        prefix2 = words[3].substring(0, 2);
+        prefix4 = words[300].substring(0, 4);
+        System.out.printf("%nindexed %d films in %d ms, %d terms%n", films,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), index.termCount());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+        long nextId;
+    }
+
+    @Benchmark
+    public TopCounts rareWord() {
+        return index.search(rare, 20, false, null);
+    }
+
+    @Benchmark
+    public TopCounts commonWord() {
+        return index.search(common, 20, false, null);
+    }
+
+    @Benchmark
+    public TopCounts twoWords() {
+        return index.search(twoWords, 20, false, null);
+    }
+
+    @Benchmark
+    public TopCounts prefix2() {
+        return index.search(prefix2, 20, true, null);
+    }
+
+    @Benchmark
+    public TopCounts prefix4() {
+        return index.search(prefix4, 20, true, null);
+    }
+
+    @Benchmark
+    public TopCounts prefix4BoostedByLikes() {
+        return index.search(prefix4, 20, true, filmId -> (int) (filmId % 1000));
+    }
+
+    @Benchmark
+    public void reindexFilm(ThreadRandom state) {
+        state.nextId = state.nextId % films + 1;
+        index.add(film((int) state.nextId, state.random));
+    }
+
+    private Film film(int id, SplittableRandom random) {
+        Film film = new Film();
+        film.setId((long) id);
+        film.setName(words[(int) wordSampler.next(random) - 1] + " " + words[(int) wordSampler.next(random) - 1]);
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            description.append(words[(int) wordSampler.next(random) - 1]).append(i % 4 == 3 ? ". " : " ");
+        }
+        film.setDescription(description.toString());
+        return film;
+    }
+
+    private static String word(int i) {
+        StringBuilder word = new StringBuilder();
+        int n = i + SYLLABLES.length;
+        while (n > 0) {
+            word.append(SYLLABLES[n % SYLLABLES.length]);
+            n /= SYLLABLES.length;
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути FilmService на синтетическом каталоге. Размер задаётся через -p scale=...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmServiceBenchmark {
+    @Param({"1000", "100000"})
+    private int scale;
+
+    @Param({"10"})
+    private int likesPerUser;
+
+    private SyntheticDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(scale, scale, likesPerUser, 0, 42);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return dataset.getFilmService().getPopularFilms(10);
+    }
+
+    @Benchmark
+    public void addAndRemoveLike(ThreadRandom state) {
+        long filmId = dataset.popularFilmId(state.random);
+        long userId = dataset.randomUserId(state.random);
+        dataset.getFilmService().addLike(filmId, userId);
+        dataset.getFilmService().removeLike(filmId, userId);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Занимаемая куча графа дружбы: прежний HashMap<Long, Set<Long>> против InMemoryFriendshipStorage.
+ * Запуск: mvn -Pbenchmark compile exec:exec
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.FriendGraphFootprint -Dbenchmark.args="100000 2000000"
+ */
+public class FriendGraphFootprint {
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int edges = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        long[][] pairs = randomEdges(users, edges);
+
+        long boxed = HeapFootprint.measure(() -> {
+            Map<Long, Set<Long>> friendsMap = new HashMap<>();
+            for (long[] pair : pairs) {
+                friendsMap.computeIfAbsent(pair[0], id -> new HashSet<>()).add(pair[1]);
+                friendsMap.computeIfAbsent(pair[1], id -> new HashSet<>()).add(pair[0]);
+            }
+            return friendsMap;
+        });
+
+        long primitive = HeapFootprint.measure(() -> {
+            InMemoryFriendshipStorage storage = new InMemoryFriendshipStorage();
+            for (long[] pair : pairs) {
+                storage.addFriendship(pair[0], pair[1]);
+            }
+            return storage;
+        });
+
+        System.out.printf("users=%d edges=%d%n", users, edges);
+        System.out.printf("HashMap<Long, Set<Long>>:   %s (%.1f bytes/edge)%n",
+                HeapFootprint.megabytes(boxed), (double) boxed / edges);
+        System.out.printf("InMemoryFriendshipStorage: %s (%.1f bytes/edge)%n",
+                HeapFootprint.megabytes(primitive), (double) primitive / edges);
+    }
+
+    private static long[][] randomEdges(int users, int edges) {
+        Random random = new Random(42);
+        long[][] pairs = new long[edges][];
+        for (int i = 0; i < edges; i++) {
+            long a = 1 + random.nextInt(users);
+            long b = 1 + random.nextInt(users);
+            pairs[i] = new long[]{a, a == b ? b % users + 1 : b};
+        }
+        return pairs;
+    }
+}
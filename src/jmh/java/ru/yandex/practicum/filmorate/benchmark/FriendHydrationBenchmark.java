@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.cluster.ConsistentHashRing;
+import ru.yandex.practicum.filmorate.cluster.LoopbackTransport;
+import ru.yandex.practicum.filmorate.cluster.ShardRouter;
+import ru.yandex.practicum.filmorate.cluster.ShardedUserStorage;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Превращение списка id друзей в пользователей для «звезды» с friends друзьями.
+ * perElement — прежний путь getFriends: Optional и лямбда на каждый id и сборка HashSet; multiGet — пакетное
+ * чтение getUsersByIds в упорядоченный список. backend=sharded — те же чтения через четыре узла LoopbackTransport,
+ * где поэлементный путь платит за запрос к узлу на каждый id, а пакетный — один запрос на узел.
+ * getFriends — весь путь UserService на хранилище в памяти вместе с чтением списка id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendHydrationBenchmark {
+    @Param({"10000", "50000"})
+    private int friends;
+
+    @Param({"inMemory", "sharded"})
+    private String backend;
+
+    private SyntheticDataset dataset;
+    private LoopbackTransport transport;
+    private UserStorage userStorage;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(1, friends + 1, 0, 0, 42);
+        for (long friendId = 2; friendId <= friends + 1; friendId++) {
+            dataset.getUserService().addFriend(1L, friendId);
+        }
+        ids = dataset.getFriendshipStorage().getFriendIds(1L);
+        if (backend.equals("sharded")) {
+            transport = LoopbackTransport.inMemory(4);
+            userStorage = new ShardedUserStorage(new ShardRouter(new ConsistentHashRing(4, 128), transport));
+            for (int i = 1; i <= friends + 1; i++) {
+                userStorage.addUser(SyntheticDataset.user(i));
+            }
+        } else {
+            userStorage = dataset.getUserStorage();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    @Benchmark
+    public Set<User> perElement() {
+        return Arrays.stream(ids)
+                .mapToObj(id -> userStorage.getUserById(id).orElseThrow())
+                .collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public List<User> multiGet() {
+        return userStorage.getUsersByIds(ids);
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return dataset.getUserService().getFriends(1L);
+    }
+}
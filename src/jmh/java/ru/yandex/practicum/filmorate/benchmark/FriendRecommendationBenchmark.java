@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации друзей на степенном графе: обычный пользователь, самый популярный пользователь
+ * с ограничением работы и без него, тот же пользователь из заранее построенных счётчиков,
+ * а также цена поддержки счётчиков при изменении дружбы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendRecommendationBenchmark {
+    private static final long HUB = 1;
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"20"})
+    private int friendsPerUser;
+
+    private SyntheticDataset dataset;
+    private InMemoryFriendshipStorage storage;
+    private FriendRecommender bounded;
+    private FriendRecommender unbounded;
+    private FriendRecommender precomputed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(1, users, 0, friendsPerUser, 42);
+        storage = dataset.getFriendshipStorage();
+        bounded = new FriendRecommender(storage, 50_000, 512, Integer.MAX_VALUE, 0);
+        unbounded = new FriendRecommender(storage, Integer.MAX_VALUE, 512, Integer.MAX_VALUE, 0);
+        precomputed = new FriendRecommender(storage, 50_000, 512, 0, 1);
+        precomputed.precompute(HUB);
+        System.out.printf("%nhub degree %d, friendships %d%n", storage.getFriendCount(HUB),
+                storage.getFriendshipCount());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public FriendRecommender.Ranking randomUser(ThreadRandom state) {
+        return bounded.recommend(dataset.randomUserId(state.random), 10);
+    }
+
+    @Benchmark
+    public FriendRecommender.Ranking hubBounded() {
+        return bounded.recommend(HUB, 10);
+    }
+
+    @Benchmark
+    public FriendRecommender.Ranking hubUnbounded() {
+        return unbounded.recommend(HUB, 10);
+    }
+
+    @Benchmark
+    public FriendRecommender.Ranking hubPrecomputed() {
+        return precomputed.recommend(HUB, 10);
+    }
+
+    @Benchmark
+    public void maintainPrecomputed(ThreadRandom state) {
+        long userId = dataset.popularUserId(state.random);
+        long friendId = dataset.randomUserId(state.random);
+        if (userId != friendId && storage.addFriendship(userId, friendId)) {
+            precomputed.friendshipAdded(userId, friendId);
+            storage.removeFriendship(userId, friendId);
+            precomputed.friendshipRemoved(userId, friendId);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.management.MemoryMXBean;
+import java.util.function.Supplier;
+
+/**
+ * Грубый замер удерживаемой кучи: разница занятой памяти после полной сборки мусора
+ * до и после построения структуры. Для сравнения представлений между собой этого достаточно.
+ */
+public final class HeapFootprint {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private HeapFootprint() {
+    }
+
+    public static long measure(Supplier<Object> builder) {
+        long before = usedAfterGc();
+        Object retained = builder.get();
+        long after = usedAfterGc();
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+
+    public static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
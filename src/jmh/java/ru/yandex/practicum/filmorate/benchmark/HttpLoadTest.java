@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Нагрузочный тест HTTP-слоя: платформенные потоки Tomcat против виртуальных.
+ * Для каждого режима поднимается отдельная JVM с приложением (журнал изменений включён с синхронным fsync,
+ * так что запросы на запись действительно блокируются), наполняется данными через пакетные эндпоинты
+ * и нагружается concurrency клиентами: 70% GET /films/{id}, 10% GET /films/popular, 10% GET /users/{id}/friends,
+ * 10% PUT /films/{id}/like/{userId}. Печатаются пропускная способность, p50/p99 и число закреплений
+ * виртуальных потоков (-Djdk.tracePinnedThreads) за время прогона.
+ * Запуск: mvn -Pbenchmark compile exec:exec
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.HttpLoadTest -Dbenchmark.args="1000 30"
+ */
+public class HttpLoadTest {
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+    private static final int SEED_CHUNK = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int warmupSeconds = Math.max(5, seconds / 3);
+
+        Path workDir = Files.createDirectories(Path.of("target", "load-test"));
+        List<String> report = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            report.add(run(virtual, concurrency, seconds, warmupSeconds, workDir));
+        }
+        System.out.printf("concurrency=%d duration=%ds%n", concurrency, seconds);
+        report.forEach(System.out::println);
+    }
+
+    private static String run(boolean virtual, int concurrency, int seconds, int warmupSeconds, Path workDir)
+            throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        int port = freePort();
+        Path data = Files.createTempDirectory("load-test-" + mode);
+        Path log = workDir.resolve(mode + ".log");
+        Process server = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx1g", "-Djdk.tracePinnedThreads=short",
+                "-cp", System.getProperty("java.class.path"),
+                FilmorateApplication.class.getName(),
+                "--server.port=" + port,
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--filmorate.persistence.enabled=true",
+                "--filmorate.persistence.directory=" + data,
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF")
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clients)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            String base = "http://localhost:" + port;
+            awaitStartup(http, base);
+            seed(http, base);
+
+            drive(http, base, clients, concurrency, warmupSeconds);
+            Result result = drive(http, base, clients, concurrency, seconds);
+            long pinned = Files.readAllLines(log).stream().filter(line -> line.contains("<== monitors")).count();
+            return String.format("%-8s %,10.0f req/s  p50 %6.2f ms  p99 %7.2f ms  errors %d  pinned %d",
+                    mode, result.requests / (double) seconds, result.percentile(0.50), result.percentile(0.99),
+                    result.errors, pinned);
+        } finally {
+            server.destroy();
+            server.waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Result drive(HttpClient http, String base, ExecutorService clients, int concurrency,
+                                int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        List<int[]> counts = new ArrayList<>();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int c = 0; c < concurrency; c++) {
+            long[] samples = new long[1 << 14];
+            int[] count = new int[1];
+            latencies.add(samples);
+            counts.add(count);
+            SplittableRandom random = new SplittableRandom(c);
+            workers.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = nextRequest(base, random);
+                    long started = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 500) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (count[0] < samples.length) {
+                        samples[count[0]] = System.nanoTime() - started;
+                    }
+                    count[0]++;
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        long requests = counts.stream().mapToLong(count -> count[0]).sum();
+        long[] all = IntStream.range(0, latencies.size())
+                .mapToObj(i -> Arrays.copyOf(latencies.get(i), Math.min(counts.get(i)[0], latencies.get(i).length)))
+                .flatMapToLong(Arrays::stream)
+                .sorted()
+                .toArray();
+        return new Result(requests, errors.get(), all);
+    }
+
+    private static HttpRequest nextRequest(String base, SplittableRandom random) {
+        int kind = random.nextInt(10);
+        long film = 1 + random.nextInt(FILMS);
+        long user = 1 + random.nextInt(USERS);
+        String path;
+        if (kind < 7) {
+            path = "/films/" + film;
+        } else if (kind == 7) {
+            path = "/films/popular?count=10";
+        } else if (kind == 8) {
+            path = "/users/" + user + "/friends";
+        } else {
+            return HttpRequest.newBuilder(URI.create(base + "/films/" + film + "/like/" + user))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+    }
+
+    private static void seed(HttpClient http, String base) throws IOException, InterruptedException {
+        for (int from = 0; from < USERS; from += SEED_CHUNK) {
+            post(http, base + "/users/batch", IntStream.range(from, Math.min(USERS, from + SEED_CHUNK))
+                    .mapToObj(i -> String.format(
+                            "{\"email\":\"user%d@mail.com\",\"login\":\"user%d\",\"birthday\":\"1990-01-01\"}", i, i))
+                    .collect(Collectors.joining(",", "[", "]")), "POST");
+        }
+        for (int from = 0; from < FILMS; from += SEED_CHUNK) {
+            post(http, base + "/films/batch", IntStream.range(from, Math.min(FILMS, from + SEED_CHUNK))
+                    .mapToObj(i -> String.format(
+                            "{\"name\":\"Фильм %d\",\"description\":\"Описание %d\",\"releaseDate\":\"2000-01-01\","
+                                    + "\"duration\":90}", i, i))
+                    .collect(Collectors.joining(",", "[", "]")), "POST");
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        post(http, base + "/users/friends/batch", IntStream.range(0, USERS * 10)
+                .mapToObj(i -> String.format("{\"userId\":%d,\"friendId\":%d}",
+                        1 + random.nextInt(USERS), 1 + random.nextInt(USERS)))
+                .collect(Collectors.joining(",", "[", "]")), "PUT");
+    }
+
+    private static void post(HttpClient http, String uri, String body, String method)
+            throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Не удалось наполнить данные: " + response.body());
+        }
+    }
+
+    private static void awaitStartup(HttpClient http, String base) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < deadline) {
+            try {
+                http.send(HttpRequest.newBuilder(URI.create(base + "/films?limit=1")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+        throw new IllegalStateException("Приложение не поднялось за 120 секунд");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Result(long requests, long errors, long[] sortedNanos) {
+        double percentile(double quantile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+import ru.yandex.practicum.filmorate.logging.AsyncHttpLogWriter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выделение памяти на горячих путях сервисов при выключенных info/debug (уровень WARN, как в профиле prod).
+ * Смотреть нужно на gc.alloc.rate.norm: -Dbenchmark.args="LoggingAllocation -prof gc".
+ * Всё, что остаётся, — сам результат операции; на сообщения журнала память тратиться не должна.
+ * asyncHttpLogWrite — цена постановки готовой записи Logbook в очередь AsyncHttpLogWriter для потока запроса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingAllocationBenchmark {
+    private static final int SCALE = 10_000;
+
+    private SyntheticDataset dataset;
+    private long likedFilmId;
+    private long likingUserId;
+    private AsyncHttpLogWriter httpLogWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(SCALE, SCALE, 10, 10, 42);
+        likedFilmId = 1;
+        likingUserId = 1;
+        dataset.getFilmService().addLike(likedFilmId, likingUserId);
+        httpLogWriter = new AsyncHttpLogWriter(new DiscardingWriter(), 8192, 256);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpLogWriter.close();
+        System.out.println("\nasync http log: dropped " + httpLogWriter.getDropped());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return dataset.getFilmService().getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<User> getFriends(ThreadRandom state) {
+        return dataset.getUserService().getFriends(dataset.popularUserId(state.random));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(ThreadRandom state) {
+        return dataset.getUserService().getCommonFriends(dataset.popularUserId(state.random),
+                dataset.popularUserId(state.random));
+    }
+
+    @Benchmark
+    public void repeatLike() {
+        // лайк уже стоит: хранилище и журнал не меняются, остаются проверки и логирование
+        dataset.getFilmService().addLike(likedFilmId, likingUserId);
+    }
+
+    @Benchmark
+    public void asyncHttpLogWrite() {
+        httpLogWriter.write((Precorrelation) null, "GET /films/1");
+    }
+
+    private static final class DiscardingWriter implements HttpLogWriter {
+        @Override
+        public void write(Precorrelation precorrelation, String request) {
+        }
+
+        @Override
+        public void write(Correlation correlation, String response) {
+        }
+    }
+}
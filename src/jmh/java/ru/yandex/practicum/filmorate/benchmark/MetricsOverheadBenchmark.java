@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена инструментирования: пара System.nanoTime() и запись в гистограмму, в том числе из нескольких потоков
+ * в одну гистограмму, и обёртка time с захватывающей лямбдой, как в сервисах. Выделение памяти проверяется профилировщиком:
+ * -Dbenchmark.args="MetricsOverhead -prof gc" — gc.alloc.rate.norm должен быть около 0 B/op, у time — 24 B/op
+ * на объект лямбды: в сервисах вызов time мегаморфный, и escape-анализ его не убирает.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+    private LatencyHistogram histogram;
+    private long value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Benchmark
+    public long nanoTimePair() {
+        long started = System.nanoTime();
+        return System.nanoTime() - started;
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.record(value++ & 0xFFFFF);
+    }
+
+    @Benchmark
+    public void recordSince() {
+        histogram.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    public long time() {
+        long input = value++;
+        return histogram.time(() -> input * 31);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.recordSince(System.nanoTime());
+    }
+}
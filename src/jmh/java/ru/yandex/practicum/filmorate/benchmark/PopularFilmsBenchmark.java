@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.events.EventRing;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingCounter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Топ-N популярных фильмов: индекс популярности против прежней полной сортировки каталога.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PopularFilmsBenchmark {
+    @Param({"1000000"})
+    private int films;
+
+    @Param({"10"})
+    private int count;
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+    private final Map<Long, Set<Long>> likesMap = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        MetricsRegistry metrics = new MetricsRegistry();
+        InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+        filmService = new FilmService(filmStorage, userStorage, likeStorage, MutationLog.NOOP,
+                metrics, new ResponseCache(1_000, metrics), new FilmRecommender(likeStorage, 20_000, 64, 50),
+                new TrendingCounter(), new FilmSearchIndex(), new EventRing(1024));
+
+        int users = 1_000;
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.com");
+            user.setLogin("user" + i);
+            user.setName("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.addUser(user);
+        }
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmService.addFilm(film);
+            likesMap.put(film.getId(), new HashSet<>());
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < films; i++) {
+            long filmId = 1 + random.nextInt(films);
+            long userId = 1 + random.nextInt(users);
+            filmService.addLike(filmId, userId);
+            likesMap.get(filmId).add(userId);
+        }
+    }
+
+    @Benchmark
+    public List<Film> popularityIndex() {
+        return filmService.getPopularFilms(count);
+    }
+
+    @Benchmark
+    public List<Film> fullSort() {
+        List<Film> all = new ArrayList<>(filmStorage.getAllFilms());
+        all.sort((f1, f2) -> {
+            int likes1 = likesMap.getOrDefault(f1.getId(), Collections.emptySet()).size();
+            int likes2 = likesMap.getOrDefault(f2.getId(), Collections.emptySet()).size();
+            return Integer.compare(likes2, likes1);
+        });
+        return all.stream().limit(count).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Выборка id из 1..n по степенному закону (приближение Ципфа обращением непрерывной функции распределения):
+ * несколько "звёзд" получают большую часть лайков и друзей, хвост — почти ничего.
+ */
+public class PowerLawSampler {
+    private final int n;
+    private final double exponent;
+    private final double oneMinusExponent;
+    private final double maxTerm;
+
+    public PowerLawSampler(int n, double exponent) {
+        if (exponent == 1.0) {
+            throw new IllegalArgumentException("Показатель степени 1.0 не поддерживается, возьмите 0.99 или 1.01");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.oneMinusExponent = 1.0 - exponent;
+        this.maxTerm = Math.pow(n + 1.0, oneMinusExponent) - 1.0;
+    }
+
+    public long next(RandomGenerator random) {
+        double x = Math.pow(maxTerm * random.nextDouble() + 1.0, 1.0 / oneMinusExponent);
+        return Math.min(n, Math.max(1, (long) x));
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.persistence.PersistenceManager;
+import ru.yandex.practicum.filmorate.persistence.SnapshotStore;
+import ru.yandex.practicum.filmorate.persistence.WriteAheadLog;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время восстановления после перезапуска: снимок синтетического каталога плюс хвост журнала из tail изменений лайков.
+ * Каждый замер открывает пустой сегмент журнала, поэтому хвост от замера к замеру не растёт.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class RecoveryBenchmark {
+    @Param({"100000"})
+    private int scale;
+
+    @Param({"100000"})
+    private int tail;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("recovery-benchmark");
+        WriteAheadLog wal = new WriteAheadLog(directory, false, 1024);
+        SyntheticDataset dataset = SyntheticDataset.generate(scale, scale, 10, 10, 42, wal);
+        PersistenceManager manager = new PersistenceManager(wal, new SnapshotStore(directory),
+                dataset.getFilmStorage(), dataset.getUserStorage(), dataset.getLikeStorage(),
+                dataset.getFriendshipStorage());
+        manager.snapshot();
+
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < tail; i++) {
+            long filmId = dataset.popularFilmId(random);
+            long userId = dataset.randomUserId(random);
+            if (random.nextBoolean()) {
+                dataset.getFilmService().addLike(filmId, userId);
+            } else {
+                dataset.getFilmService().removeLike(filmId, userId);
+            }
+        }
+        manager.close();
+        wal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public InMemoryLikeStorage recover() throws IOException {
+        InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+        WriteAheadLog wal = new WriteAheadLog(directory, false, 1024);
+        try (PersistenceManager manager = new PersistenceManager(wal, new SnapshotStore(directory),
+                new InMemoryFilmStorage(), new InMemoryUserStorage(), likeStorage, new InMemoryFriendshipStorage())) {
+            manager.recover();
+        } finally {
+            wal.close();
+        }
+        return likeStorage;
+    }
+}
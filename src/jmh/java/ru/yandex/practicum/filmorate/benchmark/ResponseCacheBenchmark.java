@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэш готовых ответов против сборки и сериализации на каждый запрос.
+ * *UnderLikes — перед каждым чтением ставится и снимается лайк случайному фильму: показывает, сколько попаданий
+ * остаётся при постоянных изменениях, когда инвалидируются только затронутые списки.
+ * В конце прогона печатается доля попаданий.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCacheBenchmark {
+    private static final int SCALE = 100_000;
+    private static final int COUNT = 10;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private SyntheticDataset dataset;
+    private ResponseCache cache;
+    private String popularEtag;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(SCALE, SCALE, 10, 10, 42);
+        cache = dataset.getResponseCache();
+        popularEtag = cachedPopular().etag();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        System.out.printf("%ncache: hits %d, misses %d (%.1f%% hits)%n", hits, misses,
+                100.0 * hits / Math.max(1, hits + misses));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public byte[] serializePopular() {
+        return json(dataset.getFilmService().getPopularFilms(COUNT));
+    }
+
+    @Benchmark
+    public ResponseCache.CachedResponse cachedPopular() {
+        return cache.get(new ResponseCache.Popular(COUNT), () -> {
+            List<Film> films = dataset.getFilmService().getPopularFilms(COUNT);
+            long[] ids = films.stream().mapToLong(Film::getId).toArray();
+            return new ResponseCache.Loaded(json(films), ids,
+                    dataset.getFilmService().getLikeCount(ids[ids.length - 1]), films.size() < COUNT);
+        });
+    }
+
+    @Benchmark
+    public boolean notModifiedPopular() {
+        return cachedPopular().matches(popularEtag);
+    }
+
+    @Benchmark
+    public ResponseCache.CachedResponse cachedPopularUnderLikes(ThreadRandom state) {
+        long filmId = dataset.randomFilmId(state.random);
+        long userId = dataset.randomUserId(state.random);
+        dataset.getFilmService().addLike(filmId, userId);
+        dataset.getFilmService().removeLike(filmId, userId);
+        return cachedPopular();
+    }
+
+    @Benchmark
+    public byte[] serializeFriends(ThreadRandom state) {
+        return json(dataset.getUserService().getFriends(dataset.popularUserId(state.random)));
+    }
+
+    @Benchmark
+    public ResponseCache.CachedResponse cachedFriends(ThreadRandom state) {
+        long userId = dataset.popularUserId(state.random);
+        return cache.get(new ResponseCache.Friends(userId), () -> {
+            List<User> friends = dataset.getUserService().getFriends(userId);
+            return ResponseCache.Loaded.of(json(friends), friends.stream().mapToLong(User::getId).toArray());
+        });
+    }
+
+    private byte[] json(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
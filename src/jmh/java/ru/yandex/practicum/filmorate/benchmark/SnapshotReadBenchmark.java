@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтения под непрерывной записью: в каждой группе читатели выполняют запрос, а один писатель всё это время
+ * меняет те же данные — лайки для популярных фильмов, дружбу «звёзд» для общих друзей, фильмы каталога для
+ * обхода getAllFilms. Число читателей задаётся через -tg (например, -tg 1,1 и -tg 4,1): при чтении без
+ * блокировок пропускная способность читателей растёт с числом ядер, а запись их не останавливает.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotReadBenchmark {
+    private static final int SCALE = 10_000;
+
+    private SyntheticDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(SCALE, SCALE, 10, 10, 42);
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        final SplittableRandom random = new SplittableRandom(11);
+        long first;
+        long second;
+        boolean undo;
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        final SplittableRandom random = new SplittableRandom(13);
+    }
+
+    @Benchmark
+    @Group("popular")
+    @GroupThreads(2)
+    public List<Film> popularRead() {
+        return dataset.getFilmService().getPopularFilms(10);
+    }
+
+    @Benchmark
+    @Group("popular")
+    @GroupThreads(1)
+    public void popularWrite(Writer writer) {
+        // лайк и его снятие по очереди: число лайков остаётся прежним, а топ постоянно перестраивается
+        if (writer.undo) {
+            dataset.getFilmService().removeLike(writer.first, writer.second);
+        } else {
+            writer.first = dataset.popularFilmId(writer.random);
+            writer.second = dataset.randomUserId(writer.random);
+            dataset.getFilmService().addLike(writer.first, writer.second);
+        }
+        writer.undo = !writer.undo;
+    }
+
+    @Benchmark
+    @Group("commonFriends")
+    @GroupThreads(2)
+    public List<User> commonFriendsRead(Reader reader) {
+        long userId = dataset.popularUserId(reader.random);
+        long otherId = dataset.popularUserId(reader.random);
+        return dataset.getUserService().getCommonFriends(userId, otherId == userId ? userId % SCALE + 1 : otherId);
+    }
+
+    @Benchmark
+    @Group("commonFriends")
+    @GroupThreads(1)
+    public void commonFriendsWrite(Writer writer) {
+        if (writer.undo) {
+            dataset.getUserService().removeFriend(writer.first, writer.second);
+        } else {
+            writer.first = dataset.popularUserId(writer.random);
+            writer.second = dataset.randomUserId(writer.random);
+            if (writer.first == writer.second) {
+                return;
+            }
+            dataset.getUserService().addFriend(writer.first, writer.second);
+        }
+        writer.undo = !writer.undo;
+    }
+
+    @Benchmark
+    @Group("allFilms")
+    @GroupThreads(2)
+    public long allFilmsRead() {
+        long checksum = 0;
+        for (Film film : dataset.getFilmService().getAllFilms()) {
+            checksum += film.getDuration();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    @Group("allFilms")
+    @GroupThreads(1)
+    public Film allFilmsWrite(Writer writer) {
+        int i = writer.random.nextInt(1, SCALE + 1);
+        Film film = SyntheticDataset.film(i);
+        film.setId((long) i);
+        return dataset.getFilmService().updateFilm(film);
+    }
+}
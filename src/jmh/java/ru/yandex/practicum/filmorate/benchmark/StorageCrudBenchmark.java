@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRUD InMemoryFilmStorage/InMemoryUserStorage. Вставки меряются пачками по batch на свежем хранилище,
+ * чтобы размер хранилища не рос от итерации к итерации. Запись ребра «звезде» со scale лайками или друзьями
+ * меряется парой «добавить и снять», так что степень звезды не меняется.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageCrudBenchmark {
+    private static final int BATCH = 100_000;
+    private static final long STAR = 1;
+
+    @Param({"1000", "100000"})
+    private int scale;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private Film[] films;
+    private User[] users;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= scale; i++) {
+            filmStorage.addFilm(SyntheticDataset.film(i));
+            userStorage.addUser(SyntheticDataset.user(i));
+        }
+        films = new Film[BATCH];
+        users = new User[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            films[i] = SyntheticDataset.film(scale + i);
+            users[i] = SyntheticDataset.user(scale + i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Stars {
+        final InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+        final InMemoryFriendshipStorage friendshipStorage = new InMemoryFriendshipStorage();
+
+        @Setup(Level.Trial)
+        public void setUp(StorageCrudBenchmark benchmark) {
+            for (long id = 2; id <= benchmark.scale + 1; id++) {
+                likeStorage.addLike(STAR, id);
+                friendshipStorage.addFriendship(STAR, id);
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<Film> getFilmById(ThreadRandom state) {
+        return filmStorage.getFilmById(1L + state.random.nextInt(scale));
+    }
+
+    @Benchmark
+    public Optional<User> getUserById(ThreadRandom state) {
+        return userStorage.getUserById(1L + state.random.nextInt(scale));
+    }
+
+    @Benchmark
+    public Film updateFilm(ThreadRandom state) {
+        Film film = SyntheticDataset.film(state.random.nextInt(scale));
+        film.setId(1L + state.random.nextInt(scale));
+        return filmStorage.updateFilm(film);
+    }
+
+    @Benchmark
+    public User updateUser(ThreadRandom state) {
+        User user = SyntheticDataset.user(state.random.nextInt(scale));
+        user.setId(1L + state.random.nextInt(scale));
+        return userStorage.updateUser(user);
+    }
+
+    @Benchmark
+    public boolean toggleStarLike(Stars stars, ThreadRandom state) {
+        long userId = scale + 2L + state.random.nextInt(BATCH);
+        stars.likeStorage.addLike(STAR, userId);
+        return stars.likeStorage.removeLike(STAR, userId);
+    }
+
+    @Benchmark
+    public boolean toggleStarFriendship(Stars stars, ThreadRandom state) {
+        long friendId = scale + 2L + state.random.nextInt(BATCH);
+        stars.friendshipStorage.addFriendship(STAR, friendId);
+        return stars.friendshipStorage.removeFriendship(STAR, friendId);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public InMemoryFilmStorage addFilms() {
+        for (Film film : films) {
+            filmStorage.addFilm(film);
+        }
+        return filmStorage;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public InMemoryUserStorage addUsers() {
+        for (User user : users) {
+            userStorage.addUser(user);
+        }
+        return userStorage;
+    }
+}
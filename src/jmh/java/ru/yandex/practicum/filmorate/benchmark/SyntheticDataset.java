@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.events.EventRing;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingCounter;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Синтетический каталог для бенчмарков: films фильмов, users пользователей,
+ * лайки и дружба распределены по степенному закону. Данные загружаются через сервисы,
+ * как при обычной работе приложения. Генерация детерминирована по seed.
+ */
+@Getter
+public class SyntheticDataset {
+    private static final double EXPONENT = 1.1;
+
+    private final int films;
+    private final int users;
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryFriendshipStorage friendshipStorage = new InMemoryFriendshipStorage();
+    private final InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final ResponseCache responseCache = new ResponseCache(10_000, metrics);
+    private final FilmRecommender filmRecommender;
+    private final TrendingCounter trendingCounter = new TrendingCounter();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final EventRing events = new EventRing(1 << 16);
+    private final FilmService filmService;
+    private final FriendRecommender friendRecommender;
+    private final UserService userService;
+    private final PowerLawSampler filmSampler;
+    private final PowerLawSampler userSampler;
+
+    private SyntheticDataset(int films, int users, MutationLog mutationLog) {
+        this.films = films;
+        this.users = users;
+        this.filmRecommender = new FilmRecommender(likeStorage, 20_000, 64, 50);
+        this.filmService = new FilmService(filmStorage, userStorage, likeStorage, mutationLog, metrics,
+                responseCache, filmRecommender, trendingCounter, searchIndex, events);
+        this.friendRecommender = new FriendRecommender(friendshipStorage, 50_000, 512, 5_000, 64);
+        this.userService = new UserService(userStorage, friendshipStorage, mutationLog, metrics,
+                responseCache, friendRecommender, events);
+        this.filmSampler = new PowerLawSampler(films, EXPONENT);
+        this.userSampler = new PowerLawSampler(users, EXPONENT);
+    }
+
+    public static SyntheticDataset generate(int films, int users, int likesPerUser, int friendsPerUser, long seed) {
+        return generate(films, users, likesPerUser, friendsPerUser, seed, MutationLog.NOOP);
+    }
+
+    public static SyntheticDataset generate(int films, int users, int likesPerUser, int friendsPerUser, long seed,
+                                            MutationLog mutationLog) {
+        SyntheticDataset dataset = new SyntheticDataset(films, users, mutationLog);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 1; i <= users; i++) {
+            dataset.userService.addUser(user(i));
+        }
+        for (int i = 1; i <= films; i++) {
+            dataset.filmService.addFilm(film(i));
+        }
+        for (long userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                dataset.filmService.addLike(dataset.filmSampler.next(random), userId);
+            }
+            for (int i = 0; i < friendsPerUser; i++) {
+                long friendId = dataset.userSampler.next(random);
+                if (friendId != userId) {
+                    dataset.userService.addFriend(userId, friendId);
+                }
+            }
+        }
+        return dataset;
+    }
+
+    public long randomFilmId(RandomGenerator random) {
+        return 1 + random.nextInt(films);
+    }
+
+    public long randomUserId(RandomGenerator random) {
+        return 1 + random.nextInt(users);
+    }
+
+    public long popularFilmId(RandomGenerator random) {
+        return filmSampler.next(random);
+    }
+
+    public long popularUserId(RandomGenerator random) {
+        return userSampler.next(random);
+    }
+
+    public static Film film(int i) {
+        Film film = new Film();
+        film.setName("Фильм " + i);
+        film.setDescription("Описание фильма " + i);
+        film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(i % 25_000));
+        film.setDuration(60 + i % 120);
+        return film;
+    }
+
+    public static User user(int i) {
+        User user = new User();
+        user.setEmail("user" + i + "@mail.com");
+        user.setLogin("user" + i);
+        user.setName("Пользователь " + i);
+        user.setBirthday(LocalDate.of(1960, 1, 1).plusDays(i % 15_000));
+        return user;
+    }
+}
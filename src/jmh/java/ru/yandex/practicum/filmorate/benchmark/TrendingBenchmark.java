@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.trending.TrendingCounter;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тренды: цена учёта лайка во всех окнах, чтение топа за окно рядом с чтением общего топа популярных
+ * и сдвиг окна, когда в выпадающей корзине likesPerBucket лайков степенного распределения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrendingBenchmark {
+    private static final int SCALE = 100_000;
+
+    private SyntheticDataset dataset;
+    private TrendingCounter trending;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(SCALE, SCALE, 10, 0, 42);
+        trending = dataset.getTrendingCounter();
+        System.out.printf("%nfilms trending this hour %d%n", trending.size(TrendingCounter.Window.HOUR));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Rotation {
+        @Param({"10000"})
+        private int likesPerBucket;
+
+        final TrendingCounter counter = new TrendingCounter();
+        final SplittableRandom random = new SplittableRandom(11);
+        final PowerLawSampler films = new PowerLawSampler(SCALE, 1.1);
+
+        @Setup(Level.Invocation)
+        public void fillBucket() {
+            for (int i = 0; i < likesPerBucket; i++) {
+                counter.likeAdded(films.next(random));
+            }
+        }
+    }
+
+    @Benchmark
+    public void likeAdded(ThreadRandom state) {
+        trending.likeAdded(dataset.popularFilmId(state.random));
+    }
+
+    @Benchmark
+    public List<Long> trendingTop10() {
+        return trending.getTopFilmIds(TrendingCounter.Window.DAY, 10);
+    }
+
+    @Benchmark
+    public List<Long> popularTop10() {
+        return dataset.getLikeStorage().getTopFilmIds(10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void rotateHour(Rotation rotation) {
+        rotation.counter.rotate(TrendingCounter.Window.HOUR);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.UniqueIndex;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка уникальности email при регистрации: индекс против прохода по всем пользователям.
+ * Записи индекса — сами строки email (id = номер в массиве + 1), чтобы 10 млн пользователей уместились в куче
+ * без остальных полей. find и claimAndRelease не должны зависеть от users; scan растёт линейно.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class UniqueIndexBenchmark {
+    @Param({"100000", "10000000"})
+    private int users;
+
+    private String[] emails;
+    private UniqueIndex<String> index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emails = new String[users];
+        index = new UniqueIndex<>(email -> email, id -> id > 0 && id <= users ? emails[(int) id - 1] : null);
+        for (int i = 0; i < users; i++) {
+            emails[i] = "user" + i + "@mail.com";
+            index.claim(emails[i], i + 1);
+        }
+        System.out.printf("%nunique index: %d emails%n", index.size());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public long findExisting(ThreadRandom state) {
+        return index.find("User" + state.random.nextInt(users) + "@mail.com");
+    }
+
+    @Benchmark
+    public long findMissing(ThreadRandom state) {
+        return index.find("guest" + state.random.nextInt(users) + "@mail.com");
+    }
+
+    /**
+     * Резерв нового email за незанятым id и снятие резерва — как регистрация, упавшая на занятом логине.
+     */
+    @Benchmark
+    public boolean claimAndRelease(ThreadRandom state) {
+        String email = "guest" + state.random.nextInt(users) + "@mail.com";
+        boolean claimed = index.claim(email, users + 1L);
+        index.release(email, users + 1L);
+        return claimed;
+    }
+
+    @Benchmark
+    public boolean scan(ThreadRandom state) {
+        String email = "guest" + state.random.nextInt(users) + "@mail.com";
+        for (String existing : emails) {
+            if (existing.equalsIgnoreCase(email)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути UserService на синтетическом графе дружбы со степенным распределением.
+ * getFriends/getCommonFriends для случайных пользователей и для "звёзд" с максимальной степенью.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserServiceBenchmark {
+    @Param({"1000", "100000"})
+    private int scale;
+
+    @Param({"10"})
+    private int friendsPerUser;
+
+    private SyntheticDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticDataset.generate(1, scale, 0, friendsPerUser, 42);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public Object getFriendsOfRandomUser(ThreadRandom state) {
+        return dataset.getUserService().getFriends(dataset.randomUserId(state.random));
+    }
+
+    @Benchmark
+    public Object getFriendsOfPopularUser(ThreadRandom state) {
+        return dataset.getUserService().getFriends(dataset.popularUserId(state.random));
+    }
+
+    @Benchmark
+    public Object getCommonFriendsOfRandomPair(ThreadRandom state) {
+        return dataset.getUserService().getCommonFriends(
+                dataset.randomUserId(state.random), dataset.randomUserId(state.random));
+    }
+
+    @Benchmark
+    public Object getCommonFriendsWithPopularUser(ThreadRandom state) {
+        return dataset.getUserService().getCommonFriends(
+                dataset.randomUserId(state.random), dataset.popularUserId(state.random));
+    }
+}
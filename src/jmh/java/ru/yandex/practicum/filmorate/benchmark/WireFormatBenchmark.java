@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.wire.WireFormat;
+import ru.yandex.practicum.filmorate.wire.WireFormats;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON против CBOR и Smile на трёх ответах: страница /films из 1000 фильмов, /films/popular (10 фильмов)
+ * и /users/{id}/friends самого популярного пользователя.
+ * serialize — только сериализация тела (CPU), http — запрос к приложению, поднятому в этой же JVM, от отправки
+ * до получения тела: popular и friends отдаются из кэша готовых ответов, /films сериализуется на каждый запрос.
+ * Размер тела каждого ответа печатается при подготовке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final int SCALE = 10_000;
+    private static final int PAGE = 1000;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private WireFormat format;
+
+    @Param({"films", "popular", "friends"})
+    private String endpoint;
+
+    private WireFormats wireFormats;
+    private Object payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticDataset dataset = SyntheticDataset.generate(SCALE, SCALE, 10, 10, 42);
+        wireFormats = new WireFormats(Jackson2ObjectMapperBuilder.json().build());
+        payload = switch (endpoint) {
+            case "films" -> dataset.getFilmService().getFilmsPage(0, PAGE);
+            case "popular" -> dataset.getFilmService().getPopularFilms(10);
+            default -> dataset.getUserService().getFriends(1L);
+        };
+        System.out.printf("%n%s %s: %d bytes%n", endpoint, format, wireFormats.write(format, payload).length);
+    }
+
+    /**
+     * Приложение целиком, с теми же данными, что и в SyntheticDataset, наполненное через сервисы.
+     */
+    @State(Scope.Benchmark)
+    public static class Server {
+        private ConfigurableApplicationContext context;
+        private HttpClient http;
+        private String base;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                    "--server.port=0", "--logging.level.root=WARN", "--logging.level.org.zalando.logbook=OFF");
+            FilmService filmService = context.getBean(FilmService.class);
+            UserService userService = context.getBean(UserService.class);
+            PowerLawSampler films = new PowerLawSampler(SCALE, 1.1);
+            PowerLawSampler users = new PowerLawSampler(SCALE, 1.1);
+            SplittableRandom random = new SplittableRandom(42);
+            for (int i = 1; i <= SCALE; i++) {
+                userService.addUser(SyntheticDataset.user(i));
+                filmService.addFilm(SyntheticDataset.film(i));
+            }
+            for (long userId = 1; userId <= SCALE; userId++) {
+                for (int i = 0; i < 10; i++) {
+                    filmService.addLike(films.next(random), userId);
+                    long friendId = users.next(random);
+                    if (friendId != userId) {
+                        userService.addFriend(userId, friendId);
+                    }
+                }
+            }
+            http = HttpClient.newHttpClient();
+            base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            http.close();
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return wireFormats.write(format, payload);
+    }
+
+    @Benchmark
+    public byte[] http(Server server) throws IOException, InterruptedException {
+        String path = switch (endpoint) {
+            case "films" -> "/films?after=0&limit=" + PAGE;
+            case "popular" -> "/films/popular?count=10";
+            default -> "/users/1/friends";
+        };
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.base + path))
+                .header("Accept", format.mediaType().toString())
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = server.http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Ответ " + response.statusCode() + " на " + path);
+        }
+        return response.body();
+    }
+}
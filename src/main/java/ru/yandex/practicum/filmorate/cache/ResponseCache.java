@@ -0,0 +1,446 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.wire.WireFormat;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Кэш готовых ответов (JSON или двоичных) для популярных фильмов, списков друзей и общих друзей. Ёмкость ограничена
+ * числом записей, вытеснение — CLOCK (второй шанс): приближение LRU, при котором попадание только ставит метку
+ * обращения записи. Попадание не берёт блокировок: записи лежат в ConcurrentHashMap. Инвалидация тоже идёт без
+ * блокировок — по конкурентным индексам записей; блокировка нужна только сохранению промаха и вытеснению, то есть
+ * изменению очереди CLOCK. Сервисы сообщают кэшу о каждом изменении, и он удаляет только те записи, результат
+ * которых от изменения мог поменяться:
+ * <ul>
+ *     <li>лайк фильму — списки популярных, где фильм уже есть, где у последнего фильма не больше лайков,
+ *     чем стало у этого, и неполные списки (фильмов в каталоге меньше count); списки популярных проиндексированы
+ *     по лайкам последнего фильма, поэтому лайк просматривает только списки, чью границу он может сдвинуть;</li>
+ *     <li>снятый лайк — только списки, где фильм есть;</li>
+ *     <li>новый фильм — неполные списки, изменённый или удалённый фильм — списки, где он есть;</li>
+ *     <li>дружба — друзья и общие друзья, запрошенные для любого из двух пользователей;</li>
+ *     <li>изменённый пользователь — списки, в которые он входит, удалённый — ещё и запрошенные для него.</li>
+ * </ul>
+ * Чтобы ответ, собранный до изменения, не остался в кэше после его инвалидации, каждая идущая загрузка запоминает
+ * изменения своей группы (фильмы или пользователи), случившиеся за время сборки. Загрузка сначала сохраняет
+ * и индексирует запись, потом снимается с учёта и проверяет запомненные изменения тем же правилом, что и для уже
+ * сохранённых записей. Изменение, которое не застало загрузку в списке идущих, найдёт её запись по индексу.
+ */
+@Component
+public class ResponseCache {
+    private static final long[] NONE = new long[0];
+
+    private final int capacity;
+    private final Map<Key, Slot> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong sequence = new AtomicLong();
+    // индексы записей: меняются без блокировки, ссылка на уже удалённую запись безвредна и снимается её удалением
+    private final NavigableSet<Slot> popularByMinLikes = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong((Slot slot) -> slot.minLikes).thenComparingLong(slot -> slot.sequence));
+    private final Set<Slot> partialPopular = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Slot>> byFilm = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Slot>> byParam = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Slot>> byMember = new ConcurrentHashMap<>();
+    private final Set<Load> loads = ConcurrentHashMap.newKeySet();
+    // очередь CLOCK меняется только под lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Slot> clock = new ArrayDeque<>();
+
+    public ResponseCache(@Value("${filmorate.cache.capacity}") int capacity, MetricsRegistry metrics) {
+        this.capacity = capacity;
+        metrics.gauge("cache.hits", this::getHits);
+        metrics.gauge("cache.misses", this::getMisses);
+        metrics.gauge("cache.evictions", this::getEvictions);
+        metrics.gauge("cache.size", this::size);
+    }
+
+    public sealed interface Key permits Popular, Friends, CommonFriends {
+
+        /**
+         * Запрошен ли список для этого пользователя (а не просто содержит его).
+         */
+        default boolean hasParam(long userId) {
+            return false;
+        }
+    }
+
+    /**
+     * Ключи различают формат тела: JSON и двоичные варианты одного списка кэшируются и инвалидируются отдельно.
+     */
+    public record Popular(int count, WireFormat format) implements Key {
+        public Popular(int count) {
+            this(count, WireFormat.JSON);
+        }
+    }
+
+    public record Friends(long userId, WireFormat format) implements Key {
+        public Friends(long userId) {
+            this(userId, WireFormat.JSON);
+        }
+
+        @Override
+        public boolean hasParam(long id) {
+            return userId == id;
+        }
+    }
+
+    public record CommonFriends(long userId, long otherId, WireFormat format) implements Key {
+        public CommonFriends(long userId, long otherId) {
+            this(userId, otherId, WireFormat.JSON);
+        }
+
+        @Override
+        public boolean hasParam(long id) {
+            return userId == id || otherId == id;
+        }
+    }
+
+    /**
+     * Готовый ответ: тело и его ETag.
+     */
+    public record CachedResponse(byte[] body, String etag) {
+
+        /**
+         * Ответ с ETag по содержимому тела — и для записей кэша, и для ответов, которые не кэшируются.
+         */
+        public static CachedResponse of(byte[] body) {
+            return new CachedResponse(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        }
+
+        /**
+         * Сравнение со значением If-None-Match: список через запятую, слабые теги сравниваются как сильные.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String value = tag.trim();
+                if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Результат загрузчика: тело ответа и id фильмов или пользователей, вошедших в него.
+     * minLikes — лайки последнего фильма в списке популярных, partial — в списке меньше фильмов, чем запрошено.
+     */
+    public record Loaded(byte[] body, long[] members, long minLikes, boolean partial) {
+
+        public static Loaded of(byte[] body, long[] members) {
+            return new Loaded(body, members, 0, false);
+        }
+    }
+
+    public CachedResponse get(Key key, Supplier<Loaded> loader) {
+        Slot cached = entries.get(key);
+        if (cached != null) {
+            hits.increment();
+            cached.touch();
+            return cached.response;
+        }
+        misses.increment();
+        Load load = new Load(key);
+        loads.add(load);
+
+        Loaded loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loads.remove(load);
+            throw e;
+        }
+        CachedResponse response = CachedResponse.of(loaded.body());
+        long[] members = loaded.members().clone();
+        Arrays.sort(members);
+        Slot slot = new Slot(key, response, members, loaded.minLikes(), loaded.partial(),
+                sequence.incrementAndGet());
+        boolean stored;
+        lock.lock();
+        try {
+            stored = entries.putIfAbsent(key, slot) == null;
+            if (stored) {
+                index(slot);
+                if (entries.get(key) != slot) {
+                    // инвалидация успела удалить запись до индексации — её ссылки снимаем сами
+                    unindex(slot);
+                }
+                clock.add(slot);
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        loads.remove(load);
+        if (stored && load.changes.stream().anyMatch(change -> change.test(slot))) {
+            remove(slot);
+        }
+        return response;
+    }
+
+    public void likeAdded(long filmId, long likes) {
+        changed(true, slot -> slot.partial || slot.minLikes <= likes || slot.contains(filmId));
+        removeAll(partialPopular);
+        removeAll(popularByMinLikes.headSet(Slot.probe(likes), true));
+        removeAll(byFilm.get(filmId));
+    }
+
+    public void likeRemoved(long filmId) {
+        filmChanged(filmId);
+    }
+
+    public void filmUpdated(long filmId) {
+        filmChanged(filmId);
+    }
+
+    public void filmDeleted(long filmId) {
+        filmChanged(filmId);
+    }
+
+    public void filmAdded() {
+        changed(true, slot -> slot.partial);
+        removeAll(partialPopular);
+    }
+
+    public void friendshipChanged(long userId, long friendId) {
+        changed(false, slot -> slot.key.hasParam(userId) || slot.key.hasParam(friendId));
+        removeAll(byParam.get(userId));
+        removeAll(byParam.get(friendId));
+    }
+
+    public void userUpdated(long userId) {
+        changed(false, slot -> slot.contains(userId));
+        removeAll(byMember.get(userId));
+    }
+
+    public void userDeleted(long userId) {
+        changed(false, slot -> slot.key.hasParam(userId) || slot.contains(userId));
+        removeAll(byParam.get(userId));
+        removeAll(byMember.get(userId));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void filmChanged(long filmId) {
+        changed(true, slot -> slot.contains(filmId));
+        removeAll(byFilm.get(filmId));
+    }
+
+    /**
+     * Запоминает изменение в загрузках той же группы, которые ещё идут; обычно их нет, и это одна проверка.
+     */
+    private void changed(boolean films, Predicate<Slot> affects) {
+        if (loads.isEmpty()) {
+            return;
+        }
+        for (Load load : loads) {
+            if ((load.key instanceof Popular) == films) {
+                load.changes.add(affects);
+            }
+        }
+    }
+
+    /**
+     * Вытеснение по кругу: запись, к которой обращались после прошлого прохода, получает второй шанс.
+     * В очереди остаются и записи, уже удалённые инвалидацией; они пропускаются, а если их накопилось
+     * больше живых, очередь чистится целиком.
+     */
+    private void evict() {
+        while (entries.size() > capacity) {
+            Slot slot = clock.poll();
+            if (entries.get(slot.key) != slot) {
+                continue;
+            }
+            if (slot.referenced) {
+                slot.referenced = false;
+                clock.add(slot);
+            } else {
+                remove(slot);
+                evictions.increment();
+            }
+        }
+        if (clock.size() > 2 * entries.size() + 16) {
+            clock.removeIf(slot -> entries.get(slot.key) != slot);
+        }
+    }
+
+    private void removeAll(Set<Slot> slots) {
+        if (slots != null) {
+            for (Slot slot : slots) {
+                remove(slot);
+            }
+        }
+    }
+
+    /**
+     * Удаляет запись, если она ещё в кэше; ссылки из индексов снимает тот, чьё удаление прошло.
+     */
+    private void remove(Slot slot) {
+        if (entries.remove(slot.key, slot)) {
+            unindex(slot);
+        }
+    }
+
+    private void index(Slot slot) {
+        switch (slot.key) {
+            case Popular ignored -> {
+                if (slot.partial) {
+                    partialPopular.add(slot);
+                } else {
+                    popularByMinLikes.add(slot);
+                }
+                for (long member : slot.members) {
+                    link(byFilm, member, slot);
+                }
+            }
+            case Friends key -> {
+                link(byParam, key.userId(), slot);
+                for (long member : slot.members) {
+                    link(byMember, member, slot);
+                }
+            }
+            case CommonFriends key -> {
+                link(byParam, key.userId(), slot);
+                link(byParam, key.otherId(), slot);
+                for (long member : slot.members) {
+                    link(byMember, member, slot);
+                }
+            }
+        }
+    }
+
+    private void unindex(Slot slot) {
+        switch (slot.key) {
+            case Popular ignored -> {
+                if (slot.partial) {
+                    partialPopular.remove(slot);
+                } else {
+                    popularByMinLikes.remove(slot);
+                }
+                for (long member : slot.members) {
+                    unlink(byFilm, member, slot);
+                }
+            }
+            case Friends key -> {
+                unlink(byParam, key.userId(), slot);
+                for (long member : slot.members) {
+                    unlink(byMember, member, slot);
+                }
+            }
+            case CommonFriends key -> {
+                unlink(byParam, key.userId(), slot);
+                unlink(byParam, key.otherId(), slot);
+                for (long member : slot.members) {
+                    unlink(byMember, member, slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * compute держит ячейку id, поэтому опустевшее множество не пропадёт из индекса в момент добавления в него.
+     */
+    private static void link(Map<Long, Set<Slot>> index, long id, Slot slot) {
+        index.compute(id, (ignored, slots) -> {
+            Set<Slot> updated = slots == null ? ConcurrentHashMap.newKeySet(2) : slots;
+            updated.add(slot);
+            return updated;
+        });
+    }
+
+    private static void unlink(Map<Long, Set<Slot>> index, long id, Slot slot) {
+        index.computeIfPresent(id, (ignored, slots) -> {
+            slots.remove(slot);
+            return slots.isEmpty() ? null : slots;
+        });
+    }
+
+    private static final class Slot {
+        private final Key key;
+        private final CachedResponse response;
+        private final long[] members;
+        private final long minLikes;
+        private final boolean partial;
+        // порядок записей с равным minLikes в popularByMinLikes; сами записи сравниваются по ссылке
+        private final long sequence;
+        private volatile boolean referenced;
+
+        private Slot(Key key, CachedResponse response, long[] members, long minLikes, boolean partial,
+                     long sequence) {
+            this.key = key;
+            this.response = response;
+            this.members = members;
+            this.minLikes = minLikes;
+            this.partial = partial;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Граница для headSet: не меньше любой записи с minLikes, не большим likes.
+         */
+        private static Slot probe(long likes) {
+            return new Slot(null, null, NONE, likes, false, Long.MAX_VALUE);
+        }
+
+        /**
+         * Метка обращения пишется, только если её ещё нет, чтобы частые попадания не гоняли строку кэша процессора.
+         */
+        private void touch() {
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+
+        private boolean contains(long id) {
+            return Arrays.binarySearch(members, id) >= 0;
+        }
+    }
+
+    /**
+     * Загрузка, идущая без блокировки: изменения, случившиеся за время сборки ответа.
+     */
+    private static final class Load {
+        private final Key key;
+        private final Queue<Predicate<Slot>> changes = new ConcurrentLinkedQueue<>();
+
+        private Load(Key key) {
+            this.key = key;
+        }
+    }
+}
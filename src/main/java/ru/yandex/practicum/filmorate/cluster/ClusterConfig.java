@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Разбиение хранилищ по узлам. Хранилища-маршрутизаторы объявлены @Primary и подменяют в сервисах обычные
+ * хранилища, сервисы при этом не меняются.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardTransport shardTransport(@Value("${filmorate.cluster.nodes}") int nodes) {
+        return LoopbackTransport.inMemory(nodes);
+    }
+
+    @Bean
+    public ShardRouter shardRouter(ShardTransport transport,
+                                   @Value("${filmorate.cluster.virtual-nodes}") int virtualNodes) {
+        return new ShardRouter(new ConsistentHashRing(transport.size(), virtualNodes), transport);
+    }
+
+    @Bean
+    @Primary
+    public ShardedFilmStorage shardedFilmStorage(ShardRouter router) {
+        return new ShardedFilmStorage(router);
+    }
+
+    @Bean
+    @Primary
+    public ShardedUserStorage shardedUserStorage(ShardRouter router) {
+        return new ShardedUserStorage(router);
+    }
+
+    @Bean
+    @Primary
+    public ShardedLikeStorage shardedLikeStorage(ShardRouter router) {
+        return new ShardedLikeStorage(router);
+    }
+
+    @Bean
+    @Primary
+    public ShardedFriendshipStorage shardedFriendshipStorage(ShardRouter router) {
+        return new ShardedFriendshipStorage(router);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.util.Arrays;
+
+/**
+ * Кольцо согласованного хеширования: у каждого узла virtualNodes точек на кольце, id принадлежит узлу первой
+ * точки не меньше хеша id. Виртуальные точки выравнивают доли узлов, а при добавлении узла к нему переезжает
+ * примерно 1/N id — остальные остаются на прежних узлах.
+ */
+public class ConsistentHashRing {
+    private static final long POINT_SEED = 0x5DEECE66DL;
+
+    private final int nodeCount;
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashRing(int nodeCount, int virtualNodes) {
+        if (nodeCount <= 0 || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Число узлов и виртуальных точек должно быть положительным");
+        }
+        this.nodeCount = nodeCount;
+        int size = nodeCount * virtualNodes;
+        long[] hashes = new long[size];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                int index = node * virtualNodes + replica;
+                hashes[index] = hash(((long) node << 32 | replica) ^ POINT_SEED);
+            }
+        }
+        Integer[] order = new Integer[size];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        points = new long[size];
+        owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    public int owner(long id) {
+        int index = Arrays.binarySearch(points, hash(id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * Перемешивание splitmix64: соседние id расходятся по всему кольцу.
+     */
+    static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
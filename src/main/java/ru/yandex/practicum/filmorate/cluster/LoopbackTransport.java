@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Узлы внутри одной JVM: каждый запрос выполняется в отдельном виртуальном потоке, как если бы его принял
+ * обработчик удалённого узла, поэтому запросы к разным узлам при scatter-gather идут параллельно.
+ * Сериализации нет — узлы отдают свои объекты как есть.
+ */
+public class LoopbackTransport implements ShardTransport {
+    private final List<Shard> shards;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("shard-request-", 0).factory());
+
+    public LoopbackTransport(List<Shard> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    public static LoopbackTransport inMemory(int nodes) {
+        return new LoopbackTransport(IntStream.range(0, nodes).mapToObj(Shard::inMemory).toList());
+    }
+
+    @Override
+    public int size() {
+        return shards.size();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> send(int node, Function<Shard, T> request) {
+        Shard shard = shards.get(node);
+        return CompletableFuture.supplyAsync(() -> request.apply(shard), executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
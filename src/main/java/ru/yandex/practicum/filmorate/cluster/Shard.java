@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Хранилища одного узла. Фильмы и их лайки лежат на узле, которому кольцо отдаёт id фильма; пользователи и их
+ * списки друзей — на узле id пользователя.
+ */
+public record Shard(int node, FilmStorage films, UserStorage users, LikeStorage likes,
+                    FriendshipStorage friendships) {
+
+    public static Shard inMemory(int node) {
+        return new Shard(node, new InMemoryFilmStorage(), new InMemoryUserStorage(), new InMemoryLikeStorage(),
+                new InMemoryFriendshipStorage());
+    }
+}
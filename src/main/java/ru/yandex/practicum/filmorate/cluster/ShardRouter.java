@@ -0,0 +1,189 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Маршрутизация операций хранилищ: запрос по id уходит узлу-владельцу, запрос без id рассылается всем узлам
+ * одновременно, а ответы собираются (scatter-gather). Ошибка узла пробрасывается вызывающему как есть.
+ */
+public class ShardRouter {
+    private final ConsistentHashRing ring;
+    private final ShardTransport transport;
+
+    public ShardRouter(ConsistentHashRing ring, ShardTransport transport) {
+        if (ring.size() != transport.size()) {
+            throw new IllegalArgumentException("Число узлов кольца и транспорта не совпадает");
+        }
+        this.ring = ring;
+        this.transport = transport;
+    }
+
+    public int owner(long id) {
+        return ring.owner(id);
+    }
+
+    public int size() {
+        return ring.size();
+    }
+
+    public <T> T call(long id, Function<Shard, T> request) {
+        return callNode(ring.owner(id), request);
+    }
+
+    public <T> T callNode(int node, Function<Shard, T> request) {
+        return await(transport.send(node, request));
+    }
+
+    public <T> CompletableFuture<T> send(long id, Function<Shard, T> request) {
+        return transport.send(ring.owner(id), request);
+    }
+
+    /**
+     * Запрос всем узлам параллельно; ответы в порядке номеров узлов.
+     */
+    public <T> List<T> scatter(Function<Shard, T> request) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(size());
+        for (int node = 0; node < size(); node++) {
+            futures.add(transport.send(node, request));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    /**
+     * Раскладывает записи по узлам-владельцам: элемент списка с номером узла — записи этого узла в исходном порядке.
+     */
+    public <T> List<List<T>> partition(List<T> items, ToLongFunction<T> id) {
+        List<List<T>> parts = new ArrayList<>(size());
+        for (int node = 0; node < size(); node++) {
+            parts.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            parts.get(ring.owner(id.applyAsLong(item))).add(item);
+        }
+        return parts;
+    }
+
+    /**
+     * Пакетное чтение по id: каждый узел получает один запрос со всеми своими id, ответы собираются в порядке ids.
+     * fetch возвращает найденные записи в порядке переданных ему id, пропуская отсутствующие.
+     */
+    public <T> List<T> gather(long[] ids, BiFunction<Shard, long[], List<T>> fetch, ToLongFunction<T> id) {
+        int[] nodes = new int[ids.length];
+        int[] counts = new int[size()];
+        for (int i = 0; i < ids.length; i++) {
+            nodes[i] = ring.owner(ids[i]);
+            counts[nodes[i]]++;
+        }
+        long[][] parts = new long[size()][];
+        for (int node = 0; node < size(); node++) {
+            parts[node] = new long[counts[node]];
+            counts[node] = 0;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            parts[nodes[i]][counts[nodes[i]]++] = ids[i];
+        }
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(size());
+        for (int node = 0; node < size(); node++) {
+            long[] part = parts[node];
+            futures.add(part.length == 0
+                    ? CompletableFuture.completedFuture(List.of())
+                    : transport.send(node, shard -> fetch.apply(shard, part)));
+        }
+        List<List<T>> answers = new ArrayList<>(futures.size());
+        for (CompletableFuture<List<T>> future : futures) {
+            answers.add(await(future));
+        }
+        int[] positions = new int[size()];
+        List<T> found = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            List<T> answer = answers.get(nodes[i]);
+            int position = positions[nodes[i]];
+            if (position < answer.size() && id.applyAsLong(answer.get(position)) == ids[i]) {
+                found.add(answer.get(position));
+                positions[nodes[i]]++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Слияние отсортированных ответов узлов: первые limit элементов в порядке order.
+     */
+    public static <T> List<T> merge(List<? extends List<T>> sorted, Comparator<? super T> order, int limit) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(a.head(), b.head()));
+        for (List<T> list : sorted) {
+            if (!list.isEmpty()) {
+                heads.add(new Cursor<>(list));
+            }
+        }
+        List<T> result = new ArrayList<>(Math.min(limit, 1024));
+        while (!heads.isEmpty() && result.size() < limit) {
+            Cursor<T> cursor = heads.poll();
+            result.add(cursor.head());
+            if (++cursor.position < cursor.list.size()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Представление коллекций всех узлов одной коллекцией без копирования.
+     */
+    public static <T> Collection<T> concat(List<? extends Collection<T>> parts) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return parts.stream().flatMap(Collection::stream).iterator();
+            }
+
+            @Override
+            public int size() {
+                return parts.stream().mapToInt(Collection::size).sum();
+            }
+        };
+    }
+
+    /**
+     * Ожидание ответа узла; ошибка операции на узле пробрасывается без обёртки CompletionException.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> list;
+        private int position;
+
+        private Cursor(List<T> list) {
+            this.list = list;
+        }
+
+        private T head() {
+            return list.get(position);
+        }
+    }
+}
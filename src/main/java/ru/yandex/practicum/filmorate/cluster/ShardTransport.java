@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Доставка запроса узлу и ответа обратно. Запрос — операция над хранилищами узла; ошибка операции
+ * (например, NotFoundException) завершает future этим же исключением.
+ */
+public interface ShardTransport extends AutoCloseable {
+    int size();
+
+    <T> CompletableFuture<T> send(int node, Function<Shard, T> request);
+
+    @Override
+    void close();
+}
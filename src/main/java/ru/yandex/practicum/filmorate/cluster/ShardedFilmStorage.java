@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+
+/**
+ * Фильмы, разложенные по узлам по id. id выдаёт этот узел-маршрутизатор, а на узел-владелец фильм попадает
+ * уже с id, как при восстановлении. Выборки по диапазонам спрашивают у каждого узла его первые limit фильмов
+ * и сливают ответы.
+ */
+@Slf4j
+public class ShardedFilmStorage implements FilmStorage {
+    private static final Comparator<Film> BY_ID = Comparator.comparing(Film::getId);
+    private static final Comparator<Film> BY_RELEASE_DATE =
+            Comparator.comparing(Film::getReleaseDate).thenComparing(Film::getId);
+    private static final Comparator<Film> BY_DURATION =
+            Comparator.comparing(Film::getDuration).thenComparing(Film::getId);
+
+    private final ShardRouter router;
+    private final AtomicLong idGenerator = new AtomicLong(0);
+
+    public ShardedFilmStorage(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Film addFilm(Film film, Consumer<Film> beforePublish) {
+        long id = idGenerator.incrementAndGet();
+        film.setId(id);
+        beforePublish.accept(film);
+        router.call(id, shard -> shard.films().restoreFilm(film));
+        log.info("Добавлен фильм '{}' с id={} на узел {}", film.getName(), id, router.owner(id));
+        return film;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> batch, Consumer<Film> beforePublish) {
+        long first = idGenerator.getAndAdd(batch.size()) + 1;
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(first + i);
+        }
+        batch.forEach(beforePublish);
+        List<List<Film>> parts = router.partition(batch, Film::getId);
+        router.scatter(shard -> {
+            parts.get(shard.node()).forEach(shard.films()::restoreFilm);
+            return null;
+        });
+        log.info("Добавлено фильмов: {}", batch.size());
+        return batch;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        if (film.getId() == null) {
+            throw new NotFoundException("Фильм с id null не найден");
+        }
+        return router.call(film.getId(), shard -> shard.films().updateFilm(film));
+    }
+
+    @Override
+    public List<Film> updateFilms(List<Film> batch) {
+        for (Film film : batch) {
+            if (film.getId() == null) {
+                throw new NotFoundException("Фильм с id null не найден");
+            }
+        }
+        List<List<Film>> parts = router.partition(batch, Film::getId);
+        router.scatter(shard -> shard.films().updateFilms(parts.get(shard.node())));
+        return batch;
+    }
+
+    @Override
+    public Film restoreFilm(Film film) {
+        idGenerator.accumulateAndGet(film.getId(), Math::max);
+        return router.call(film.getId(), shard -> shard.films().restoreFilm(film));
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        return ShardRouter.concat(router.scatter(shard -> shard.films().getAllFilms()));
+    }
+
+    @Override
+    public Optional<Film> deleteFilm(long id) {
+        return router.call(id, shard -> shard.films().deleteFilm(id));
+    }
+
+    @Override
+    public Optional<Film> getFilmById(Long id) {
+        return id == null ? Optional.empty() : router.call(id, shard -> shard.films().getFilmById(id));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(long[] ids) {
+        return router.gather(ids, (shard, part) -> shard.films().getFilmsByIds(part), Film::getId);
+    }
+
+    @Override
+    public boolean containsFilm(long id) {
+        return router.call(id, shard -> shard.films().containsFilm(id));
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(long afterId, int limit) {
+        return ShardRouter.merge(router.scatter(shard -> shard.films().getFilmsAfter(afterId, limit)), BY_ID, limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByReleaseDate(LocalDate from, LocalDate to, Predicate<Film> filter, int limit) {
+        return ShardRouter.merge(router.scatter(shard -> shard.films().getFilmsByReleaseDate(from, to, filter, limit)),
+                BY_RELEASE_DATE, limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByDuration(Integer min, Integer max, Predicate<Film> filter, int limit) {
+        return ShardRouter.merge(router.scatter(shard -> shard.films().getFilmsByDuration(min, max, filter, limit)),
+                BY_DURATION, limit);
+    }
+
+    @Override
+    public LongStream getFilmIds() {
+        return router.scatter(shard -> shard.films().getFilmIds().toArray()).stream().flatMapToLong(LongStream::of);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Список друзей пользователя лежит на его узле. Дружба записывается на узлы обоих пользователей параллельно;
+ * если они на разных узлах, каждый узел хранит её целиком, но читается только сторона своего пользователя.
+ * Общие друзья двух пользователей с разных узлов — scatter-gather: оба списка запрашиваются одновременно
+ * и пересекаются здесь.
+ */
+public class ShardedFriendshipStorage implements FriendshipStorage {
+    private final ShardRouter router;
+    private final LongAdder edgeCount = new LongAdder();
+
+    public ShardedFriendshipStorage(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public boolean addFriendship(long userId, long friendId) {
+        boolean added = onBothNodes(userId, friendId, shard -> shard.friendships().addFriendship(userId, friendId));
+        if (added) {
+            edgeCount.increment();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeFriendship(long userId, long friendId) {
+        boolean removed = onBothNodes(userId, friendId,
+                shard -> shard.friendships().removeFriendship(userId, friendId));
+        if (removed) {
+            edgeCount.decrement();
+        }
+        return removed;
+    }
+
+    /**
+     * Снимается список на узле пользователя; копии дружбы на узлах друзей снимает removeFriendship.
+     */
+    @Override
+    public long[] removeFriendList(long userId) {
+        return router.call(userId, shard -> shard.friendships().removeFriendList(userId));
+    }
+
+    @Override
+    public long[] getFriendIds(long userId) {
+        return router.call(userId, shard -> shard.friendships().getFriendIds(userId));
+    }
+
+    @Override
+    public long[] getCommonFriendIds(long userId, long otherId) {
+        if (router.owner(userId) == router.owner(otherId)) {
+            return router.call(userId, shard -> shard.friendships().getCommonFriendIds(userId, otherId));
+        }
+        CompletableFuture<long[]> other = router.send(otherId, shard -> shard.friendships().getFriendIds(otherId));
+        long[] friends = getFriendIds(userId);
+        long[] otherFriends = ShardRouter.await(other);
+        return SortedLongSet.intersect(friends, otherFriends);
+    }
+
+    @Override
+    public int getFriendCount(long userId) {
+        return router.call(userId, shard -> shard.friendships().getFriendCount(userId));
+    }
+
+    @Override
+    public boolean areFriends(long userId, long friendId) {
+        return router.call(userId, shard -> shard.friendships().areFriends(userId, friendId));
+    }
+
+    @Override
+    public long getFriendshipCount() {
+        return edgeCount.sum();
+    }
+
+    /**
+     * Операция на узлах обоих пользователей; результат — true, если изменение было хотя бы на одном из них.
+     */
+    private boolean onBothNodes(long userId, long friendId, Function<Shard, Boolean> request) {
+        int node = router.owner(userId);
+        int friendNode = router.owner(friendId);
+        if (node == friendNode) {
+            return router.callNode(node, request);
+        }
+        CompletableFuture<Boolean> friendSide = router.send(friendId, request);
+        boolean result = router.callNode(node, request);
+        return ShardRouter.await(friendSide) || result;
+    }
+}
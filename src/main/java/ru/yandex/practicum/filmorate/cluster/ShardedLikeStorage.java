@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Лайки лежат на узле фильма, вместе с его счётчиком популярности. Топ популярных собирается scatter-gather:
+ * каждый узел отдаёт свои count самых популярных фильмов с числом лайков, ответы сливаются. Фильм целиком живёт
+ * на одном узле, поэтому слитый топ точный. Лайки пользователя разбросаны по узлам фильмов и собираются со всех.
+ */
+public class ShardedLikeStorage implements LikeStorage {
+    private static final Comparator<Ranked> BY_LIKES =
+            Comparator.comparingInt(Ranked::likes).reversed().thenComparingLong(Ranked::filmId);
+
+    private final ShardRouter router;
+
+    public ShardedLikeStorage(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return router.call(filmId, shard -> shard.likes().addLike(filmId, userId));
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        return router.call(filmId, shard -> shard.likes().removeLike(filmId, userId));
+    }
+
+    @Override
+    public long[] removeFilmLikes(long filmId) {
+        return router.call(filmId, shard -> shard.likes().removeFilmLikes(filmId));
+    }
+
+    @Override
+    public long[] removeUserLikes(long userId) {
+        long[] merged = router.scatter(shard -> shard.likes().removeUserLikes(userId)).stream()
+                .flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    @Override
+    public long[] getLikes(long filmId) {
+        return router.call(filmId, shard -> shard.likes().getLikes(filmId));
+    }
+
+    @Override
+    public int getLikeCount(long filmId) {
+        return router.call(filmId, shard -> shard.likes().getLikeCount(filmId));
+    }
+
+    @Override
+    public long[] getLikedFilmIds(long userId) {
+        List<long[]> parts = router.scatter(shard -> shard.likes().getLikedFilmIds(userId));
+        long[] merged = parts.stream().flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    @Override
+    public int getLikedFilmCount(long userId) {
+        return router.scatter(shard -> shard.likes().getLikedFilmCount(userId)).stream()
+                .mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public long getLikeEdgeCount() {
+        return router.scatter(shard -> shard.likes().getLikeEdgeCount()).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<Long> getTopFilmIds(int count) {
+        List<List<Ranked>> tops = router.scatter(shard -> {
+            List<Long> ids = shard.likes().getTopFilmIds(count);
+            List<Ranked> ranked = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                ranked.add(new Ranked(id, shard.likes().getLikeCount(id)));
+            }
+            // счётчики могли измениться между двумя чтениями — порядок восстанавливается по прочитанным числам
+            ranked.sort(BY_LIKES);
+            return ranked;
+        });
+        return ShardRouter.merge(tops, BY_LIKES, count).stream().map(Ranked::filmId).toList();
+    }
+
+    private record Ranked(long filmId, int likes) {
+    }
+}
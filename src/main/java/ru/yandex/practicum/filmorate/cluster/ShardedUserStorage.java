@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UniqueIndex;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Пользователи, разложенные по узлам по id. Уникальность email и логина общая для всех узлов, поэтому их индексы
+ * живут здесь, на маршрутизаторе: значение занимается до отправки пользователя на узел-владелец.
+ */
+@Slf4j
+public class ShardedUserStorage implements UserStorage {
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+    private static final Comparator<User> BY_BIRTHDAY =
+            Comparator.comparing((User user) -> MonthDay.from(user.getBirthday())).thenComparing(User::getId);
+
+    private final ShardRouter router;
+    private final AtomicLong idGenerator = new AtomicLong(0);
+    private final UniqueIndex<User> emails;
+    private final UniqueIndex<User> logins;
+
+    public ShardedUserStorage(ShardRouter router) {
+        this.router = router;
+        emails = new UniqueIndex<>(User::getEmail, id -> getUserById(id).orElse(null));
+        logins = new UniqueIndex<>(User::getLogin, id -> getUserById(id).orElse(null));
+    }
+
+    @Override
+    public User addUser(User user, Consumer<User> beforePublish) {
+        long id = idGenerator.incrementAndGet();
+        String conflict = claim(user, id, null);
+        if (conflict != null) {
+            throw new ConflictException(conflict);
+        }
+        user.setId(id);
+        try {
+            beforePublish.accept(user);
+        } catch (RuntimeException e) {
+            unclaim(user, id);
+            throw e;
+        }
+        router.call(id, shard -> shard.users().restoreUser(user));
+        log.info("Создан пользователь {} с id={} на узле {}", user.getLogin(), id, router.owner(id));
+        return user;
+    }
+
+    @Override
+    public List<User> addUsers(List<User> batch, Consumer<User> beforePublish) {
+        long first = idGenerator.getAndAdd(batch.size()) + 1;
+        List<User> created = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.get(i);
+            if (claim(user, first + i, null) == null) {
+                user.setId(first + i);
+                created.add(user);
+            }
+        }
+        try {
+            created.forEach(beforePublish);
+        } catch (RuntimeException e) {
+            created.forEach(user -> unclaim(user, user.getId()));
+            throw e;
+        }
+        List<List<User>> parts = router.partition(created, User::getId);
+        router.scatter(shard -> {
+            parts.get(shard.node()).forEach(shard.users()::restoreUser);
+            return null;
+        });
+        log.info("Создано пользователей: {}", created.size());
+        return created;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        User previous = user.getId() == null ? null : getUserById(user.getId()).orElse(null);
+        if (previous == null) {
+            throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
+        }
+        String conflict = claim(user, user.getId(), previous);
+        if (conflict != null) {
+            throw new ConflictException(conflict);
+        }
+        router.call(user.getId(), shard -> shard.users().updateUser(user));
+        release(previous, user);
+        return user;
+    }
+
+    @Override
+    public User restoreUser(User user) {
+        User previous = getUserById(user.getId()).orElse(null);
+        String conflict = claim(user, user.getId(), previous);
+        if (conflict != null) {
+            log.warn("При восстановлении пользователя id={}: {}", user.getId(), conflict);
+        }
+        router.call(user.getId(), shard -> shard.users().restoreUser(user));
+        if (previous != null) {
+            release(previous, user);
+        }
+        idGenerator.accumulateAndGet(user.getId(), Math::max);
+        return user;
+    }
+
+    @Override
+    public Optional<User> deleteUser(long id) {
+        Optional<User> removed = router.call(id, shard -> shard.users().deleteUser(id));
+        removed.ifPresent(user -> {
+            emails.release(user.getEmail(), id);
+            logins.release(user.getLogin(), id);
+        });
+        return removed;
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        return ShardRouter.concat(router.scatter(shard -> shard.users().getAllUsers()));
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return id == null ? Optional.empty() : router.call(id, shard -> shard.users().getUserById(id));
+    }
+
+    @Override
+    public List<User> getUsersByIds(long[] ids) {
+        return router.gather(ids, (shard, part) -> shard.users().getUsersByIds(part), User::getId);
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        long id = emails.find(email);
+        return id == 0 ? Optional.empty() : getUserById(id);
+    }
+
+    @Override
+    public Optional<User> getUserByLogin(String login) {
+        long id = logins.find(login);
+        return id == 0 ? Optional.empty() : getUserById(id);
+    }
+
+    @Override
+    public List<User> getUsersAfter(long afterId, int limit) {
+        return ShardRouter.merge(router.scatter(shard -> shard.users().getUsersAfter(afterId, limit)), BY_ID, limit);
+    }
+
+    @Override
+    public List<User> getUsersByBirthday(MonthDay from, MonthDay to, int limit) {
+        return ShardRouter.merge(router.scatter(shard -> shard.users().getUsersByBirthday(from, to, limit)),
+                BY_BIRTHDAY, limit);
+    }
+
+    /**
+     * Резерв email и логина за id, как в InMemoryUserStorage; возвращает текст конфликта или null.
+     */
+    private void unclaim(User user, long id) {
+        emails.release(user.getEmail(), id);
+        logins.release(user.getLogin(), id);
+    }
+
+    private String claim(User user, long id, User previous) {
+        if (!emails.claim(user.getEmail(), id)) {
+            return "Пользователь с email " + user.getEmail() + " уже существует";
+        }
+        if (!logins.claim(user.getLogin(), id)) {
+            if (previous == null || !UniqueIndex.sameKey(previous.getEmail(), user.getEmail())) {
+                emails.release(user.getEmail(), id);
+            }
+            return "Пользователь с логином " + user.getLogin() + " уже существует";
+        }
+        return null;
+    }
+
+    private void release(User previous, User user) {
+        if (!UniqueIndex.sameKey(previous.getEmail(), user.getEmail())) {
+            emails.release(previous.getEmail(), user.getId());
+        }
+        if (!UniqueIndex.sameKey(previous.getLogin(), user.getLogin())) {
+            logins.release(previous.getLogin(), user.getId());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Потоковая обработка пакетных запросов: тело — JSON-массив, который читается по элементу и передаётся
+ * в сервис кусками по CHUNK_SIZE. Ответ — JSON-массив {"index", "id"} или {"index", "error"} на каждый элемент,
+ * он пишется в сокет после каждого куска, так что ни запрос, ни ответ целиком в памяти не держатся.
+ */
+@Slf4j
+@Component
+public class BatchRequestProcessor {
+    static final int CHUNK_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+
+    public BatchRequestProcessor(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> void process(InputStream body, HttpServletResponse response, Class<T> type,
+                            Function<List<T>, List<BatchResult>> handler) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(body);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new ValidationException("Тело пакетного запроса должно быть JSON-массивом");
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (parser; JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            Chunk<T> chunk = new Chunk<>();
+            long index = 0;
+            try {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    chunk.add(index++, read(parser, type));
+                    if (chunk.size() == CHUNK_SIZE) {
+                        chunk.flush(handler, generator);
+                    }
+                }
+                chunk.flush(handler, generator);
+            } catch (JsonProcessingException e) {
+                // после синтаксической ошибки продолжить разбор нельзя: обрабатываем уже прочитанное и завершаем
+                chunk.flush(handler, generator);
+                writeResult(generator, index, BatchResult.failed("Некорректный JSON: " + e.getOriginalMessage()));
+                log.warn("Пакетный запрос прерван на элементе {}: {}", index, e.getOriginalMessage());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private <T> Object read(JsonParser parser, Class<T> type) throws IOException {
+        JsonNode node = parser.readValueAsTree();
+        if (node == null || node.isNull()) {
+            return BatchResult.failed("Пустой элемент");
+        }
+        try {
+            return objectMapper.treeToValue(node, type);
+        } catch (JsonProcessingException e) {
+            return BatchResult.failed("Некорректный элемент: " + e.getOriginalMessage());
+        }
+    }
+
+    private static void writeResult(JsonGenerator generator, long index, BatchResult result) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("index", index);
+        if (result.getId() != null) {
+            generator.writeNumberField("id", result.getId());
+        }
+        if (result.getError() != null) {
+            generator.writeStringField("error", result.getError());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Кусок запроса: элементы, прошедшие разбор, уходят в сервис, а ошибки разбора остаются на своих позициях.
+     */
+    private static final class Chunk<T> {
+        private final List<Object> entries = new ArrayList<>(CHUNK_SIZE);
+        private final List<T> items = new ArrayList<>(CHUNK_SIZE);
+        private long firstIndex = -1;
+
+        @SuppressWarnings("unchecked")
+        void add(long index, Object entry) {
+            if (firstIndex < 0) {
+                firstIndex = index;
+            }
+            entries.add(entry);
+            if (!(entry instanceof BatchResult)) {
+                items.add((T) entry);
+            }
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        void flush(Function<List<T>, List<BatchResult>> handler, JsonGenerator generator) throws IOException {
+            if (entries.isEmpty()) {
+                return;
+            }
+            List<BatchResult> results = items.isEmpty() ? List.of() : handler.apply(items);
+            int next = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                Object entry = entries.get(i);
+                writeResult(generator, firstIndex + i,
+                        entry instanceof BatchResult parseError ? parseError : results.get(next++));
+            }
+            generator.flush();
+            entries.clear();
+            items.clear();
+            firstIndex = -1;
+        }
+    }
+}
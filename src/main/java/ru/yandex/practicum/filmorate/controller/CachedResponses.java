@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.wire.WireFormat;
+
+/**
+ * Отдача ответов из ResponseCache: если клиент прислал совпадающий If-None-Match, тело не передаётся вовсе.
+ * Формат выбирается по Accept, поэтому ответы помечены Vary: Accept.
+ */
+final class CachedResponses {
+
+    private CachedResponses() {
+    }
+
+    static ResponseEntity<byte[]> toResponseEntity(ResponseCache.CachedResponse response, String ifNoneMatch,
+                                                   WireFormat format) {
+        if (response.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(response.etag())
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .eTag(response.etag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(response.body());
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.EventBatch;
+import ru.yandex.practicum.filmorate.events.EventDispatcher;
+import ru.yandex.practicum.filmorate.events.EventRing;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Поток изменений лайков и дружбы. Потребитель хранит offset и продолжает с него после переподключения:
+ * в долгом опросе это nextOffset из ответа, в SSE — Last-Event-ID (id события, полученного последним).
+ * Без offset чтение начинается с конца потока, то есть только с новых событий.
+ */
+@RestController
+@RequestMapping("/events")
+public class EventController {
+    private static final long MAX_POLL_TIMEOUT = 60_000;
+
+    private final EventRing ring;
+    private final EventDispatcher dispatcher;
+    private final Duration streamTimeout;
+
+    public EventController(EventRing ring, EventDispatcher dispatcher,
+                           @Value("${filmorate.events.stream-timeout}") Duration streamTimeout) {
+        this.ring = ring;
+        this.dispatcher = dispatcher;
+        this.streamTimeout = streamTimeout;
+    }
+
+    /**
+     * Долгий опрос: ответ приходит, как только после offset появятся события, или через timeout мс пустым.
+     */
+    @GetMapping
+    public DeferredResult<EventBatch> poll(@RequestParam(required = false) Long offset,
+                                           @RequestParam(defaultValue = "1000") int limit,
+                                           @RequestParam(defaultValue = "30000") long timeout) {
+        if (limit <= 0) {
+            throw new ValidationException("Параметр limit должен быть положительным");
+        }
+        if (timeout <= 0 || timeout > MAX_POLL_TIMEOUT) {
+            throw new ValidationException("Параметр timeout должен быть от 1 до " + MAX_POLL_TIMEOUT);
+        }
+        long from = start(offset);
+        DeferredResult<EventBatch> result = new DeferredResult<>(timeout, () -> EventBatch.empty(from));
+        EventDispatcher.Subscription subscription = dispatcher.poll(from, limit, result::setResult);
+        result.onCompletion(subscription::cancel);
+        return result;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long offset,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        EventDispatcher.Subscription subscription = dispatcher.subscribe(
+                lastEventId != null ? lastEventId + 1 : start(offset), batch -> send(emitter, batch));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+
+    private long start(Long offset) {
+        if (offset == null) {
+            return ring.end();
+        }
+        if (offset < 0) {
+            throw new ValidationException("Параметр offset не может быть отрицательным");
+        }
+        return offset;
+    }
+
+    private static boolean send(SseEmitter emitter, EventBatch batch) {
+        try {
+            if (batch.missed() > 0) {
+                emitter.send(SseEmitter.event().name("missed").data(batch.missed()));
+            }
+            for (ChangeEvent event : batch.events()) {
+                emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.offset()))
+                        .name(event.type().name())
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
@@ -1,20 +1,48 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.service.DeletionService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.wire.WireFormat;
+import ru.yandex.practicum.filmorate.wire.WireFormats;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final FilmService filmService;
+    private final DeletionService deletionService;
+    private final NdjsonStream ndjson;
+    private final BatchRequestProcessor batchProcessor;
+    private final ResponseCache responseCache;
+    private final WireFormats wireFormats;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, DeletionService deletionService, ObjectMapper objectMapper,
+                          BatchRequestProcessor batchProcessor, ResponseCache responseCache, WireFormats wireFormats) {
         this.filmService = filmService;
+        this.deletionService = deletionService;
+        this.batchProcessor = batchProcessor;
+        this.responseCache = responseCache;
+        this.wireFormats = wireFormats;
+        this.ndjson = new NdjsonStream(objectMapper);
     }
 
     @PostMapping
@@ -27,9 +55,52 @@ public class FilmController {
         return filmService.updateFilm(film);
     }
 
+    @PostMapping("/batch")
+    public void createFilms(InputStream body, HttpServletResponse response) throws IOException {
+        batchProcessor.process(body, response, Film.class, filmService::addFilms);
+    }
+
+    @PutMapping("/batch")
+    public void updateFilms(InputStream body, HttpServletResponse response) throws IOException {
+        batchProcessor.process(body, response, Film.class, filmService::updateFilms);
+    }
+
+    @PutMapping("/likes/batch")
+    public void addLikes(InputStream body, HttpServletResponse response) throws IOException {
+        batchProcessor.process(body, response, Like.class, filmService::addLikes);
+    }
+
+    /**
+     * Без параметров — весь список, как раньше; с after/limit — страница по возрастанию id.
+     * Следующая страница запрашивается с after, равным id последнего элемента.
+     * С фильтрами releasedFrom/releasedTo (yyyy-MM-dd) и minDuration/maxDuration — первые limit подходящих фильмов
+     * по возрастанию даты релиза или, если фильтруется только продолжительность, по её возрастанию.
+     */
     @GetMapping
-    public Collection<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public Collection<Film> getAllFilms(@RequestParam(required = false) Long after,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                        LocalDate releasedFrom,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                        LocalDate releasedTo,
+                                        @RequestParam(required = false) Integer minDuration,
+                                        @RequestParam(required = false) Integer maxDuration) {
+        if (releasedFrom != null || releasedTo != null || minDuration != null || maxDuration != null) {
+            return filmService.findFilms(releasedFrom, releasedTo, minDuration, maxDuration,
+                    limit == null ? DEFAULT_PAGE_SIZE : limit);
+        }
+        if (after == null && limit == null) {
+            return filmService.getAllFilms();
+        }
+        return filmService.getFilmsPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    /**
+     * Весь каталог в NDJSON, страницами по возрастанию id.
+     */
+    @GetMapping(produces = NdjsonStream.MEDIA_TYPE)
+    public StreamingResponseBody streamFilms() {
+        return ndjson.of(filmService::getFilmsPage, Film::getId);
     }
 
     @GetMapping("/{id}")
@@ -38,6 +109,14 @@ public class FilmController {
     }
 
 
+    /**
+     * Фильм пропадает из ответов сразу; лайки многих пользователей снимаются уже после ответа, в фоне.
+     */
+    @DeleteMapping("/{id}")
+    public void deleteFilm(@PathVariable Long id) {
+        deletionService.deleteFilm(id);
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable Long id, @PathVariable Long userId) {
         filmService.addLike(id, userId);
@@ -48,8 +127,47 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    /**
+     * Поиск по названию и описанию; по умолчанию последнее слово дополняется как префикс.
+     */
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String query,
+                                  @RequestParam(defaultValue = "20") int limit,
+                                  @RequestParam(defaultValue = "true") boolean prefix,
+                                  @RequestParam(defaultValue = "false") boolean boostByLikes) {
+        return filmService.searchFilms(query, limit, prefix, boostByLikes);
+    }
+
+    /**
+     * Топ по лайкам за окно hour, day или week.
+     */
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "day") String window,
+                                       @RequestParam(defaultValue = "10") int count) {
+        return filmService.getTrendingFilms(window, count);
+    }
+
+    /**
+     * Ответ берётся из кэша готового тела в формате из Accept (JSON, CBOR или Smile); ETag позволяет клиенту,
+     * опрашивающему список, получать 304 без тела.
+     */
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+    public ResponseEntity<byte[]> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                  String ifNoneMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                  String accept) {
+        WireFormat format = WireFormat.negotiate(accept);
+        Supplier<ResponseCache.Loaded> loader = () -> {
+            List<Film> films = filmService.getPopularFilms(count);
+            long[] ids = films.stream().mapToLong(Film::getId).toArray();
+            long minLikes = ids.length == 0 ? 0 : filmService.getLikeCount(ids[ids.length - 1]);
+            return new ResponseCache.Loaded(wireFormats.write(format, films), ids, minLikes, films.size() < count);
+        };
+        // списки длиннее страницы собираются без кэша: иначе, перебирая count, клиент забил бы кэш разными ключами
+        ResponseCache.CachedResponse response = count <= FilmService.MAX_PAGE_SIZE
+                ? responseCache.get(new ResponseCache.Popular(count, format), loader)
+                : ResponseCache.CachedResponse.of(loader.get().body());
+        return CachedResponses.toResponseEntity(response, ifNoneMatch, format);
     }
 }
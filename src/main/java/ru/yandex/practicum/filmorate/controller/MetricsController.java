@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+    private final MetricsRegistry metrics;
+
+    public MetricsController(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Задержки операций сервисов в микросекундах (count, mean, p50, p90, p99, p99.9, max) и размеры хранилищ.
+     */
+    @GetMapping
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("operations", metrics.histogramSnapshots());
+        result.put("storage", metrics.gaugeValues());
+        return result;
+    }
+}
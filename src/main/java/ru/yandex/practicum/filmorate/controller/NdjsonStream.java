@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * NDJSON: по одному объекту в строке, выдача страницами прямо в сокет, так что память на запрос не зависит
+ * от размера выборки. Страницы идут по возрастанию id: следующая начинается после id последнего объекта,
+ * выдача заканчивается на неполной странице.
+ */
+final class NdjsonStream {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+    private static final int PAGE_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    NdjsonStream(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // сброс в сокет — раз на страницу, а не после каждого объекта
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Страница: не больше limit объектов с id больше afterId, по возрастанию id.
+     */
+    interface Pages<T> {
+        List<T> after(long afterId, int limit);
+    }
+
+    <T> StreamingResponseBody of(Pages<T> pages, ToLongFunction<T> id) {
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                long after = 0;
+                List<T> page;
+                do {
+                    page = pages.after(after, PAGE_SIZE);
+                    for (T value : page) {
+                        writer.writeValue(generator, value);
+                        generator.writeRaw('\n');
+                        after = id.applyAsLong(value);
+                    }
+                    generator.flush();
+                } while (page.size() == PAGE_SIZE);
+            }
+        };
+    }
+}
@@ -1,19 +1,52 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.service.DeletionService;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.wire.WireFormat;
+import ru.yandex.practicum.filmorate.wire.WireFormats;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.Collection;
-import java.util.Set;
+import java.util.List;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final DeletionService deletionService;
+    private final NdjsonStream ndjson;
+    private final BatchRequestProcessor batchProcessor;
+    private final ResponseCache responseCache;
+    private final WireFormats wireFormats;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, DeletionService deletionService,
+                          ObjectMapper objectMapper, BatchRequestProcessor batchProcessor, ResponseCache responseCache,
+                          WireFormats wireFormats) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.deletionService = deletionService;
+        this.batchProcessor = batchProcessor;
+        this.responseCache = responseCache;
+        this.wireFormats = wireFormats;
+        this.ndjson = new NdjsonStream(objectMapper);
     }
 
     @PostMapping
@@ -26,10 +59,58 @@ public class UserController {
         return userService.updateUser(user);
     }
 
+    @PostMapping("/batch")
+    public void createUsers(InputStream body, HttpServletResponse response) throws IOException {
+        batchProcessor.process(body, response, User.class, userService::addUsers);
+    }
+
+    @PutMapping("/batch")
+    public void updateUsers(InputStream body, HttpServletResponse response) throws IOException {
+        batchProcessor.process(body, response, User.class, userService::updateUsers);
+    }
+
+    @PutMapping("/friends/batch")
+    public void addFriends(InputStream body, HttpServletResponse response) throws IOException {
+        batchProcessor.process(body, response, Friendship.class, userService::addFriends);
+    }
 
+
+    /**
+     * Без параметров — весь список, как раньше; с after/limit — страница по возрастанию id.
+     * Следующая страница запрашивается с after, равным id последнего элемента.
+     * С birthday (yyyy-MM-dd) — пользователи, у которых день рождения в один из days дней начиная с этой даты.
+     */
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.getAllUsers();
+    public Collection<User> getAllUsers(@RequestParam(required = false) Long after,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                        LocalDate birthday,
+                                        @RequestParam(defaultValue = "1") int days) {
+        if (birthday != null) {
+            return userService.getUsersByBirthday(birthday, days, limit == null ? DEFAULT_PAGE_SIZE : limit);
+        }
+        if (after == null && limit == null) {
+            return userService.getAllUsers();
+        }
+        return userService.getUsersPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    /**
+     * Все пользователи в NDJSON, страницами по возрастанию id.
+     */
+    @GetMapping(produces = NdjsonStream.MEDIA_TYPE)
+    public StreamingResponseBody streamUsers() {
+        return ndjson.of(userService::getUsersPage, User::getId);
+    }
+
+    @GetMapping("/by-email")
+    public User getUserByEmail(@RequestParam String email) {
+        return userService.getUserByEmail(email);
+    }
+
+    @GetMapping("/by-login")
+    public User getUserByLogin(@RequestParam String login) {
+        return userService.getUserByLogin(login);
     }
 
     @GetMapping("/{id}")
@@ -37,6 +118,14 @@ public class UserController {
         return userService.getUserById(id);
     }
 
+    /**
+     * Пользователь пропадает из ответов сразу; дружба и лайки «звезды» снимаются уже после ответа, в фоне.
+     */
+    @DeleteMapping("/{id}")
+    public void deleteUser(@PathVariable Long id) {
+        deletionService.deleteUser(id);
+    }
+
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable Long id, @PathVariable Long friendId) {
         userService.addFriend(id, friendId);
@@ -47,14 +136,48 @@ public class UserController {
         userService.removeFriend(id, friendId);
     }
 
+    /**
+     * Списки друзей и общих друзей отдаются из кэша готового тела с ETag, как и популярные фильмы.
+     */
     @GetMapping("/{id}/friends")
-    public Set<User> getFriends(@PathVariable Long id) {
-        return userService.getFriends(id);
+    public ResponseEntity<byte[]> getFriends(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                             String ifNoneMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                             String accept) {
+        WireFormat format = WireFormat.negotiate(accept);
+        ResponseCache.CachedResponse response = responseCache.get(new ResponseCache.Friends(id, format),
+                () -> load(userService.getFriends(id), format));
+        return CachedResponses.toResponseEntity(response, ifNoneMatch, format);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public Set<User> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId) {
-        return userService.getCommonFriends(id, otherId);
+    public ResponseEntity<byte[]> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                   String ifNoneMatch,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                   String accept) {
+        WireFormat format = WireFormat.negotiate(accept);
+        ResponseCache.CachedResponse response = responseCache.get(
+                new ResponseCache.CommonFriends(id, otherId, format),
+                () -> load(userService.getCommonFriends(id, otherId), format));
+        return CachedResponses.toResponseEntity(response, ifNoneMatch, format);
+    }
+
+    @GetMapping("/{id}/friends/recommendations")
+    public List<FriendRecommendation> getFriendRecommendations(@PathVariable Long id,
+                                                               @RequestParam(defaultValue = "10") int limit) {
+        return userService.getFriendRecommendations(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getFilmRecommendations(@PathVariable Long id, @RequestParam(defaultValue = "10") int limit) {
+        return filmService.getRecommendations(id, limit);
+    }
+
+    private ResponseCache.Loaded load(List<User> users, WireFormat format) {
+        return ResponseCache.Loaded.of(wireFormats.write(format, users),
+                users.stream().mapToLong(User::getId).toArray());
     }
 
 }
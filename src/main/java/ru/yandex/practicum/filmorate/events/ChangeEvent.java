@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.events;
+
+/**
+ * Изменение лайка или дружбы либо удаление фильма или пользователя. offset — номер события в потоке, по нему
+ * потребитель продолжает чтение. Для лайков subjectId — фильм, objectId — пользователь; для дружбы — пользователь
+ * и его друг; для удаления subjectId — удалённый фильм или пользователь, objectId — 0. Его лайки и дружба
+ * снимаются в фоне без отдельных событий: FILM_DELETED и USER_DELETED означают, что снимаются все его рёбра.
+ */
+public record ChangeEvent(long offset, Type type, long subjectId, long objectId, long timestamp) {
+
+    public enum Type {
+        LIKE_ADDED,
+        LIKE_REMOVED,
+        FRIEND_ADDED,
+        FRIEND_REMOVED,
+        FILM_DELETED,
+        USER_DELETED
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.events;
+
+import java.util.List;
+
+/**
+ * Пачка событий для потребителя: следующий запрос продолжается с nextOffset.
+ * missed — сколько событий потребитель не застал: они вытеснены из буфера, пока он отставал.
+ */
+public record EventBatch(List<ChangeEvent> events, long nextOffset, long missed) {
+
+    public static EventBatch empty(long offset) {
+        return new EventBatch(List.of(), offset, 0);
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Раздача событий из EventRing подписчикам пачками. Издатели никого не будят: раз в flush-interval поток
+ * event-dispatcher проверяет конец буфера и каждому подписчику, отставшему от него, отправляет всё накопленное
+ * пачками не больше batchSize событий. Отправка идёт в виртуальном потоке, по одной на подписчика
+ * одновременно, так что медленный клиент задерживает только себя.
+ * <p>
+ * Долгий опрос — одноразовая подписка: после первой непустой пачки она снимается.
+ */
+@Slf4j
+public class EventDispatcher implements AutoCloseable {
+    private final EventRing ring;
+    private final int batchSize;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("event-dispatcher").daemon().unstarted(runnable));
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("event-sender-", 0).factory());
+
+    public EventDispatcher(EventRing ring, int batchSize) {
+        this.ring = ring;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Подписчик, получающий пачки, пока sink возвращает true.
+     */
+    public Subscription subscribe(long offset, Predicate<EventBatch> sink) {
+        Subscription subscription = new Subscription(offset, batchSize, sink, false);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Долгий опрос: если события уже есть, callback получает их сразу, иначе — с ближайшей раздачей после
+     * их появления. Отказ от ожидания (таймаут запроса) — cancel у возвращённой подписки.
+     */
+    public Subscription poll(long offset, int limit, Predicate<EventBatch> callback) {
+        int max = Math.min(limit, batchSize);
+        EventBatch ready = ring.read(offset, max);
+        Subscription subscription = new Subscription(ready.nextOffset(), max, callback, true);
+        if (!ready.events().isEmpty() || ready.missed() > 0) {
+            subscription.cancel();
+            callback.test(ready);
+            return subscription;
+        }
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void start(Duration interval) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                dispatch();
+            } catch (RuntimeException e) {
+                log.error("Не удалось раздать события подписчикам", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Один проход раздачи; вызывается потоком event-dispatcher.
+     */
+    void dispatch() {
+        long end = ring.end();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.offset < end && subscription.sending.compareAndSet(false, true)) {
+                senders.execute(subscription::send);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        subscriptions.clear();
+    }
+
+    public final class Subscription {
+        private final int limit;
+        private final Predicate<EventBatch> sink;
+        private final boolean once;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long offset;
+        private volatile boolean cancelled;
+
+        private Subscription(long offset, int limit, Predicate<EventBatch> sink, boolean once) {
+            this.offset = offset;
+            this.limit = limit;
+            this.sink = sink;
+            this.once = once;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Отправляет пачки, пока подписчик не догонит конец буфера: так пропускная способность подписчика
+         * не ограничена batchSize событиями за flush-interval.
+         */
+        private void send() {
+            try {
+                while (!cancelled) {
+                    EventBatch batch = ring.read(offset, limit);
+                    if (batch.events().isEmpty() && batch.missed() == 0) {
+                        return;
+                    }
+                    offset = batch.nextOffset();
+                    if (once) {
+                        // как и при ответе сразу в poll: к вызову callback долгий опрос уже не числится подписчиком
+                        cancel();
+                    }
+                    boolean keep;
+                    try {
+                        keep = sink.test(batch);
+                    } catch (RuntimeException e) {
+                        log.debug("Подписчик на события отключён: {}", e.getMessage());
+                        keep = false;
+                    }
+                    if (!keep) {
+                        cancel();
+                    } else if (batch.events().size() < limit) {
+                        return;
+                    }
+                }
+            } finally {
+                sending.set(false);
+            }
+        }
+    }
+}
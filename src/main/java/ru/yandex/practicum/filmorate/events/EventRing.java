@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.events;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кольцевой буфер событий без блокировок. Издатель занимает номер события одним getAndIncrement и пишет поля
+ * в ячейку номер & mask; ни ожиданий, ни блокировок на пути издателя нет. Когда буфер полон, новое событие
+ * вытесняет самое старое: отставший потребитель теряет события и узнаёт об этом по EventBatch.missed.
+ * <p>
+ * Ячейка защищена счётчиком, как в seqlock: перед записью в stamps кладётся -(номер + 1), после — номер + 1.
+ * Читатель берёт поля, только если счётчик до и после чтения равен номеру + 1 нужного события.
+ * Номера начинаются с нуля при каждом запуске приложения.
+ */
+public class EventRing {
+    private static final ChangeEvent.Type[] TYPES = ChangeEvent.Type.values();
+
+    private final int mask;
+    private final byte[] types;
+    private final long[] subjects;
+    private final long[] objects;
+    private final long[] timestamps;
+    private final AtomicLongArray stamps;
+    private final AtomicLong next = new AtomicLong();
+
+    public EventRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость буфера событий должна быть степенью двойки: " + capacity);
+        }
+        mask = capacity - 1;
+        types = new byte[capacity];
+        subjects = new long[capacity];
+        objects = new long[capacity];
+        timestamps = new long[capacity];
+        stamps = new AtomicLongArray(capacity);
+    }
+
+    public long publish(ChangeEvent.Type type, long subjectId, long objectId) {
+        long offset = next.getAndIncrement();
+        int slot = (int) offset & mask;
+        stamps.set(slot, -(offset + 1));
+        // поля не должны стать видны раньше отметки о том, что ячейка переписывается
+        VarHandle.storeStoreFence();
+        types[slot] = (byte) type.ordinal();
+        subjects[slot] = subjectId;
+        objects[slot] = objectId;
+        timestamps[slot] = System.currentTimeMillis();
+        stamps.setRelease(slot, offset + 1);
+        return offset;
+    }
+
+    /**
+     * Номер, который получит следующее событие.
+     */
+    public long end() {
+        return next.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Не больше max событий начиная с offset. Чтение останавливается на первом событии, которое издатель
+     * ещё не дописал, чтобы потребитель видел события без пропусков. offset из будущего (например, после
+     * перезапуска) считается концом потока.
+     */
+    public EventBatch read(long offset, int max) {
+        long end = next.get();
+        long from = Math.max(Math.min(offset, end), Math.max(0, end - capacity()));
+        long missed = Math.max(0, from - offset);
+        List<ChangeEvent> events = new ArrayList<>((int) Math.min(max, end - from));
+        long current = from;
+        while (current < end && events.size() < max) {
+            int slot = (int) current & mask;
+            long stamp = stamps.getAcquire(slot);
+            if (stamp != current + 1) {
+                if (stamp == -(current + 1) || Math.abs(stamp) <= current) {
+                    break;
+                }
+                // ячейку уже переписал издатель, обогнавший читателя на целый круг
+                missed++;
+                current++;
+                continue;
+            }
+            ChangeEvent event = new ChangeEvent(current, TYPES[types[slot]], subjects[slot], objects[slot],
+                    timestamps[slot]);
+            VarHandle.loadLoadFence();
+            if (stamps.get(slot) != stamp) {
+                missed++;
+            } else {
+                events.add(event);
+            }
+            current++;
+        }
+        return new EventBatch(events, current, missed);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.events;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+import java.time.Duration;
+
+@Configuration
+public class EventsConfig {
+
+    @Bean
+    public EventRing eventRing(@Value("${filmorate.events.capacity}") int capacity, MetricsRegistry metrics) {
+        EventRing ring = new EventRing(capacity);
+        metrics.gauge("events.published", ring::end);
+        return ring;
+    }
+
+    @Bean(destroyMethod = "close")
+    public EventDispatcher eventDispatcher(EventRing ring,
+                                           @Value("${filmorate.events.batch-size}") int batchSize,
+                                           @Value("${filmorate.events.flush-interval}") Duration interval,
+                                           MetricsRegistry metrics) {
+        EventDispatcher dispatcher = new EventDispatcher(ring, batchSize);
+        metrics.gauge("events.subscribers", dispatcher::size);
+        dispatcher.start(interval);
+        return dispatcher;
+    }
+}
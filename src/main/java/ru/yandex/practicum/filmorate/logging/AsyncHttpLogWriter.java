@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Асинхронная запись журнала HTTP-запросов Logbook. Поток запроса только кладёт готовую строку в ограниченную
+ * очередь и не ждёт вывода; если очередь заполнена, запись отбрасывается и учитывается в счётчике dropped,
+ * так что медленный вывод журнала не тормозит обработку запросов. Фоновый поток забирает записи пачками
+ * до batchSize и передаёт их в delegate.
+ */
+@Slf4j
+public class AsyncHttpLogWriter implements HttpLogWriter, Closeable {
+    private final HttpLogWriter delegate;
+    private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncHttpLogWriter(HttpLogWriter delegate, int capacity, int batchSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.worker = Thread.ofPlatform().name("logbook-writer").daemon().start(this::drainLoop);
+    }
+
+    /**
+     * Если вывод журнала выключен уровнем логгера, Logbook не буферизует тела и не форматирует записи вовсе.
+     */
+    @Override
+    public boolean isActive() {
+        return delegate.isActive();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, String request) {
+        enqueue(new Entry(precorrelation, null, request));
+    }
+
+    @Override
+    public void write(Correlation correlation, String response) {
+        enqueue(new Entry(null, correlation, response));
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    private void enqueue(Entry entry) {
+        if (!running || !queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            Entry first;
+            try {
+                // ожидание ограничено, чтобы поток заметил закрытие без прерывания посреди записи в delegate
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            for (Entry entry : batch) {
+                writeEntry(entry);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeEntry(Entry entry) {
+        try {
+            if (entry.correlation() != null) {
+                delegate.write(entry.correlation(), entry.message());
+            } else {
+                delegate.write(entry.precorrelation(), entry.message());
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+        }
+    }
+
+    /**
+     * Дописывает всё, что уже в очереди; новые записи после закрытия отбрасываются.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Журнал HTTP закрыт: отброшено {}, ошибок записи {}", getDropped(), getFailed());
+    }
+
+    private record Entry(Precorrelation precorrelation, Correlation correlation, String message) {
+    }
+}
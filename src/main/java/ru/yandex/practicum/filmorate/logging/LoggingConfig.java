@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpMessage;
+import org.zalando.logbook.RequestFilter;
+import org.zalando.logbook.ResponseFilter;
+import org.zalando.logbook.core.BodyReplacers;
+import org.zalando.logbook.core.DefaultHttpLogWriter;
+import org.zalando.logbook.core.RequestFilters;
+import org.zalando.logbook.core.ResponseFilters;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.wire.WireFormat;
+
+@Configuration
+public class LoggingConfig {
+
+    /**
+     * Заменяет синхронный writer Logbook; сами записи по-прежнему уходят в логгер org.zalando.logbook.Logbook.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "filmorate.logging.async.enabled", havingValue = "true")
+    public AsyncHttpLogWriter asyncHttpLogWriter(@Value("${filmorate.logging.async.capacity}") int capacity,
+                                                 @Value("${filmorate.logging.async.batch-size}") int batchSize,
+                                                 MetricsRegistry metrics) {
+        HttpLogWriter delegate = new DefaultHttpLogWriter();
+        AsyncHttpLogWriter writer = new AsyncHttpLogWriter(delegate, capacity, batchSize);
+        metrics.gauge("logbook.dropped", writer::getDropped);
+        metrics.gauge("logbook.failed", writer::getFailed);
+        metrics.gauge("logbook.queued", writer::getQueued);
+        return writer;
+    }
+
+    /**
+     * Тела CBOR и Smile Logbook не знает как двоичные и записал бы в журнал байтами; вместо них пишется &lt;binary&gt;.
+     * Фильтры по умолчанию сохраняются.
+     */
+    @Bean
+    public RequestFilter requestFilter() {
+        return RequestFilter.merge(RequestFilters.defaultValue(),
+                RequestFilters.replaceBody(BodyReplacers.replaceBody(LoggingConfig::isBinaryWireFormat, "<binary>")));
+    }
+
+    @Bean
+    public ResponseFilter responseFilter() {
+        return ResponseFilter.merge(ResponseFilters.defaultValue(),
+                ResponseFilters.replaceBody(BodyReplacers.replaceBody(LoggingConfig::isBinaryWireFormat, "<binary>")));
+    }
+
+    private static boolean isBinaryWireFormat(HttpMessage message) {
+        WireFormat format = WireFormat.of(message.getContentType());
+        return format != null && format.isBinary();
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Гистограмма задержек в наносекундах по схеме HDR: до 64 нс корзины точные, дальше каждый интервал
+ * [2^k, 2^(k+1)) делится на 32 равные корзины, то есть относительная погрешность не больше 1/32 (~3%).
+ * Все корзины заранее лежат в одном массиве, запись — несколько атомарных инкрементов без выделения памяти;
+ * число записей — сумма корзин, отдельного счётчика нет.
+ * Значения больше MAX_VALUE (~73 минуты) попадают в последнюю корзину.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final long MAX_VALUE = (1L << 42) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Выполняет операцию и записывает её длительность, в том числе если она завершилась исключением.
+     */
+    public <T> T time(Supplier<T> operation) {
+        long started = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            recordSince(started);
+        }
+    }
+
+    public void time(Runnable operation) {
+        long started = System.nanoTime();
+        try {
+            operation.run();
+        } finally {
+            recordSince(started);
+        }
+    }
+
+    /**
+     * Записывает время, прошедшее с startedNanos (значение System.nanoTime() на входе в операцию).
+     */
+    public void recordSince(long startedNanos) {
+        record(System.nanoTime() - startedNanos);
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Снимок для отдачи наружу; счётчики читаются без остановки записи, поэтому снимок приблизительный.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long maxValue = max.get();
+        return new Snapshot(count, count == 0 ? 0 : micros(sum.sum()) / count,
+                micros(percentile(copy, count, 0.50, maxValue)), micros(percentile(copy, count, 0.90, maxValue)),
+                micros(percentile(copy, count, 0.99, maxValue)), micros(percentile(copy, count, 0.999, maxValue)),
+                micros(maxValue));
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_COUNT * shift + (int) (value >>> shift);
+    }
+
+    /**
+     * Наибольшее значение, попадающее в корзину: перцентили оцениваются сверху, как в HdrHistogram.
+     */
+    static long highestValue(int index) {
+        if (index < 2 * SUB_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        long mantissa = index % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Оценка сверху не выходит за наблюдавшийся максимум.
+     */
+    private static long percentile(long[] counts, long count, double quantile, long max) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    public record Snapshot(long count, double meanMicros, double p50Micros, double p90Micros, double p99Micros,
+                           double p999Micros, double maxMicros) {
+    }
+}
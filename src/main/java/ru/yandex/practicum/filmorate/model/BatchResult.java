@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+/**
+ * Итог обработки одного элемента пакетного запроса: id созданной или изменённой сущности либо причина отказа.
+ */
+@Data
+public class BatchResult {
+    private final Long id;
+    private final String error;
+
+    public static BatchResult ok(Long id) {
+        return new BatchResult(id, null);
+    }
+
+    public static BatchResult failed(String error) {
+        return new BatchResult(null, error);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+/**
+ * Рекомендованный пользователь и число его общих друзей с тем, для кого строилась рекомендация.
+ */
+@Data
+public class FriendRecommendation {
+    private final User user;
+    private final int mutualFriends;
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * fsync каталога: создание, переименование и удаление файлов переживают сбой, только когда записан сам каталог.
+ */
+final class Directories {
+    private Directories() {
+    }
+
+    static void sync(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
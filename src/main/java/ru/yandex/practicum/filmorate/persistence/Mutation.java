@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Одно изменение состояния: фильм, пользователь, ребро (лайк, дружба) между двумя id или удаление по id.
+ */
+public record Mutation(MutationType type, Film film, User user, long first, long second) {
+    public static Mutation film(MutationType type, Film film) {
+        return new Mutation(type, film, null, 0, 0);
+    }
+
+    public static Mutation user(MutationType type, User user) {
+        return new Mutation(type, null, user, 0, 0);
+    }
+
+    public static Mutation edge(MutationType type, long first, long second) {
+        return new Mutation(type, null, null, first, second);
+    }
+
+    /**
+     * Удаление фильма или пользователя; на диске записывается как ребро (id, 0).
+     */
+    public static Mutation deletion(MutationType type, long id) {
+        return new Mutation(type, null, null, id, 0);
+    }
+}
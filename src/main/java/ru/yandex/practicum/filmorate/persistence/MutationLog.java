@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Журнал изменений. append вызывается под той же блокировкой, что и само изменение,
+ * чтобы порядок записей совпадал с порядком применения; ожидание результата — уже после блокировки.
+ */
+public interface MutationLog {
+    MutationLog NOOP = mutation -> CompletableFuture.completedFuture(null);
+
+    /**
+     * Ставит изменение в журнал и возвращает future, которое завершится, когда запись станет долговечной.
+     */
+    CompletableFuture<Void> append(Mutation mutation);
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+/**
+ * Типы изменений в журнале. Коды записываются на диск, поэтому их нельзя менять или переиспользовать.
+ */
+public enum MutationType {
+    ADD_FILM(1),
+    UPDATE_FILM(2),
+    ADD_USER(3),
+    UPDATE_USER(4),
+    ADD_LIKE(5),
+    REMOVE_LIKE(6),
+    ADD_FRIEND(7),
+    REMOVE_FRIEND(8),
+    DELETE_FILM(9),
+    DELETE_USER(10);
+
+    private static final MutationType[] BY_CODE = new MutationType[16];
+
+    static {
+        for (MutationType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    MutationType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static MutationType fromCode(byte code) {
+        MutationType type = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Неизвестный тип записи журнала: " + code);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "false", matchIfMissing = true)
+    public MutationLog noopMutationLog() {
+        return MutationLog.NOOP;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public WriteAheadLog writeAheadLog(@Value("${filmorate.persistence.directory}") Path directory,
+                                       @Value("${filmorate.persistence.sync-commit}") boolean syncCommit,
+                                       @Value("${filmorate.persistence.max-batch}") int maxBatch) throws IOException {
+        return new WriteAheadLog(directory, syncCommit, maxBatch);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public PersistenceManager persistenceManager(WriteAheadLog wal, FilmStorage filmStorage, UserStorage userStorage,
+                                                 LikeStorage likeStorage, FriendshipStorage friendshipStorage,
+                                                 @Value("${filmorate.persistence.directory}") Path directory,
+                                                 @Value("${filmorate.persistence.snapshot-interval}") Duration interval)
+            throws IOException {
+        PersistenceManager manager = new PersistenceManager(wal, new SnapshotStore(directory), filmStorage,
+                userStorage, likeStorage, friendshipStorage);
+        manager.recover();
+        manager.scheduleSnapshots(interval);
+        return manager;
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Восстановление состояния при старте и периодические снимки.
+ * Восстановление: последний снимок загружается параллельно по разделам, одновременно с ним параллельно
+ * разбираются сегменты хвоста журнала; затем хвост применяется к хранилищам строго по порядку.
+ * Снимок: журнал переключается на новый сегмент N, состояние пишется в snapshot-N,
+ * после чего старые снимки и сегменты до N удаляются.
+ */
+@Slf4j
+public class PersistenceManager implements AutoCloseable {
+    private final WriteAheadLog wal;
+    private final SnapshotStore snapshots;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeStorage likeStorage;
+    private final FriendshipStorage friendshipStorage;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("snapshot-scheduler").daemon().unstarted(runnable));
+
+    public PersistenceManager(WriteAheadLog wal, SnapshotStore snapshots, FilmStorage filmStorage,
+                              UserStorage userStorage, LikeStorage likeStorage, FriendshipStorage friendshipStorage) {
+        this.wal = wal;
+        this.snapshots = snapshots;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likeStorage = likeStorage;
+        this.friendshipStorage = friendshipStorage;
+        this.workers = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()),
+                runnable -> Thread.ofPlatform().name("persistence-worker").daemon().unstarted(runnable));
+    }
+
+    public void recover() throws IOException {
+        long started = System.nanoTime();
+        long firstSegment = snapshots.latest().orElse(0);
+
+        List<CompletableFuture<List<Mutation>>> tail = new ArrayList<>();
+        for (long segment : WriteAheadLog.segments(wal.getDirectory())) {
+            if (segment >= firstSegment && segment < wal.getCurrentSegment()) {
+                tail.add(CompletableFuture.supplyAsync(() -> read(segment), workers));
+            }
+        }
+        if (firstSegment > 0) {
+            snapshots.load(firstSegment, filmStorage, userStorage, likeStorage, friendshipStorage, workers);
+        }
+
+        long applied = 0;
+        for (CompletableFuture<List<Mutation>> segment : tail) {
+            for (Mutation mutation : segment.join()) {
+                apply(mutation);
+                applied++;
+            }
+        }
+        log.info("Состояние восстановлено за {} мс: снимок {}, сегментов журнала {}, записей {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), firstSegment, tail.size(), applied);
+    }
+
+    public void scheduleSnapshots(Duration interval) {
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                log.error("Не удалось сохранить снимок состояния", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void snapshot() throws IOException {
+        long firstSegment = wal.rotate();
+        snapshots.write(firstSegment, filmStorage, userStorage, likeStorage, friendshipStorage, workers);
+        snapshots.deleteBefore(firstSegment);
+        wal.deleteSegmentsBefore(firstSegment);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        workers.shutdown();
+    }
+
+    private List<Mutation> read(long segment) {
+        try {
+            return WriteAheadLog.readSegment(WriteAheadLog.segmentPath(wal.getDirectory(), segment));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void apply(Mutation mutation) {
+        switch (mutation.type()) {
+            case ADD_FILM, UPDATE_FILM -> filmStorage.restoreFilm(mutation.film());
+            case ADD_USER, UPDATE_USER -> userStorage.restoreUser(mutation.user());
+            case ADD_LIKE -> likeStorage.addLike(mutation.first(), mutation.second());
+            case REMOVE_LIKE -> likeStorage.removeLike(mutation.first(), mutation.second());
+            case ADD_FRIEND -> friendshipStorage.addFriendship(mutation.first(), mutation.second());
+            case REMOVE_FRIEND -> friendshipStorage.removeFriendship(mutation.first(), mutation.second());
+            case DELETE_FILM -> deleteFilm(mutation.first());
+            case DELETE_USER -> deleteUser(mutation.first());
+        }
+    }
+
+    /**
+     * Снятие рёбер удалённых фильма и пользователя в журнал не пишется: на работающем сервисе оно идёт в фоне
+     * и могло не завершиться до остановки, поэтому при восстановлении рёбра снимаются сразу вместе с записью.
+     */
+    private void deleteFilm(long filmId) {
+        for (long userId : likeStorage.removeFilmLikes(filmId)) {
+            likeStorage.removeLike(filmId, userId);
+        }
+        filmStorage.deleteFilm(filmId);
+    }
+
+    private void deleteUser(long userId) {
+        for (long friendId : friendshipStorage.removeFriendList(userId)) {
+            friendshipStorage.removeFriendship(userId, friendId);
+        }
+        for (long filmId : likeStorage.removeUserLikes(userId)) {
+            likeStorage.removeLike(filmId, userId);
+        }
+        userStorage.deleteUser(userId);
+    }
+}
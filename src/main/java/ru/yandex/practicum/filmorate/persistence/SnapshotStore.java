@@ -0,0 +1,223 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Компактные снимки состояния: каталог snapshot-N с отдельными файлами фильмов, пользователей, лайков и дружбы.
+ * N — первый сегмент журнала, который нужно доиграть поверх снимка. Снимок пишется "на ходу", без остановки
+ * записи, поэтому может уже содержать часть изменений из сегмента N; все записи журнала идемпотентны,
+ * и повторное применение хвоста даёт то же состояние.
+ * Снимок сначала пишется во временный каталог и переименовывается атомарно, поэтому недописанный снимок не виден.
+ */
+@Slf4j
+public class SnapshotStore {
+    private static final String PREFIX = "snapshot-";
+    private static final String FILMS = "films.bin";
+    private static final String USERS = "users.bin";
+    private static final String LIKES = "likes.bin";
+    private static final String FRIENDS = "friends.bin";
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public void write(long firstSegment, FilmStorage filmStorage, UserStorage userStorage, LikeStorage likeStorage,
+                      FriendshipStorage friendshipStorage, Executor executor) throws IOException {
+        Path target = snapshotPath(firstSegment);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        deleteRecursively(temp);
+        Files.createDirectories(temp);
+
+        // секции лайков и дружбы обходят те же фильмы и пользователей, что попали в свои секции
+        Collection<Film> films = filmStorage.getAllFilms();
+        Collection<User> users = userStorage.getAllUsers();
+        // рёбра удалённых пользователей снимаются в фоне; в снимок попадают только рёбра к пользователям из него
+        long[] userIds = users.stream().mapToLong(User::getId).sorted().toArray();
+        join(CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> writeSection(temp.resolve(FILMS), out -> {
+                    for (Film film : films) {
+                        out.writeBoolean(true);
+                        RecordCodec.writeFilm(out, film);
+                    }
+                }), executor),
+                CompletableFuture.runAsync(() -> writeSection(temp.resolve(USERS), out -> {
+                    for (User user : users) {
+                        out.writeBoolean(true);
+                        RecordCodec.writeUser(out, user);
+                    }
+                }), executor),
+                CompletableFuture.runAsync(() -> writeSection(temp.resolve(LIKES), out -> {
+                    for (Film film : films) {
+                        long[] likedBy = SortedLongSet.intersect(likeStorage.getLikes(film.getId()), userIds);
+                        if (likedBy.length > 0) {
+                            out.writeBoolean(true);
+                            writeAdjacency(out, film.getId(), likedBy);
+                        }
+                    }
+                }), executor),
+                CompletableFuture.runAsync(() -> writeSection(temp.resolve(FRIENDS), out -> {
+                    // дружба симметрична, поэтому каждое ребро пишется один раз — со стороны меньшего id
+                    for (User user : users) {
+                        long[] friendIds =
+                                SortedLongSet.intersect(friendshipStorage.getFriendIds(user.getId()), userIds);
+                        int from = -Arrays.binarySearch(friendIds, user.getId()) - 1;
+                        if (from >= 0 && from < friendIds.length) {
+                            out.writeBoolean(true);
+                            writeAdjacency(out, user.getId(), Arrays.copyOfRange(friendIds, from, friendIds.length));
+                        }
+                    }
+                }), executor)));
+
+        // после возврата журнал до снимка удаляется, поэтому и файлы снимка, и его переименование
+        // должны быть на диске: иначе сбой может оставить ни снимка, ни журнала
+        Directories.sync(temp);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        Directories.sync(directory);
+        log.info("Снимок состояния записан: {}", target);
+    }
+
+    public void load(long firstSegment, FilmStorage filmStorage, UserStorage userStorage, LikeStorage likeStorage,
+                     FriendshipStorage friendshipStorage, Executor executor) {
+        Path snapshot = snapshotPath(firstSegment);
+        join(CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> readSection(snapshot.resolve(FILMS),
+                        in -> filmStorage.restoreFilm(RecordCodec.readFilm(in))), executor),
+                CompletableFuture.runAsync(() -> readSection(snapshot.resolve(USERS),
+                        in -> userStorage.restoreUser(RecordCodec.readUser(in))), executor),
+                CompletableFuture.runAsync(() -> readSection(snapshot.resolve(LIKES), in -> {
+                    long filmId = in.readLong();
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        likeStorage.addLike(filmId, in.readLong());
+                    }
+                }), executor),
+                CompletableFuture.runAsync(() -> readSection(snapshot.resolve(FRIENDS), in -> {
+                    long userId = in.readLong();
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        friendshipStorage.addFriendship(userId, in.readLong());
+                    }
+                }), executor)));
+        log.info("Снимок состояния загружен: {}", snapshot);
+    }
+
+    /**
+     * Номер первого сегмента журнала для самого свежего полного снимка.
+     */
+    public OptionalLong latest() throws IOException {
+        return snapshots().stream().mapToLong(Long::longValue).max();
+    }
+
+    public void deleteBefore(long firstSegment) throws IOException {
+        for (long number : snapshots()) {
+            if (number < firstSegment) {
+                deleteRecursively(snapshotPath(number));
+            }
+        }
+    }
+
+    private List<Long> snapshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && !name.endsWith(".tmp"))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length())))
+                    .toList();
+        }
+    }
+
+    private Path snapshotPath(long firstSegment) {
+        return directory.resolve(String.format("%s%020d", PREFIX, firstSegment));
+    }
+
+    private static void writeAdjacency(DataOutputStream out, long id, long[] ids) throws IOException {
+        out.writeLong(id);
+        out.writeInt(ids.length);
+        for (long other : ids) {
+            out.writeLong(other);
+        }
+    }
+
+    private static void writeSection(Path path, SectionWriter writer) {
+        try (FileOutputStream file = new FileOutputStream(path.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            writer.write(out);
+            out.writeBoolean(false);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать снимок " + path, e);
+        }
+    }
+
+    private static void readSection(Path path, SectionReader reader) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (in.readBoolean()) {
+                reader.read(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать снимок " + path, e);
+        }
+    }
+
+    private static void join(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private interface SectionWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface SectionReader {
+        void read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,342 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи: append-only сегменты wal-N.log с записями [длина][crc32][данные].
+ * Запросы только кодируют запись и кладут её в очередь; отдельный поток забирает из очереди всё накопившееся,
+ * пишет пачкой и делает один fsync на пачку (group commit), после чего завершает future всех её записей.
+ * При каждом запуске журнал открывает новый сегмент, старые читаются только при восстановлении.
+ * Если запись пачки не удалась, недописанный хвост отрезается до конца последней подтверждённой пачки
+ * (а если и это не вышло — запись продолжается в новом сегменте): иначе чтение сегмента остановилось бы
+ * на обрывке и отбросило бы все подтверждённые пачки после него.
+ * close дожидается, пока поток запишет очередь, и проваливает записи, которые встали в неё уже после этого:
+ * ни одна future не остаётся незавершённой.
+ */
+@Slf4j
+public class WriteAheadLog implements MutationLog, Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    private final Path directory;
+    private final boolean syncCommit;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final CRC32 crc = new CRC32();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long segment;
+    private FileChannel channel;
+    private long committed;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+    public WriteAheadLog(Path directory, boolean syncCommit, int maxBatch) throws IOException {
+        this.directory = directory;
+        this.syncCommit = syncCommit;
+        this.maxBatch = maxBatch;
+        Files.createDirectories(directory);
+        List<Long> existing = segments(directory);
+        segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        channel = open(segment);
+        committed = channel.size();
+        writer = Thread.ofPlatform().name("wal-writer").daemon().start(this::run);
+        log.info("Журнал изменений открыт: {}", segmentPath(directory, segment));
+    }
+
+    @Override
+    public CompletableFuture<Void> append(Mutation mutation) {
+        Pending pending = new Pending(RecordCodec.encode(mutation), false);
+        enqueue(pending);
+        return syncCommit ? pending.done : COMPLETED;
+    }
+
+    /**
+     * Переключает запись на новый сегмент и возвращает его номер.
+     * Всё, что было поставлено в очередь до вызова, уже лежит на диске в предыдущих сегментах.
+     */
+    public long rotate() {
+        Pending marker = new Pending(null, true);
+        enqueue(marker);
+        marker.done.join();
+        return marker.segment;
+    }
+
+    public long getCurrentSegment() {
+        return segment;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void deleteSegmentsBefore(long firstKept) throws IOException {
+        for (long number : segments(directory)) {
+            if (number < firstKept) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // поставленные между последней проверкой потока и его остановкой: писать их уже некому
+        List<Pending> stranded = new ArrayList<>();
+        queue.drainTo(stranded);
+        if (!stranded.isEmpty()) {
+            log.warn("Журнал закрыт, не записано записей: {}", stranded.size());
+            IllegalStateException closed = closed();
+            stranded.forEach(pending -> pending.done.completeExceptionally(closed));
+        }
+        channel.force(true);
+        channel.close();
+        log.info("Журнал изменений закрыт");
+    }
+
+    public static List<Long> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Читает сегмент до конца или до первой повреждённой записи (недописанный хвост после сбоя).
+     */
+    public static List<Mutation> readSegment(Path path) throws IOException {
+        List<Mutation> mutations = new ArrayList<>();
+        CRC32 checksum = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (true) {
+                int length;
+                int expected;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    expected = in.readInt();
+                    if (length <= 0) {
+                        log.warn("Сегмент {} обрывается на записи длины {}", path, length);
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expected) {
+                    log.warn("Сегмент {} обрывается на повреждённой записи, хвост отброшен", path);
+                    break;
+                }
+                mutations.add(RecordCodec.decode(payload));
+            }
+        }
+        return mutations;
+    }
+
+    /**
+     * Ставит запись в очередь. Запись, которая встала уже после того, как close забрал остаток очереди,
+     * снимается отсюда же по повторной проверке; если снять её не удалось, её забрал поток или close.
+     */
+    private void enqueue(Pending pending) {
+        if (!running) {
+            throw closed();
+        }
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            throw closed();
+        }
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("Журнал изменений закрыт");
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                // поток журнала останавливается только через close()
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        int from = 0;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                if (pending.rotate) {
+                    flush(batch, from, i);
+                    from = i + 1;
+                    channel.close();
+                    segment++;
+                    channel = open(segment);
+                    committed = 0;
+                    pending.segment = segment;
+                    pending.done.complete(null);
+                } else {
+                    put(pending.payload);
+                }
+            }
+            flush(batch, from, batch.size());
+        } catch (IOException e) {
+            log.error("Не удалось записать журнал изменений", e);
+            discardUncommitted();
+            UncheckedIOException failure = new UncheckedIOException("Не удалось записать журнал изменений", e);
+            for (int i = from; i < batch.size(); i++) {
+                batch.get(i).done.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void put(byte[] payload) throws IOException {
+        int needed = HEADER_SIZE + payload.length;
+        if (buffer.remaining() < needed) {
+            drain();
+            if (buffer.capacity() < needed) {
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(needed) << 1);
+            }
+        }
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+    }
+
+    private void flush(List<Pending> batch, int from, int to) throws IOException {
+        if (from == to) {
+            return;
+        }
+        drain();
+        channel.force(false);
+        committed = channel.size();
+        for (int i = from; i < to; i++) {
+            Pending pending = batch.get(i);
+            pending.segment = segment;
+            pending.done.complete(null);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        write(channel, buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Пишет буфер в сегмент целиком. Отдельный метод — чтобы тест мог оборвать запись на середине.
+     */
+    void write(FileChannel target, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            target.write(source);
+        }
+    }
+
+    /**
+     * Убирает из сегмента всё, что записано после последней подтверждённой пачки. Если сегмент отрезать
+     * не удалось, он закрывается и запись продолжается в следующем: чтение старого сегмента остановится
+     * на обрывке, но после обрывка в нём ничего подтверждённого уже не будет.
+     */
+    private void discardUncommitted() {
+        buffer.clear();
+        try {
+            channel.truncate(committed);
+            channel.force(false);
+            return;
+        } catch (IOException e) {
+            log.error("Не удалось отрезать недописанный хвост сегмента {}", segment, e);
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть сегмент {}", segment, e);
+        }
+        segment++;
+        try {
+            channel = open(segment);
+            committed = 0;
+            log.info("Запись журнала продолжается в новом сегменте {}", segment);
+        } catch (IOException e) {
+            // канал остаётся закрытым: следующая пачка тоже не запишется и повторит попытку
+            log.error("Не удалось открыть сегмент {}", segment, e);
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // fsync записей не сохраняет саму запись о новом файле в каталоге
+        try {
+            Directories.sync(directory);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    private static final class Pending {
+        private final byte[] payload;
+        private final boolean rotate;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile long segment;
+
+        private Pending(byte[] payload, boolean rotate) {
+            this.payload = payload;
+            this.rotate = rotate;
+        }
+    }
+}
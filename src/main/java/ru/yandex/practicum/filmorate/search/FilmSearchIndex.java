@@ -0,0 +1,423 @@
+package ru.yandex.practicum.filmorate.search;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.TopCounts;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Полнотекстовый индекс фильмов по названию и описанию.
+ * <p>
+ * Токены — последовательности букв и цифр любого алфавита в нижнем регистре, «ё» приравнивается к «е».
+ * Словарь термов отсортирован, поэтому автодополнение — это обход диапазона [префикс, префикс + U+FFFF):
+ * из него берутся не больше MAX_EXPANSIONS самых частых термов. Для каждого терма — наборы id фильмов,
+ * где он встречается в названии и в описании: отсортированный массив, а когда битовая карта по id
+ * становится меньше массива (терм есть больше чем в 1/64 каталога) — битовая карта.
+ * <p>
+ * Запрос находит фильмы, где встречаются все его слова (последнее — как префикс, если prefix).
+ * Вклад слова — idf = ln(1 + фильмов / фильмов с термом), в названии он весит NAME_WEIGHT раз больше.
+ * Слова обрабатываются от редкого к частому. Если у самого редкого немного фильмов, очки копятся
+ * в хэш-таблице, а наличие кандидатов в длинных списках следующих слов проверяется поштучно.
+ * Если же кандидатов больше 1/DENSE_RATIO каталога, очки копятся в массивах, индексированных id фильма.
+ * <p>
+ * Изменения идут под блокировкой записи, запросы — параллельно под блокировкой чтения.
+ */
+public class FilmSearchIndex {
+    static final int NAME_WEIGHT = 3;
+    static final int SCORE_SCALE = 100;
+    static final int MAX_EXPANSIONS = 32;
+    static final int MAX_QUERY_WORDS = 16;
+    // дальше этого числа термов диапазон префикса не просматривается: слишком короткий префикс
+    private static final int MAX_SCANNED_TERMS = 4096;
+    // длинный список проверяется поштучно, если он во столько раз длиннее списка кандидатов
+    private static final int PROBE_RATIO = 8;
+    private static final int DENSE_RATIO = 16;
+    // с учётом лайков пересчитываются столько лучших по тексту результатов на каждый запрошенный
+    private static final int BOOST_WINDOW = 20;
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    // термы, под которыми фильм проиндексирован сейчас: переиндексация не зависит от прежнего объекта фильма
+    private final Map<Long, String[]> indexed = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int films;
+    private long maxFilmId;
+
+    /**
+     * Добавляет фильм или переиндексирует уже добавленный: из списков убираются только пропавшие термы.
+     */
+    public void add(Film film) {
+        Set<String> name = tokenize(film.getName());
+        Set<String> description = tokenize(film.getDescription());
+        lock.writeLock().lock();
+        try {
+            String[] previous = indexed.get(film.getId());
+            if (previous == null) {
+                films++;
+                maxFilmId = Math.max(maxFilmId, film.getId());
+            }
+            String[] current = new String[name.size() + description.size() + 1];
+            int i = 0;
+            for (String term : name) {
+                Postings postings = postings(term);
+                postings.name.add(film.getId(), maxFilmId);
+                current[i++] = postings.term;
+            }
+            i++;
+            for (String term : description) {
+                Postings postings = postings(term);
+                postings.description.add(film.getId(), maxFilmId);
+                current[i++] = postings.term;
+            }
+            if (previous != null) {
+                unlinkMissing(film.getId(), previous, name, description);
+            }
+            indexed.put(film.getId(), current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            String[] previous = indexed.remove(filmId);
+            if (previous != null) {
+                films--;
+                unlinkMissing(filmId, previous, Set.of(), Set.of());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Результат: id и очки (в единицах SCORE_SCALE) по убыванию очков, при равенстве — по возрастанию id.
+     * likes — если задан, очки умножаются на 1 + ln(1 + лайки) у BOOST_WINDOW * limit лучших по тексту фильмов.
+     */
+    public TopCounts search(String query, int limit, boolean prefix, LongToIntFunction likes) {
+        List<String> words = new ArrayList<>(tokenize(query));
+        if (words.isEmpty()) {
+            return new TopCounts(new long[0], new int[0]);
+        }
+        if (words.size() > MAX_QUERY_WORDS) {
+            words = words.subList(0, MAX_QUERY_WORDS);
+        }
+        int window = likes == null ? limit : limit * BOOST_WINDOW;
+        TopCounts byText;
+        lock.readLock().lock();
+        try {
+            List<List<Term>> matches = new ArrayList<>(words.size());
+            for (int i = 0; i < words.size(); i++) {
+                List<Term> matched = prefix && i == words.size() - 1 ? expand(words.get(i)) : exact(words.get(i));
+                if (matched.isEmpty()) {
+                    return new TopCounts(new long[0], new int[0]);
+                }
+                matches.add(matched);
+            }
+            matches.sort(Comparator.comparingLong(FilmSearchIndex::size));
+            byText = size(matches.get(0)) * DENSE_RATIO > maxFilmId && maxFilmId <= FieldPostings.MAX_DENSE_ID
+                    ? scoreDense(matches, window)
+                    : scoreSparse(matches, window);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (likes == null) {
+            return byText;
+        }
+        TopCounts.Heap boosted = new TopCounts.Heap(limit);
+        for (int i = 0; i < byText.ids().length; i++) {
+            double boost = 1 + Math.log1p(Math.max(0, likes.applyAsInt(byText.ids()[i])));
+            boosted.offer(byText.ids()[i], (int) Math.min(Integer.MAX_VALUE, byText.counts()[i] * boost));
+        }
+        return boosted.result();
+    }
+
+    /**
+     * Токены текста без повторов, в порядке появления.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                token.append(c == 'ё' ? 'е' : c);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private TopCounts scoreSparse(List<List<Term>> matches, int limit) {
+        LongIntCounter scores = new LongIntCounter();
+        for (Term term : matches.get(0)) {
+            term.films().forEach(filmId -> scores.add(filmId, term.weight()));
+        }
+        LongIntCounter current = scores;
+        for (int word = 1; word < matches.size() && current.size() > 0; word++) {
+            List<Term> matched = matches.get(word);
+            LongIntCounter wordScores = null;
+            if (size(matched) <= (long) current.size() * PROBE_RATIO) {
+                LongIntCounter collected = new LongIntCounter();
+                for (Term term : matched) {
+                    term.films().forEach(filmId -> collected.add(filmId, term.weight()));
+                }
+                wordScores = collected;
+            }
+            LongIntCounter next = new LongIntCounter(current.size());
+            for (int slot = 0; slot < current.capacity(); slot++) {
+                long filmId = current.keyAt(slot);
+                if (filmId == 0) {
+                    continue;
+                }
+                int score = 0;
+                if (wordScores != null) {
+                    score = wordScores.get(filmId);
+                } else {
+                    for (Term term : matched) {
+                        if (term.films().contains(filmId)) {
+                            score += term.weight();
+                        }
+                    }
+                }
+                if (score > 0) {
+                    next.add(filmId, current.valueAt(slot) + score);
+                }
+            }
+            current = next;
+        }
+        return TopCounts.select(current, limit, id -> false);
+    }
+
+    /**
+     * matchedWords[id] — сколько слов запроса уже нашлось у фильма: фильм, пропустивший слово, дальше не растёт.
+     */
+    private TopCounts scoreDense(List<List<Term>> matches, int limit) {
+        int[] scores = new int[(int) maxFilmId + 1];
+        byte[] matchedWords = new byte[(int) maxFilmId + 1];
+        for (int word = 0; word < matches.size(); word++) {
+            byte before = (byte) word;
+            byte after = (byte) (word + 1);
+            for (Term term : matches.get(word)) {
+                int weight = term.weight();
+                term.films().forEach(filmId -> {
+                    int i = (int) filmId;
+                    if (matchedWords[i] == before) {
+                        matchedWords[i] = after;
+                        scores[i] += weight;
+                    } else if (matchedWords[i] == after) {
+                        scores[i] += weight;
+                    }
+                });
+            }
+        }
+        byte all = (byte) matches.size();
+        TopCounts.Heap heap = new TopCounts.Heap(limit);
+        for (int i = 1; i < scores.length; i++) {
+            if (matchedWords[i] == all && heap.accepts(i, scores[i])) {
+                heap.offer(i, scores[i]);
+            }
+        }
+        return heap.result();
+    }
+
+    private List<Term> exact(String word) {
+        Postings postings = terms.get(word);
+        List<Term> matched = new ArrayList<>(2);
+        if (postings != null) {
+            postings.addTerms(matched, idf(postings));
+        }
+        return matched;
+    }
+
+    private List<Term> expand(String prefix) {
+        PriorityQueue<Postings> frequent = new PriorityQueue<>(MAX_EXPANSIONS + 1,
+                Comparator.comparingInt(Postings::size));
+        int scanned = 0;
+        for (Postings postings : terms.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            if (++scanned > MAX_SCANNED_TERMS) {
+                break;
+            }
+            frequent.add(postings);
+            if (frequent.size() > MAX_EXPANSIONS) {
+                frequent.poll();
+            }
+        }
+        List<Term> matched = new ArrayList<>(frequent.size() * 2);
+        for (Postings postings : frequent) {
+            postings.addTerms(matched, idf(postings));
+        }
+        return matched;
+    }
+
+    private double idf(Postings postings) {
+        return Math.log(1 + (double) Math.max(films, 1) / Math.max(postings.size(), 1));
+    }
+
+    private static long size(List<Term> matched) {
+        long size = 0;
+        for (Term term : matched) {
+            size += term.films().size();
+        }
+        return size;
+    }
+
+    private Postings postings(String term) {
+        return terms.computeIfAbsent(term, Postings::new);
+    }
+
+    /**
+     * Убирает фильм из списков термов прежней версии, которых нет в новой. В массиве прежних термов
+     * сначала идут термы названия, затем null, затем термы описания.
+     */
+    private void unlinkMissing(long filmId, String[] previous, Set<String> name, Set<String> description) {
+        boolean inName = true;
+        for (String term : previous) {
+            if (term == null) {
+                inName = false;
+            } else if (!(inName ? name : description).contains(term)) {
+                Postings postings = terms.get(term);
+                (inName ? postings.name : postings.description).remove(filmId);
+                if (postings.size() == 0) {
+                    terms.remove(term);
+                }
+            }
+        }
+    }
+
+    private record Term(FieldPostings films, int weight) {
+    }
+
+    private static final class Postings {
+        // ключ словаря: фильмы ссылаются на него, а не на собственные копии строк
+        private final String term;
+        private final FieldPostings name = new FieldPostings();
+        private final FieldPostings description = new FieldPostings();
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        int size() {
+            return name.size() + description.size();
+        }
+
+        void addTerms(List<Term> matched, double idf) {
+            int weight = Math.max(1, (int) (idf * SCORE_SCALE));
+            if (name.size() > 0) {
+                matched.add(new Term(name, weight * NAME_WEIGHT));
+            }
+            if (description.size() > 0) {
+                matched.add(new Term(description, weight));
+            }
+        }
+    }
+
+    /**
+     * Фильмы с термом в одном поле: отсортированный массив или, для частых термов, битовая карта по id.
+     * Битовая карта включается, когда она меньше массива (8 байт на фильм против maxFilmId / 8 байт),
+     * и даёт вставку и удаление за O(1) вместо сдвига длинного массива.
+     */
+    private static final class FieldPostings {
+        static final long MAX_DENSE_ID = Integer.MAX_VALUE - 1;
+        private static final int MIN_DENSE_SIZE = 1024;
+
+        private SortedLongSet sparse = new SortedLongSet();
+        private BitSet dense;
+        private int size;
+
+        void add(long filmId, long maxFilmId) {
+            if (dense != null && filmId > MAX_DENSE_ID) {
+                toSparse();
+            }
+            if (dense != null) {
+                if (!dense.get((int) filmId)) {
+                    dense.set((int) filmId);
+                    size++;
+                }
+                return;
+            }
+            if (sparse.add(filmId)) {
+                size++;
+                if (size >= MIN_DENSE_SIZE && size * 64L > maxFilmId && maxFilmId <= MAX_DENSE_ID) {
+                    toDense(maxFilmId);
+                }
+            }
+        }
+
+        void remove(long filmId) {
+            if (dense != null) {
+                if (filmId <= MAX_DENSE_ID && dense.get((int) filmId)) {
+                    dense.clear((int) filmId);
+                    size--;
+                }
+            } else if (sparse.remove(filmId)) {
+                size--;
+            }
+        }
+
+        boolean contains(long filmId) {
+            return dense != null ? filmId <= MAX_DENSE_ID && dense.get((int) filmId) : sparse.contains(filmId);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(LongConsumer action) {
+            if (dense != null) {
+                for (int id = dense.nextSetBit(0); id >= 0; id = dense.nextSetBit(id + 1)) {
+                    action.accept(id);
+                }
+            } else {
+                for (int i = 0; i < sparse.size(); i++) {
+                    action.accept(sparse.get(i));
+                }
+            }
+        }
+
+        private void toDense(long maxFilmId) {
+            dense = new BitSet((int) maxFilmId + 1);
+            forEach(filmId -> dense.set((int) filmId));
+            sparse = null;
+        }
+
+        private void toSparse() {
+            SortedLongSet ids = new SortedLongSet();
+            forEach(ids::add);
+            sparse = ids;
+            dense = null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class SearchConfig {
+
+    @Bean
+    public FilmSearchIndex filmSearchIndex(MetricsRegistry metrics) {
+        FilmSearchIndex index = new FilmSearchIndex();
+        metrics.gauge("search.terms", index::termCount);
+        return index;
+    }
+
+    /**
+     * Индекс заполняется фильмами, которые уже есть в хранилище: восстановленными из журнала или лежащими
+     * в отображаемых файлах. Spring вызывает хук, когда созданы все бины — в том числе PersistenceManager,
+     * который восстанавливает хранилища при создании, если журнал включён, — но до старта веб-сервера, так что
+     * запросы не застают индекс пустым.
+     */
+    @Bean
+    public SmartInitializingSingleton filmSearchIndexLoader(FilmSearchIndex index, FilmStorage filmStorage) {
+        return () -> {
+            long started = System.nanoTime();
+            filmStorage.getAllFilms().forEach(index::add);
+            log.info("Поисковый индекс построен за {} мс: {} термов", TimeUnit.NANOSECONDS.toMillis(
+                    System.nanoTime() - started), index.termCount());
+        };
+    }
+}
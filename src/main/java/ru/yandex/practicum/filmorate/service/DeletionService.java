@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Каскадное удаление. Фильм или пользователь сразу исчезает из хранилища и всех ответов. Затем его собственная
+ * сторона рёбер — лайки фильма, обратный индекс лайков или список друзей пользователя — снимается одной заменой,
+ * а по снятому списку EdgeCleaner чистит вторые стороны: списки лайкнувших, лайки фильмов, списки друзей.
+ * Так удаление стоит O(число рёбер) без обхода каталога, и массив «звезды» не копируется на каждое ребро.
+ * Стороны снимаются после того, как новые рёбра к удалённому больше не могут появиться: лайк и дружба проверяют
+ * существование под теми же блокировками, под которыми идёт удаление.
+ */
+@Slf4j
+@Service
+public class DeletionService {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final EdgeCleaner edgeCleaner;
+
+    public DeletionService(FilmService filmService, UserService userService, EdgeCleaner edgeCleaner) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.edgeCleaner = edgeCleaner;
+    }
+
+    /**
+     * Удаляет фильм; future завершается, когда сняты все его лайки.
+     */
+    public CompletableFuture<Void> deleteFilm(Long filmId) {
+        filmService.deleteFilm(filmId);
+        long[] likedBy = filmService.detachFilmLikes(filmId);
+        log.debug("Фильм {} удалён, снимается лайков: {}", filmId, likedBy.length);
+        return edgeCleaner.clean(likedBy, userId -> filmService.detachFilmLike(filmId, userId));
+    }
+
+    /**
+     * Удаляет пользователя; future завершается, когда сняты вся его дружба и все его лайки.
+     */
+    public CompletableFuture<Void> deleteUser(Long userId) {
+        userService.deleteUser(userId);
+        // лайк берёт блокировку фильма, а не пользователя: дожидаемся уже начатых, прежде чем снимать его лайки
+        filmService.awaitLikeWriters();
+        long[] friendIds = userService.detachFriendList(userId);
+        long[] likedFilms = filmService.detachUserLikes(userId);
+        log.debug("Пользователь {} удалён, снимается дружб: {}, лайков: {}", userId, friendIds.length,
+                likedFilms.length);
+        return CompletableFuture.allOf(
+                edgeCleaner.clean(friendIds, friendId -> userService.detachFriend(userId, friendId)),
+                edgeCleaner.clean(likedFilms, filmId -> filmService.detachUserLike(filmId, userId)));
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Снятие рёбер удалённого фильма или пользователя. Работа пропорциональна числу его рёбер: список берётся
+ * из обратного индекса, и каждое ребро снимается по отдельности. Список не длиннее inlineEdges снимается сразу
+ * в потоке запроса; длинный — в фоновом потоке пачками по chunkSize: после каждой пачки задача ставится в конец
+ * очереди, поэтому одновременные удаления «звёзд» продвигаются по очереди, а блокировки берутся на одно ребро.
+ */
+@Slf4j
+@Component
+public class EdgeCleaner implements AutoCloseable {
+    private final int inlineEdges;
+    private final int chunkSize;
+    private final AtomicLong pending = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> Thread.ofPlatform().name("edge-cleaner").daemon().unstarted(runnable));
+
+    public EdgeCleaner(@Value("${filmorate.delete.inline-edges}") int inlineEdges,
+                       @Value("${filmorate.delete.chunk-size}") int chunkSize, MetricsRegistry metrics) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным: " + chunkSize);
+        }
+        this.inlineEdges = inlineEdges;
+        this.chunkSize = chunkSize;
+        metrics.gauge("delete.pendingEdges", this::getPending);
+    }
+
+    /**
+     * Вызывает detach для каждого id; future завершается, когда сняты все рёбра.
+     */
+    public CompletableFuture<Void> clean(long[] ids, LongConsumer detach) {
+        if (ids.length <= inlineEdges) {
+            for (long id : ids) {
+                detach.accept(id);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        pending.addAndGet(ids.length);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        submit(ids, 0, detach, done);
+        return done;
+    }
+
+    /**
+     * Рёбра, ожидающие фонового снятия.
+     */
+    public long getPending() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void step(long[] ids, int from, LongConsumer detach, CompletableFuture<Void> done) {
+        int to = Math.min(ids.length, from + chunkSize);
+        int i = from;
+        try {
+            for (; i < to; i++) {
+                detach.accept(ids[i]);
+            }
+        } catch (RuntimeException e) {
+            pending.addAndGet(from - ids.length);
+            log.error("Не удалось снять рёбра удалённого объекта: снято {} из {}", i, ids.length, e);
+            done.completeExceptionally(e);
+            return;
+        }
+        pending.addAndGet(from - to);
+        if (to == ids.length) {
+            done.complete(null);
+        } else {
+            submit(ids, to, detach, done);
+        }
+    }
+
+    private void submit(long[] ids, int from, LongConsumer detach, CompletableFuture<Void> done) {
+        try {
+            executor.execute(() -> step(ids, from, detach, done));
+        } catch (RejectedExecutionException e) {
+            // сервис останавливается: оставшиеся рёбра снимет запись журнала об удалении при восстановлении
+            pending.addAndGet(from - ids.length);
+            done.completeExceptionally(e);
+        }
+    }
+}
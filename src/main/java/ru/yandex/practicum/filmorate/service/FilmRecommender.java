@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.NeighbourCountTask;
+import ru.yandex.practicum.filmorate.util.TopCounts;
+
+import java.util.Arrays;
+
+/**
+ * Рекомендации фильмов по лайкам похожих пользователей (коллаборативная фильтрация по пользователям).
+ * <ol>
+ *     <li>По фильмам, которые лайкнул пользователь, и их лайкам считается пересечение с каждым другим
+ *     пользователем.</li>
+ *     <li>Сходство — косинус: пересечение / sqrt(|лайки пользователя| * |лайки соседа|), в фиксированной точке
+ *     (SIMILARITY_SCALE), берутся neighbours самых похожих.</li>
+ *     <li>Фильмы соседей получают сумму их сходств; фильмы, уже лайкнутые пользователем, отбрасываются.</li>
+ * </ol>
+ * Оба обхода — NeighbourCountTask с бюджетом maxEdges просмотренных лайков: фильм с огромным числом лайков
+ * (или сосед, лайкнувший почти всё) пропускается, а не съедает весь запрос — к тому же такие лайки мало
+ * говорят о вкусе. Списки длиннее parallelThreshold обходятся параллельно.
+ */
+@Component
+public class FilmRecommender {
+    static final int SIMILARITY_SCALE = 10_000;
+
+    private final LikeStorage likeStorage;
+    private final int maxEdges;
+    private final int parallelThreshold;
+    private final int neighbours;
+
+    public FilmRecommender(LikeStorage likeStorage,
+                           @Value("${filmorate.film-recommendations.max-edges}") int maxEdges,
+                           @Value("${filmorate.film-recommendations.parallel-threshold}") int parallelThreshold,
+                           @Value("${filmorate.film-recommendations.neighbours}") int neighbours) {
+        this.likeStorage = likeStorage;
+        this.maxEdges = maxEdges;
+        this.parallelThreshold = parallelThreshold;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Ранжированные фильмы: ids и scores (сумма сходств соседей, лайкнувших фильм, в единицах SIMILARITY_SCALE)
+     * одной длины; truncated — хотя бы один обход упёрся в ограничение работы.
+     */
+    public record Ranking(long[] ids, int[] scores, boolean truncated) {
+    }
+
+    public Ranking recommend(long userId, int limit) {
+        long[] liked = likeStorage.getLikedFilmIds(userId);
+        if (liked.length == 0) {
+            return new Ranking(new long[0], new int[0], false);
+        }
+        NeighbourCountTask overlapTask = new NeighbourCountTask(liked, maxEdges, parallelThreshold,
+                likeStorage::getLikes, likeStorage::getLikeCount);
+        LongIntCounter overlap = overlapTask.run();
+
+        // сходство не больше sqrt(пересечение / |лайки пользователя|): кандидатов, у которых и эта оценка не выше
+        // худшего из отобранных соседей, можно пропустить, не заглядывая в их лайки
+        TopCounts.Heap nearestHeap = new TopCounts.Heap(neighbours);
+        for (int slot = 0; slot < overlap.capacity(); slot++) {
+            long otherId = overlap.keyAt(slot);
+            int common = overlap.valueAt(slot);
+            if (otherId == 0 || otherId == userId
+                    || nearestHeap.isFull() && SIMILARITY_SCALE * Math.sqrt((double) common / liked.length)
+                    < nearestHeap.worstCount()) {
+                continue;
+            }
+            double norm = Math.sqrt((double) liked.length * Math.max(1, likeStorage.getLikedFilmCount(otherId)));
+            nearestHeap.offer(otherId, Math.max(1, (int) (SIMILARITY_SCALE * common / norm)));
+        }
+        TopCounts nearest = nearestHeap.result();
+
+        NeighbourCountTask scoreTask = new NeighbourCountTask(nearest.ids(), nearest.counts(), maxEdges,
+                parallelThreshold, likeStorage::getLikedFilmIds, likeStorage::getLikedFilmCount);
+        LongIntCounter scores = scoreTask.run();
+        TopCounts top = TopCounts.select(scores, limit, id -> Arrays.binarySearch(liked, id) >= 0);
+        return new Ranking(top.ids(), top.counts(), overlapTask.isTruncated() || scoreTask.isTruncated());
+    }
+}
@@ -2,113 +2,522 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.EventRing;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.metrics.LatencyHistogram;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.persistence.Mutation;
+import ru.yandex.practicum.filmorate.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.persistence.MutationType;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingCounter;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.Batches;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+import ru.yandex.practicum.filmorate.util.TopCounts;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
 public class FilmService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_RECOMMENDATIONS = 100;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final Map<Long, Set<Long>> likesMap = new HashMap<>();
-
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    private final LikeStorage likeStorage;
+    private final MutationLog mutationLog;
+    private final ResponseCache responseCache;
+    private final FilmRecommender filmRecommender;
+    private final TrendingCounter trendingCounter;
+    private final FilmSearchIndex searchIndex;
+    private final EventRing events;
+    // лайки, правки и удаление фильма идут под полосой его id — в журнал они попадают в порядке изменения хранилищ
+    private final StripedLocks filmLocks = new StripedLocks(64);
+    private final LatencyHistogram addFilmLatency;
+    private final LatencyHistogram updateFilmLatency;
+    private final LatencyHistogram addFilmsLatency;
+    private final LatencyHistogram updateFilmsLatency;
+    private final LatencyHistogram addLikesLatency;
+    private final LatencyHistogram getFilmByIdLatency;
+    private final LatencyHistogram addLikeLatency;
+    private final LatencyHistogram removeLikeLatency;
+    private final LatencyHistogram deleteFilmLatency;
+    private final LatencyHistogram getPopularFilmsLatency;
+    private final LatencyHistogram getRecommendationsLatency;
+    private final LatencyHistogram getTrendingFilmsLatency;
+    private final LatencyHistogram searchFilmsLatency;
+
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, LikeStorage likeStorage,
+                       MutationLog mutationLog, MetricsRegistry metrics, ResponseCache responseCache,
+                       FilmRecommender filmRecommender, TrendingCounter trendingCounter,
+                       FilmSearchIndex searchIndex, EventRing events) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.likeStorage = likeStorage;
+        this.mutationLog = mutationLog;
+        this.responseCache = responseCache;
+        this.filmRecommender = filmRecommender;
+        this.trendingCounter = trendingCounter;
+        this.searchIndex = searchIndex;
+        this.events = events;
+        addFilmLatency = metrics.histogram("film.addFilm");
+        updateFilmLatency = metrics.histogram("film.updateFilm");
+        addFilmsLatency = metrics.histogram("film.addFilms");
+        updateFilmsLatency = metrics.histogram("film.updateFilms");
+        addLikesLatency = metrics.histogram("film.addLikes");
+        getFilmByIdLatency = metrics.histogram("film.getFilmById");
+        addLikeLatency = metrics.histogram("film.addLike");
+        removeLikeLatency = metrics.histogram("film.removeLike");
+        deleteFilmLatency = metrics.histogram("film.deleteFilm");
+        getPopularFilmsLatency = metrics.histogram("film.getPopularFilms");
+        getRecommendationsLatency = metrics.histogram("film.getRecommendations");
+        getTrendingFilmsLatency = metrics.histogram("film.getTrendingFilms");
+        searchFilmsLatency = metrics.histogram("film.searchFilms");
+        metrics.gauge("films", () -> filmStorage.getAllFilms().size());
+        metrics.gauge("likes", likeStorage::getLikeEdgeCount);
     }
 
     public Film addFilm(Film film) {
-        log.info("Добавление фильма: {}", film);
-        validateFilm(film);
-        Film created = filmStorage.addFilm(film);
-        likesMap.putIfAbsent(created.getId(), new HashSet<>());
-        log.debug("Фильм добавлен с id={}", created.getId());
-        return created;
+        return addFilmLatency.time(() -> {
+            log.info("Добавление фильма '{}'", film.getName());
+            validateFilm(film);
+            // ADD_FILM встаёт в очередь раньше, чем фильм увидят другие запросы: их лайки и правки лягут после него
+            CompletableFuture<?>[] commit = new CompletableFuture<?>[1];
+            Film created = filmStorage.addFilm(film,
+                    added -> commit[0] = mutationLog.append(Mutation.film(MutationType.ADD_FILM, added)));
+            filmLocks.lock(created.getId());
+            try {
+                indexCurrent(created.getId());
+                responseCache.filmAdded();
+            } finally {
+                filmLocks.unlock(created.getId());
+            }
+            commit[0].join();
+            log.debug("Фильм добавлен с id={}", created.getId());
+            return created;
+        });
     }
 
     public Film updateFilm(Film film) {
-        log.info("Обновление фильма: {}", film);
-
-        requireFilmExists(film.getId());
-        validateFilm(film);
+        return updateFilmLatency.time(() -> {
+            log.info("Обновление фильма id={}", film.getId());
+
+            requireFilmExists(film.getId());
+            validateFilm(film);
+
+            Film updated;
+            CompletableFuture<Void> commit;
+            filmLocks.lock(film.getId());
+            try {
+                updated = filmStorage.updateFilm(film);
+                searchIndex.add(updated);
+                responseCache.filmUpdated(updated.getId());
+                commit = mutationLog.append(Mutation.film(MutationType.UPDATE_FILM, updated));
+            } finally {
+                filmLocks.unlock(film.getId());
+            }
+            commit.join();
+            log.debug("Фильм обновлён: id={}", updated.getId());
+
+            return updated;
+        });
+    }
 
-        Film updated = filmStorage.updateFilm(film);
 
-        likesMap.putIfAbsent(updated.getId(), new HashSet<>());
-        log.debug("Фильм обновлён: id={}", updated.getId());
+    /**
+     * Пакетное добавление: проверки идут параллельно, прошедшие их фильмы пишутся в хранилище одной пачкой,
+     * а журнал сбрасывается на диск один раз на всю пачку. Результаты — в порядке элементов запроса.
+     */
+    public List<BatchResult> addFilms(List<Film> films) {
+        return addFilmsLatency.time(() -> {
+            String[] errors = Batches.validate(films, this::validateFilm);
+            List<CompletableFuture<Void>> commits = new ArrayList<>(films.size());
+            List<Film> created = filmStorage.addFilms(Batches.accepted(films, errors),
+                    added -> commits.add(mutationLog.append(Mutation.film(MutationType.ADD_FILM, added))));
+            long[] ids = created.stream().mapToLong(Film::getId).toArray();
+            int[] stripes = filmLocks.lockAll(ids);
+            try {
+                for (long id : ids) {
+                    indexCurrent(id);
+                }
+                if (ids.length > 0) {
+                    responseCache.filmAdded();
+                }
+            } finally {
+                filmLocks.unlockAll(stripes);
+            }
+            Batches.joinAll(commits);
+            log.info("Пакетное добавление фильмов: добавлено {}, отклонено {}", created.size(),
+                    films.size() - created.size());
+            return Batches.results(films, errors, Film::getId);
+        });
+    }
 
-        return updated;
+    public List<BatchResult> updateFilms(List<Film> films) {
+        return updateFilmsLatency.time(() -> {
+            String[] errors = Batches.validate(films, film -> {
+                requireFilmExists(film.getId());
+                validateFilm(film);
+            });
+            List<Film> accepted = Batches.accepted(films, errors);
+            List<CompletableFuture<Void>> commits = new ArrayList<>(accepted.size());
+            int[] stripes = filmLocks.lockAll(accepted.stream().mapToLong(Film::getId).toArray());
+            try {
+                for (Film film : filmStorage.updateFilms(accepted)) {
+                    searchIndex.add(film);
+                    responseCache.filmUpdated(film.getId());
+                    commits.add(mutationLog.append(Mutation.film(MutationType.UPDATE_FILM, film)));
+                }
+            } finally {
+                filmLocks.unlockAll(stripes);
+            }
+            Batches.joinAll(commits);
+            log.info("Пакетное обновление фильмов: обновлено {}, отклонено {}", accepted.size(),
+                    films.size() - accepted.size());
+            return Batches.results(films, errors, Film::getId);
+        });
     }
 
+    public List<BatchResult> addLikes(List<Like> likes) {
+        return addLikesLatency.time(() -> {
+            String[] errors = Batches.validate(likes, like -> {
+                requireFilmExists(like.getFilmId());
+                requireUserExists(like.getUserId());
+            });
+            List<Like> accepted = Batches.accepted(likes, errors);
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            int[] stripes = filmLocks.lockAll(accepted.stream().mapToLong(Like::getFilmId).toArray());
+            try {
+                for (Like like : accepted) {
+                    // фильм или пользователь могли быть удалены после проверки: лайк к удалённому не ставится
+                    if (isDeleted(like.getFilmId(), like.getUserId())) {
+                        continue;
+                    }
+                    if (likeStorage.addLike(like.getFilmId(), like.getUserId())) {
+                        trendingCounter.likeAdded(like.getFilmId());
+                        events.publish(ChangeEvent.Type.LIKE_ADDED, like.getFilmId(), like.getUserId());
+                        responseCache.likeAdded(like.getFilmId(), likeStorage.getLikeCount(like.getFilmId()));
+                        commits.add(mutationLog.append(
+                                Mutation.edge(MutationType.ADD_LIKE, like.getFilmId(), like.getUserId())));
+                    }
+                }
+            } finally {
+                filmLocks.unlockAll(stripes);
+            }
+            Batches.joinAll(commits);
+            log.info("Пакетное добавление лайков: новых {}, отклонено {}", commits.size(),
+                    likes.size() - accepted.size());
+            return Batches.results(likes, errors, Like::getFilmId);
+        });
+    }
 
     public Collection<Film> getAllFilms() {
         log.info("Запрос списка всех фильмов");
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        validatePage(afterId, limit);
+        if (log.isDebugEnabled()) {
+            log.debug("Запрос страницы фильмов: after={} limit={}", afterId, limit);
+        }
+        return filmStorage.getFilmsAfter(afterId, limit);
+    }
+
+    /**
+     * Фильмы по диапазонам даты релиза и продолжительности (null — без границы), через вторичные индексы хранилища.
+     * С диапазоном дат фильмы идут по возрастанию даты релиза, а продолжительность проверяется у каждого
+     * найденного; без него — по возрастанию продолжительности.
+     */
+    public List<Film> findFilms(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration,
+                                Integer maxDuration, int limit) {
+        validatePage(0, limit);
+        if (releasedFrom != null && releasedTo != null && releasedFrom.isAfter(releasedTo)) {
+            throw new ValidationException("Параметр releasedFrom не может быть позже releasedTo");
+        }
+        if (minDuration != null && maxDuration != null && minDuration > maxDuration) {
+            throw new ValidationException("Параметр minDuration не может быть больше maxDuration");
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Запрос фильмов: релиз с {} по {}, продолжительность от {} до {}, limit={}",
+                    releasedFrom, releasedTo, minDuration, maxDuration, limit);
+        }
+        if (releasedFrom == null && releasedTo == null) {
+            return filmStorage.getFilmsByDuration(minDuration, maxDuration, film -> true, limit);
+        }
+        return filmStorage.getFilmsByReleaseDate(releasedFrom, releasedTo,
+                film -> (minDuration == null || film.getDuration() >= minDuration)
+                        && (maxDuration == null || film.getDuration() <= maxDuration), limit);
+    }
+
     public Film getFilmById(Long id) {
-        log.info("Запрос фильма по id={}", id);
-        return filmStorage.getFilmById(id)
-                .orElseThrow(() -> {
-                    log.warn("Фильм с id={} не найден", id);
-                    return new NotFoundException("Фильм с id " + id + " не найден");
-                });
+        return getFilmByIdLatency.time(() -> {
+            log.info("Запрос фильма по id={}", id);
+            return filmStorage.getFilmById(id)
+                    .orElseThrow(() -> {
+                        log.warn("Фильм с id={} не найден", id);
+                        return new NotFoundException("Фильм с id " + id + " не найден");
+                    });
+        });
     }
 
 
     public void addLike(Long filmId, Long userId) {
-        log.info("Добавление лайка фильму {} от пользователя {}", filmId, userId);
+        addLikeLatency.time(() -> {
+            log.info("Добавление лайка фильму {} от пользователя {}", filmId, userId);
+
+            CompletableFuture<Void> commit = null;
+            filmLocks.lock(filmId);
+            try {
+                // проверки под блокировкой: удаление фильма или пользователя не пропустит лайк, поставленный следом
+                requireFilmExists(filmId);
+                requireUserExists(userId);
+                if (likeStorage.addLike(filmId, userId)) {
+                    trendingCounter.likeAdded(filmId);
+                    events.publish(ChangeEvent.Type.LIKE_ADDED, filmId, userId);
+                    responseCache.likeAdded(filmId, likeStorage.getLikeCount(filmId));
+                    commit = mutationLog.append(Mutation.edge(MutationType.ADD_LIKE, filmId, userId));
+                }
+            } finally {
+                filmLocks.unlock(filmId);
+            }
+            if (commit != null) {
+                commit.join();
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("У фильма {} теперь {} лайков", filmId, likeStorage.getLikeCount(filmId));
+            }
+        });
+    }
 
-        requireFilmExists(filmId);
-        requireUserExists(userId);
 
-        likesMap.putIfAbsent(filmId, new HashSet<>());
-        likesMap.get(filmId).add(userId);
+    public void removeLike(Long filmId, Long userId) {
+        removeLikeLatency.time(() -> {
+            log.info("Удаление лайка у фильма {} от пользователя {}", filmId, userId);
+
+            CompletableFuture<Void> commit = null;
+            filmLocks.lock(filmId);
+            try {
+                // проверки под блокировкой, как в addLike: удаление фильма не пройдёт между проверкой и снятием
+                requireFilmExists(filmId);
+                requireUserExists(userId);
+                if (likeStorage.removeLike(filmId, userId)) {
+                    trendingCounter.likeRemoved(filmId);
+                    events.publish(ChangeEvent.Type.LIKE_REMOVED, filmId, userId);
+                    responseCache.likeRemoved(filmId);
+                    commit = mutationLog.append(Mutation.edge(MutationType.REMOVE_LIKE, filmId, userId));
+                }
+            } finally {
+                filmLocks.unlock(filmId);
+            }
+            if (commit != null) {
+                commit.join();
+            }
+
+            log.debug("Пользователь {} убрал лайк с фильма {}", userId, filmId);
+        });
+    }
 
-        log.debug("У фильма {} теперь {} лайков", filmId, likesMap.get(filmId).size());
+    /**
+     * Удаляет фильм из хранилища, поиска и кэша. Лайки фильма остаются: их снимает DeletionService через
+     * detachFilmLikes и detachFilmLike. При восстановлении запись журнала DELETE_FILM снимает их сама.
+     */
+    public Film deleteFilm(Long filmId) {
+        return deleteFilmLatency.time(() -> {
+            log.info("Удаление фильма id={}", filmId);
+            if (filmId == null) {
+                throw new NotFoundException("Фильм с id null не найден");
+            }
+
+            Film removed;
+            CompletableFuture<Void> commit;
+            filmLocks.lock(filmId);
+            try {
+                removed = filmStorage.deleteFilm(filmId)
+                        .orElseThrow(() -> new NotFoundException("Фильм с id " + filmId + " не найден"));
+                searchIndex.remove(filmId);
+                responseCache.filmDeleted(filmId);
+                events.publish(ChangeEvent.Type.FILM_DELETED, filmId, 0);
+                commit = mutationLog.append(Mutation.deletion(MutationType.DELETE_FILM, filmId));
+            } finally {
+                filmLocks.unlock(filmId);
+            }
+            commit.join();
+            return removed;
+        });
     }
 
+    /**
+     * Снимает лайки удалённого фильма с его стороны одной заменой — фильм сразу уходит из популярных — и
+     * возвращает лайкнувших: дальше detachFilmLike чистит только их списки.
+     */
+    long[] detachFilmLikes(long filmId) {
+        filmLocks.lock(filmId);
+        try {
+            long[] likedBy = likeStorage.removeFilmLikes(filmId);
+            responseCache.likeRemoved(filmId);
+            return likedBy;
+        } finally {
+            filmLocks.unlock(filmId);
+        }
+    }
 
-    public void removeLike(Long filmId, Long userId) {
-        log.info("Удаление лайка у фильма {} от пользователя {}", filmId, userId);
+    /**
+     * Снимает обратный индекс удалённого пользователя и возвращает его фильмы; вызывается после awaitLikeWriters.
+     * Его лайки остаются в числе лайков фильмов, пока detachUserLike не снимет каждый.
+     */
+    long[] detachUserLikes(long userId) {
+        return likeStorage.removeUserLikes(userId);
+    }
 
-        requireFilmExists(filmId);
-        requireUserExists(userId);
+    /**
+     * Снятие лайка удалённого фильма со стороны лайкнувшего. Фильма нет ни в хранилище, ни в популярных,
+     * его записи кэша сброшены в detachFilmLikes, новый лайк ему не поставить — остаётся обратный индекс, и
+     * блокировка фильма не нужна. Отдельного события и записи журнала нет: их заменяет FILM_DELETED.
+     */
+    void detachFilmLike(long filmId, long userId) {
+        likeStorage.removeLike(filmId, userId);
+    }
 
-        Set<Long> likes = likesMap.get(filmId);
-        if (likes != null) {
-            likes.remove(userId);
+    /**
+     * Снятие лайка удалённого пользователя. Число лайков фильма меняется, поэтому сбрасываются популярные
+     * списки. Тренды не трогаются: лайк остаётся в корзине, куда попал, и уйдёт из окна вместе с ней, а не
+     * вычтется из самой новой. Отдельного события и записи журнала нет: их заменяет USER_DELETED.
+     */
+    void detachUserLike(long filmId, long userId) {
+        filmLocks.lock(filmId);
+        try {
+            if (likeStorage.removeLike(filmId, userId)) {
+                responseCache.likeRemoved(filmId);
+            }
+        } finally {
+            filmLocks.unlock(filmId);
         }
+    }
 
-        log.debug("Пользователь {} убрал лайк с фильма {}", userId, filmId);
+    /**
+     * Дожидается лайков, которые уже прошли проверки под блокировкой фильма: после возврата новый лайк
+     * удалённого пользователя поставить нельзя, и его список лайкнутых фильмов больше не пополняется.
+     */
+    void awaitLikeWriters() {
+        filmLocks.unlockAll(filmLocks.lockEveryStripe());
     }
 
 
     public List<Film> getPopularFilms(int count) {
-        if (count <= 0) {
-            throw new ValidationException("Параметр count должен быть положительным числом");
-        }
+        return getPopularFilmsLatency.time(() -> {
+            if (count <= 0) {
+                throw new ValidationException("Параметр count должен быть положительным числом");
+            }
+
+            log.info("Запрос топ-{} популярных фильмов", count);
+
+            List<Long> topIds = likeStorage.getTopFilmIds(count);
+            // count сверху не ограничен (большой count — «весь каталог»): резервируем по найденному, а не по count
+            List<Film> result = new ArrayList<>(Math.min(count, topIds.size() + MAX_PAGE_SIZE));
+            result.addAll(filmStorage.getFilmsByIds(toArray(topIds)));
+            if (result.size() < count) {
+                // фильмов с лайками меньше count — все они уже в topIds, добираем фильмами без лайков
+                long[] fillIds = filmStorage.getFilmIds()
+                        .filter(id -> likeStorage.getLikeCount(id) == 0)
+                        .limit(count - result.size())
+                        .toArray();
+                result.addAll(filmStorage.getFilmsByIds(fillIds));
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Сформирован список популярных фильмов: {}", result.stream().map(Film::getId).toList());
+            }
+            return result;
+        });
+    }
 
-        log.info("Запрос топ-{} популярных фильмов", count);
+    /**
+     * Поиск по словам названия и описания; последнее слово при prefix считается началом слова (автодополнение).
+     */
+    public List<Film> searchFilms(String query, int limit, boolean prefix, boolean boostByLikes) {
+        return searchFilmsLatency.time(() -> {
+            if (query == null || query.isBlank()) {
+                throw new ValidationException("Параметр query не может быть пустым");
+            }
+            if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Поиск фильмов: '{}' limit={}", query, limit);
+            }
+            TopCounts found = searchIndex.search(query, limit, prefix,
+                    boostByLikes ? likeStorage::getLikeCount : null);
+            return filmStorage.getFilmsByIds(found.ids());
+        });
+    }
 
-        List<Film> films = new ArrayList<>(filmStorage.getAllFilms());
-        films.sort((f1, f2) -> {
-            int likes1 = likesMap.getOrDefault(f1.getId(), Collections.emptySet()).size();
-            int likes2 = likesMap.getOrDefault(f2.getId(), Collections.emptySet()).size();
-            return Integer.compare(likes2, likes1);
+    /**
+     * Фильмы с наибольшим числом лайков за последний час, день или неделю. В отличие от популярных,
+     * список не добирается фильмами без лайков в окне.
+     */
+    public List<Film> getTrendingFilms(String window, int count) {
+        return getTrendingFilmsLatency.time(() -> {
+            if (count <= 0 || count > MAX_PAGE_SIZE) {
+                throw new ValidationException("Параметр count должен быть от 1 до " + MAX_PAGE_SIZE);
+            }
+            TrendingCounter.Window parsed = TrendingCounter.Window.parse(window);
+            log.info("Запрос топ-{} фильмов в тренде за {}", count, parsed);
+
+            return filmStorage.getFilmsByIds(toArray(trendingCounter.getTopFilmIds(parsed, count)));
         });
+    }
 
-        List<Film> result = films.stream().limit(count).collect(Collectors.toList());
-        log.debug("Сформирован список популярных фильмов: {}",
-                result.stream().map(Film::getId).toList());
-        return result;
+    /**
+     * Фильмы, которые лайкнули пользователи с похожими лайками, а сам пользователь — нет; самые рекомендуемые первыми.
+     */
+    public List<Film> getRecommendations(Long userId, int limit) {
+        return getRecommendationsLatency.time(() -> {
+            if (limit <= 0 || limit > MAX_RECOMMENDATIONS) {
+                throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_RECOMMENDATIONS);
+            }
+            log.info("Запрос рекомендаций фильмов для пользователя {}", userId);
+            requireUserExists(userId);
+
+            FilmRecommender.Ranking ranking = filmRecommender.recommend(userId, limit);
+            if (ranking.truncated()) {
+                log.debug("Рекомендации фильмов для пользователя {} построены по части лайков", userId);
+            }
+            return filmStorage.getFilmsByIds(ranking.ids());
+        });
+    }
+
+    public int getLikeCount(Long filmId) {
+        return likeStorage.getLikeCount(filmId);
+    }
+
+    private void validatePage(long afterId, int limit) {
+        if (afterId < 0) {
+            throw new ValidationException("Параметр after не может быть отрицательным");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Индексирует новый фильм под его полосой. Фильм уже виден, и правка или удаление могли пройти раньше:
+     * индексируется текущая версия из хранилища, а удалённый не возвращается в индекс.
+     */
+    private void indexCurrent(long filmId) {
+        filmStorage.getFilmById(filmId).ifPresent(searchIndex::add);
     }
 
     private void validateFilm(Film film) {
@@ -127,13 +536,27 @@ public class FilmService {
         }
     }
 
-    private Film requireFilmExists(Long filmId) {
-        return filmStorage.getFilmById(filmId)
-                .orElseThrow(() -> new NotFoundException("Фильм с id " + filmId + " не найден"));
+    private boolean isDeleted(long filmId, long userId) {
+        return !filmStorage.containsFilm(filmId) || userStorage.getUserById(userId).isEmpty();
+    }
+
+    private void requireFilmExists(Long filmId) {
+        if (filmId == null || !filmStorage.containsFilm(filmId)) {
+            throw new NotFoundException("Фильм с id " + filmId + " не найден");
+        }
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        long[] array = new long[ids.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        return array;
     }
 
     private void requireUserExists(Long userId) {
-        userStorage.getUserById(userId)
+        Optional.ofNullable(userId)
+                .flatMap(userStorage::getUserById)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
     }
 
@@ -0,0 +1,377 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.NeighbourCountTask;
+import ru.yandex.practicum.filmorate.util.TopCounts;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * «Возможно, вы знакомы»: кандидаты — друзья друзей, ранжированные по числу общих друзей.
+ * <p>
+ * Обычный запрос обходит два шага графа (NeighbourCountTask), но просматривает не больше maxEdges рёбер
+ * второго шага; если друзей больше parallelThreshold, их списки обходятся параллельно.
+ * <p>
+ * Для пользователей, у которых не меньше precomputeDegree друзей, двухшаговый обход слишком дорог даже
+ * с ограничением, поэтому счётчики общих друзей со всеми пользователями строятся один раз целиком и дальше
+ * поддерживаются по каждому изменению дружбы. Счётчики строятся без блокировок (build): изменения дружбы
+ * за время обхода только отмечают задетых пользователей, а publish под всеми полосами UserService заменяет
+ * вклад прочитанных версий их списков вкладом текущих. friendshipAdded и friendshipRemoved вызываются под
+ * полосами обоих пользователей, сразу после изменения хранилища. Сам счётчик защищён своей ReentrantLock (не монитором:
+ * виртуальный поток под монитором занимает поток-носитель); списки друзей читаются до её захвата, потому что
+ * в кластере хранилище дружбы отвечает по сети.
+ * <p>
+ * Чтобы изменение дружбы не перебирало все построенные счётчики, для каждого пользователя хранится множество
+ * владельцев счётчиков, у которых он в друзьях: ребро (a, b) трогает только владельцев из множеств a и b.
+ */
+@Slf4j
+@Component
+public class FriendRecommender {
+    private final FriendshipStorage friendshipStorage;
+    private final int maxEdges;
+    private final int parallelThreshold;
+    private final int precomputeDegree;
+    private final int maxPrecomputed;
+    private final Map<Long, Precomputed> precomputed = new ConcurrentHashMap<>();
+    // друг → владельцы построенных счётчиков, у которых он в друзьях; меняется под полосами обоих концов ребра
+    private final Map<Long, Set<Long>> ownersByFriend = new ConcurrentHashMap<>();
+    private final Map<Long, Build> building = new ConcurrentHashMap<>();
+
+    public FriendRecommender(FriendshipStorage friendshipStorage,
+                             @Value("${filmorate.recommendations.max-edges}") int maxEdges,
+                             @Value("${filmorate.recommendations.parallel-threshold}") int parallelThreshold,
+                             @Value("${filmorate.recommendations.precompute-degree}") int precomputeDegree,
+                             @Value("${filmorate.recommendations.max-precomputed}") int maxPrecomputed) {
+        this.friendshipStorage = friendshipStorage;
+        this.maxEdges = maxEdges;
+        this.parallelThreshold = parallelThreshold;
+        this.precomputeDegree = precomputeDegree;
+        this.maxPrecomputed = maxPrecomputed;
+    }
+
+    /**
+     * Ранжированные кандидаты: ids и mutualFriends одной длины, truncated — обход упёрся в ограничение работы.
+     */
+    public record Ranking(long[] ids, int[] mutualFriends, boolean truncated) {
+    }
+
+    public Ranking recommend(long userId, int limit) {
+        long[] friends = friendshipStorage.getFriendIds(userId);
+        Precomputed index = precomputed.get(userId);
+        if (index != null) {
+            index.lock.lock();
+            try {
+                return top(index.counts, userId, friends, limit, false);
+            } finally {
+                index.lock.unlock();
+            }
+        }
+        if (friends.length == 0) {
+            return new Ranking(new long[0], new int[0], false);
+        }
+        NeighbourCountTask task = twoHop(friends, maxEdges);
+        LongIntCounter result = task.run();
+        return top(result, userId, friends, limit, task.isTruncated());
+    }
+
+    public boolean needsPrecompute(long userId) {
+        return !precomputed.containsKey(userId)
+                && !building.containsKey(userId)
+                && precomputed.size() + building.size() < maxPrecomputed
+                && friendshipStorage.getFriendCount(userId) >= precomputeDegree;
+    }
+
+    public boolean isPrecomputed(long userId) {
+        return precomputed.containsKey(userId);
+    }
+
+    /**
+     * Строит и сразу публикует счётчики; для вызывающего, при котором дружба параллельно не меняется.
+     */
+    public void precompute(long userId) {
+        Build build = build(userId);
+        if (build != null) {
+            publish(build);
+        }
+    }
+
+    /**
+     * Полный обход без ограничения работы и без блокировок. Сборка регистрируется до чтения первого списка,
+     * поэтому любое изменение дружбы, которое обход мог не увидеть, отмечено в ней. null — счётчики уже есть
+     * или их строит другой запрос. Построенное нужно передать в publish или cancel.
+     */
+    public Build build(long userId) {
+        Build build = new Build(userId);
+        if (precomputed.containsKey(userId) || building.putIfAbsent(userId, build) != null) {
+            return null;
+        }
+        try {
+            build.friends = friendshipStorage.getFriendIds(userId);
+            build.counts = new NeighbourCountTask(build.friends, NeighbourCountTask.UNBOUNDED, parallelThreshold,
+                    id -> {
+                        long[] friends = friendshipStorage.getFriendIds(id);
+                        build.read.put(id, friends);
+                        return friends;
+                    },
+                    friendshipStorage::getFriendCount).run();
+            return build;
+        } catch (RuntimeException e) {
+            cancel(build);
+            throw e;
+        }
+    }
+
+    /**
+     * Публикует счётчики; вызывающий держит все полосы блокировок пользователей, так что граф неподвижен.
+     * Для каждого задетого за время обхода пользователя вычитается вклад прочитанной версии его списка
+     * и прибавляется вклад текущей — это верно, прочитан ли список до изменения или после: версии неизменяемы.
+     */
+    public void publish(Build build) {
+        if (!building.remove(build.owner, build) || precomputed.containsKey(build.owner)) {
+            return;
+        }
+        long[] friends = friendshipStorage.getFriendIds(build.owner);
+        for (long id : build.touched) {
+            long[] read = Arrays.binarySearch(build.friends, id) >= 0 ? build.read.get(id) : null;
+            long[] current = Arrays.binarySearch(friends, id) >= 0 ? friendshipStorage.getFriendIds(id) : null;
+            if (read == current) {
+                continue;
+            }
+            if (read != null) {
+                for (long candidate : read) {
+                    build.counts.add(candidate, -1);
+                }
+            }
+            if (current != null) {
+                for (long candidate : current) {
+                    build.counts.add(candidate, 1);
+                }
+            }
+        }
+        precomputed.put(build.owner, new Precomputed(build.counts));
+        for (long friendId : friends) {
+            link(friendId, build.owner);
+        }
+        log.info("Построены рекомендации друзей для пользователя {}: {} друзей, {} кандидатов, {} изменений за обход",
+                build.owner, friends.length, build.counts.size(), build.touched.size());
+    }
+
+    /**
+     * Снимает сборку, которая не будет опубликована; после publish ничего не делает.
+     */
+    public void cancel(Build build) {
+        building.remove(build.owner, build);
+    }
+
+    /**
+     * Список друзей удалённого пользователя снят целиком: его вклад как общего друга вычитается сразу из всех
+     * счётчиков, а сам он перестаёт быть кандидатом. Вызывается под полосой пользователя сразу после снятия
+     * списка; дружба на стороне друзей дальше снимается через friendDetached.
+     */
+    public void userDeleted(long userId, long[] friends) {
+        touch(userId);
+        if (precomputed.remove(userId) != null) {
+            for (long friendId : friends) {
+                unlink(friendId, userId);
+            }
+        }
+        for (long owner : ownersOf(userId)) {
+            Precomputed index = precomputed.get(owner);
+            if (index == null) {
+                continue;
+            }
+            index.lock.lock();
+            try {
+                for (long id : friends) {
+                    if (id != owner) {
+                        index.counts.add(id, -1);
+                    }
+                }
+            } finally {
+                index.lock.unlock();
+            }
+        }
+        precomputed.values().forEach(index -> {
+            index.lock.lock();
+            try {
+                index.counts.add(userId, -index.counts.get(userId));
+            } finally {
+                index.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Удалённый пользователь снят из списка друга. Вклад в общих друзей уже вычтен в userDeleted; остаётся
+     * кандидат, которого мог насчитать индекс, построенный после удаления по ещё не дочищенным спискам.
+     */
+    public void friendDetached(long userId, long friendId) {
+        touch(userId);
+        touch(friendId);
+        if (precomputed.isEmpty()) {
+            return;
+        }
+        if (precomputed.containsKey(friendId)) {
+            unlink(userId, friendId);
+        }
+        for (long owner : ownersOf(friendId)) {
+            Precomputed index = precomputed.get(owner);
+            if (index == null) {
+                continue;
+            }
+            index.lock.lock();
+            try {
+                if (index.counts.get(userId) > 0) {
+                    index.counts.add(userId, -1);
+                }
+            } finally {
+                index.lock.unlock();
+            }
+        }
+    }
+
+    public void friendshipAdded(long userId, long friendId) {
+        friendshipChanged(userId, friendId, 1);
+    }
+
+    public void friendshipRemoved(long userId, long friendId) {
+        friendshipChanged(userId, friendId, -1);
+    }
+
+    /**
+     * counts[c] — число общих друзей пользователя h и c. Ребро (a, b) меняет его так:
+     * если a — это h, то b входит в друзья h (или выходит из них) и каждый друг b получает ±1;
+     * если a — друг h, то ±1 получает b; то же с переставленными a и b.
+     */
+    private void friendshipChanged(long userId, long friendId, int delta) {
+        touch(userId);
+        touch(friendId);
+        if (precomputed.isEmpty()) {
+            return;
+        }
+        ownerChanged(userId, friendId, delta);
+        ownerChanged(friendId, userId, delta);
+        mutualChanged(userId, friendId, delta);
+        mutualChanged(friendId, userId, delta);
+    }
+
+    /**
+     * Владелец счётчиков сам получил или потерял друга friendId: ±1 получает каждый друг friendId.
+     */
+    private void ownerChanged(long owner, long friendId, int delta) {
+        Precomputed index = precomputed.get(owner);
+        if (index == null) {
+            return;
+        }
+        if (delta > 0) {
+            link(friendId, owner);
+        } else {
+            unlink(friendId, owner);
+        }
+        long[] friendsOfFriend = friendshipStorage.getFriendIds(friendId);
+        index.lock.lock();
+        try {
+            for (long id : friendsOfFriend) {
+                if (id != owner) {
+                    index.counts.add(id, delta);
+                }
+            }
+        } finally {
+            index.lock.unlock();
+        }
+    }
+
+    /**
+     * friendId — общий друг владельцев из его множества и candidate: ±1 получает candidate. Сам candidate,
+     * если он владелец, пропускается — его изменение разобрано в ownerChanged.
+     */
+    private void mutualChanged(long friendId, long candidate, int delta) {
+        for (long owner : ownersOf(friendId)) {
+            Precomputed index = owner == candidate ? null : precomputed.get(owner);
+            if (index == null) {
+                continue;
+            }
+            index.lock.lock();
+            try {
+                index.counts.add(candidate, delta);
+            } finally {
+                index.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Список друзей userId поменялся: идущие сборки пересчитают его вклад при публикации.
+     */
+    private void touch(long userId) {
+        if (building.isEmpty()) {
+            return;
+        }
+        for (Build build : building.values()) {
+            build.touched.add(userId);
+        }
+    }
+
+    private Set<Long> ownersOf(long friendId) {
+        return ownersByFriend.getOrDefault(friendId, Set.of());
+    }
+
+    private void link(long friendId, long owner) {
+        ownersByFriend.compute(friendId, (ignored, owners) -> {
+            Set<Long> updated = owners == null ? ConcurrentHashMap.newKeySet(2) : owners;
+            updated.add(owner);
+            return updated;
+        });
+    }
+
+    private void unlink(long friendId, long owner) {
+        ownersByFriend.computeIfPresent(friendId, (ignored, owners) -> {
+            owners.remove(owner);
+            return owners.isEmpty() ? null : owners;
+        });
+    }
+
+    private static Ranking top(LongIntCounter counts, long userId, long[] friends, int limit, boolean truncated) {
+        TopCounts top = TopCounts.select(counts, limit,
+                id -> id == userId || Arrays.binarySearch(friends, id) >= 0);
+        return new Ranking(top.ids(), top.counts(), truncated);
+    }
+
+    private NeighbourCountTask twoHop(long[] friends, long budget) {
+        return new NeighbourCountTask(friends, budget, parallelThreshold, friendshipStorage::getFriendIds,
+                friendshipStorage::getFriendCount);
+    }
+
+    /**
+     * Счётчики, которые строятся без блокировок: прочитанные версии списков друзей и пользователи, чьи списки
+     * менялись с начала обхода.
+     */
+    public static final class Build {
+        private final long owner;
+        private final Set<Long> touched = ConcurrentHashMap.newKeySet();
+        private final Map<Long, long[]> read = new ConcurrentHashMap<>();
+        private long[] friends;
+        private LongIntCounter counts;
+
+        private Build(long owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Построенные счётчики общих друзей и блокировка, под которой их читают и меняют.
+     */
+    private record Precomputed(LongIntCounter counts, ReentrantLock lock) {
+        private Precomputed(LongIntCounter counts) {
+            this(counts, new ReentrantLock());
+        }
+    }
+}
@@ -2,128 +2,504 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.EventRing;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.metrics.LatencyHistogram;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.Mutation;
+import ru.yandex.practicum.filmorate.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.persistence.MutationType;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.Batches;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
 
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
 
 @Slf4j
 @Service
 public class UserService {
-    private final UserStorage userStorage;
-    private final Map<Long, Set<Long>> friendsMap = new HashMap<>();
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_RECOMMENDATIONS = 100;
+    public static final int MAX_BIRTHDAY_DAYS = 366;
+    private static final String DUPLICATE_USER = "Пользователь с таким email или логином уже существует";
 
-    public UserService(UserStorage userStorage) {
+    private final UserStorage userStorage;
+    private final FriendshipStorage friendshipStorage;
+    private final MutationLog mutationLog;
+    private final ResponseCache responseCache;
+    private final FriendRecommender friendRecommender;
+    private final EventRing events;
+    // дружба берёт полосы обоих участников, так что её запись в журнале не обгонит удаление любого из них
+    private final StripedLocks userLocks = new StripedLocks(64);
+    private final LatencyHistogram addUserLatency;
+    private final LatencyHistogram updateUserLatency;
+    private final LatencyHistogram addUsersLatency;
+    private final LatencyHistogram updateUsersLatency;
+    private final LatencyHistogram addFriendsLatency;
+    private final LatencyHistogram getUserByIdLatency;
+    private final LatencyHistogram getUserByEmailLatency;
+    private final LatencyHistogram getUserByLoginLatency;
+    private final LatencyHistogram addFriendLatency;
+    private final LatencyHistogram removeFriendLatency;
+    private final LatencyHistogram deleteUserLatency;
+    private final LatencyHistogram getFriendsLatency;
+    private final LatencyHistogram getCommonFriendsLatency;
+    private final LatencyHistogram getFriendRecommendationsLatency;
+
+    public UserService(UserStorage userStorage, FriendshipStorage friendshipStorage, MutationLog mutationLog,
+                       MetricsRegistry metrics, ResponseCache responseCache, FriendRecommender friendRecommender,
+                       EventRing events) {
         this.userStorage = userStorage;
+        this.friendshipStorage = friendshipStorage;
+        this.mutationLog = mutationLog;
+        this.responseCache = responseCache;
+        this.friendRecommender = friendRecommender;
+        this.events = events;
+        addUserLatency = metrics.histogram("user.addUser");
+        updateUserLatency = metrics.histogram("user.updateUser");
+        addUsersLatency = metrics.histogram("user.addUsers");
+        updateUsersLatency = metrics.histogram("user.updateUsers");
+        addFriendsLatency = metrics.histogram("user.addFriends");
+        getUserByIdLatency = metrics.histogram("user.getUserById");
+        getUserByEmailLatency = metrics.histogram("user.getUserByEmail");
+        getUserByLoginLatency = metrics.histogram("user.getUserByLogin");
+        addFriendLatency = metrics.histogram("user.addFriend");
+        removeFriendLatency = metrics.histogram("user.removeFriend");
+        deleteUserLatency = metrics.histogram("user.deleteUser");
+        getFriendsLatency = metrics.histogram("user.getFriends");
+        getCommonFriendsLatency = metrics.histogram("user.getCommonFriends");
+        getFriendRecommendationsLatency = metrics.histogram("user.getFriendRecommendations");
+        metrics.gauge("users", () -> userStorage.getAllUsers().size());
+        metrics.gauge("friendships", friendshipStorage::getFriendshipCount);
     }
 
     public User addUser(User user) {
-        log.info("Добавление пользователя: {}", user);
-        validateUser(user);
-        User created = userStorage.addUser(user);
-        friendsMap.putIfAbsent(created.getId(), new HashSet<>());
-        log.debug("Пользователь добавлен с id={}", created.getId());
-        return created;
+        return addUserLatency.time(() -> {
+            log.info("Добавление пользователя {}", user.getLogin());
+            validateUser(user);
+            // ADD_USER встаёт в очередь раньше, чем пользователя увидят другие запросы: их дружба ляжет после него
+            CompletableFuture<?>[] commit = new CompletableFuture<?>[1];
+            User created = userStorage.addUser(user,
+                    added -> commit[0] = mutationLog.append(Mutation.user(MutationType.ADD_USER, added)));
+            commit[0].join();
+            log.debug("Пользователь добавлен с id={}", created.getId());
+            return created;
+        });
     }
 
     public User updateUser(User user) {
-        log.info("Обновление пользователя: {}", user);
-
-        requireUserExists(user.getId());
-        validateUser(user);
+        return updateUserLatency.time(() -> {
+            log.info("Обновление пользователя id={}", user.getId());
+
+            requireUserExists(user.getId());
+            validateUser(user);
+
+            User updated;
+            CompletableFuture<Void> commit;
+            userLocks.lock(user.getId());
+            try {
+                updated = userStorage.updateUser(user);
+                responseCache.userUpdated(updated.getId());
+                commit = mutationLog.append(Mutation.user(MutationType.UPDATE_USER, updated));
+            } finally {
+                userLocks.unlock(user.getId());
+            }
+            commit.join();
+            log.debug("Пользователь обновлён: id={}", updated.getId());
+
+            return updated;
+        });
+    }
 
-        User updated = userStorage.updateUser(user);
 
-        friendsMap.putIfAbsent(updated.getId(), new HashSet<>());
-        log.debug("Пользователь обновлён: id={}", updated.getId());
+    /**
+     * Пакетное создание: проверки идут параллельно, прошедшие их пользователи пишутся в хранилище одной пачкой,
+     * а журнал сбрасывается на диск один раз на всю пачку. Результаты — в порядке элементов запроса.
+     */
+    public List<BatchResult> addUsers(List<User> users) {
+        return addUsersLatency.time(() -> {
+            String[] errors = Batches.validate(users, this::validateUser);
+            List<CompletableFuture<Void>> commits = new ArrayList<>(users.size());
+            List<User> created = userStorage.addUsers(Batches.accepted(users, errors),
+                    added -> commits.add(mutationLog.append(Mutation.user(MutationType.ADD_USER, added))));
+            Batches.rejectSkipped(users, errors, created, DUPLICATE_USER);
+            Batches.joinAll(commits);
+            log.info("Пакетное создание пользователей: создано {}, отклонено {}", created.size(),
+                    users.size() - created.size());
+            return Batches.results(users, errors, User::getId);
+        });
+    }
 
-        return updated;
+    public List<BatchResult> updateUsers(List<User> users) {
+        return updateUsersLatency.time(() -> {
+            String[] errors = Batches.validate(users, user -> {
+                requireUserExists(user.getId());
+                validateUser(user);
+            });
+            List<User> accepted = Batches.accepted(users, errors);
+            List<CompletableFuture<Void>> commits = new ArrayList<>(accepted.size());
+            List<User> updated;
+            int[] stripes = userLocks.lockAll(accepted.stream().mapToLong(User::getId).toArray());
+            try {
+                updated = userStorage.updateUsers(accepted);
+                for (User user : updated) {
+                    responseCache.userUpdated(user.getId());
+                    commits.add(mutationLog.append(Mutation.user(MutationType.UPDATE_USER, user)));
+                }
+            } finally {
+                userLocks.unlockAll(stripes);
+            }
+            Batches.rejectSkipped(users, errors, updated, DUPLICATE_USER);
+            Batches.joinAll(commits);
+            log.info("Пакетное обновление пользователей: обновлено {}, отклонено {}", updated.size(),
+                    users.size() - updated.size());
+            return Batches.results(users, errors, User::getId);
+        });
     }
 
+    public List<BatchResult> addFriends(List<Friendship> friendships) {
+        return addFriendsLatency.time(() -> {
+            String[] errors = Batches.validate(friendships, friendship -> {
+                requireUserExists(friendship.getUserId());
+                requireUserExists(friendship.getFriendId());
+                if (friendship.getUserId().equals(friendship.getFriendId())) {
+                    throw new ValidationException("Пользователь не может добавить в друзья сам себя");
+                }
+            });
+            List<Friendship> accepted = Batches.accepted(friendships, errors);
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            int[] stripes = userLocks.lockAll(accepted.stream()
+                    .flatMapToLong(friendship -> LongStream.of(friendship.getUserId(), friendship.getFriendId()))
+                    .toArray());
+            try {
+                for (Friendship friendship : accepted) {
+                    // пользователь мог быть удалён после проверки: дружба с удалённым не добавляется
+                    if (userStorage.getUserById(friendship.getUserId()).isEmpty()
+                            || userStorage.getUserById(friendship.getFriendId()).isEmpty()) {
+                        continue;
+                    }
+                    if (friendshipStorage.addFriendship(friendship.getUserId(), friendship.getFriendId())) {
+                        responseCache.friendshipChanged(friendship.getUserId(), friendship.getFriendId());
+                        friendRecommender.friendshipAdded(friendship.getUserId(), friendship.getFriendId());
+                        events.publish(ChangeEvent.Type.FRIEND_ADDED, friendship.getUserId(),
+                                friendship.getFriendId());
+                        commits.add(mutationLog.append(Mutation.edge(MutationType.ADD_FRIEND,
+                                friendship.getUserId(), friendship.getFriendId())));
+                    }
+                }
+            } finally {
+                userLocks.unlockAll(stripes);
+            }
+            Batches.joinAll(commits);
+            log.info("Пакетное добавление в друзья: новых {}, отклонено {}", commits.size(),
+                    friendships.size() - accepted.size());
+            return Batches.results(friendships, errors, Friendship::getUserId);
+        });
+    }
 
     public Collection<User> getAllUsers() {
         log.info("Запрос списка всех пользователей");
         return userStorage.getAllUsers();
     }
 
-    public User getUserById(Long id) {
-        log.info("Запрос пользователя по id={}", id);
-        return requireUserExists(id);
+    public List<User> getUsersPage(long afterId, int limit) {
+        if (afterId < 0) {
+            throw new ValidationException("Параметр after не может быть отрицательным");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Запрос страницы пользователей: after={} limit={}", afterId, limit);
+        }
+        return userStorage.getUsersAfter(afterId, limit);
     }
 
-    public void addFriend(Long userId, Long friendId) {
-        if (userId.equals(friendId)) {
-            throw new ValidationException("Пользователь не может добавить в друзья сам себя");
+    /**
+     * Пользователи, у которых день рождения выпадает на один из days дней начиная с date, — для поздравлений.
+     * Окно может переходить через Новый год; родившиеся 29 февраля в невисокосный год поздравляются 28-го.
+     */
+    public List<User> getUsersByBirthday(LocalDate date, int days, int limit) {
+        if (days <= 0 || days > MAX_BIRTHDAY_DAYS) {
+            throw new ValidationException("Параметр days должен быть от 1 до " + MAX_BIRTHDAY_DAYS);
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Запрос дней рождения: с {} на {} дн., limit={}", date, days, limit);
+        }
+        if (days == MAX_BIRTHDAY_DAYS) {
+            return userStorage.getUsersByBirthday(null, null, limit);
+        }
+        LocalDate last = date.plusDays(days - 1);
+        MonthDay from = MonthDay.from(date);
+        MonthDay to = MonthDay.from(last);
+        if (!last.isLeapYear() && to.equals(MonthDay.of(2, 28))) {
+            to = MonthDay.of(2, 29);
         }
-        log.info("Добавление в друзья: userId={} friendId={}", userId, friendId);
+        if (!from.isAfter(to)) {
+            return userStorage.getUsersByBirthday(from, to, limit);
+        }
+        List<User> result = new ArrayList<>(userStorage.getUsersByBirthday(from, null, limit));
+        if (result.size() < limit) {
+            result.addAll(userStorage.getUsersByBirthday(null, to, limit - result.size()));
+        }
+        return result;
+    }
 
-        requireUserExists(userId);
-        requireUserExists(friendId);
+    public User getUserByEmail(String email) {
+        return getUserByEmailLatency.time(() -> {
+            log.info("Запрос пользователя по email {}", email);
+            return userStorage.getUserByEmail(email)
+                    .orElseThrow(() -> new NotFoundException("Пользователь с email " + email + " не найден"));
+        });
+    }
 
-        friendsMap.putIfAbsent(userId, new HashSet<>());
-        friendsMap.putIfAbsent(friendId, new HashSet<>());
+    public User getUserByLogin(String login) {
+        return getUserByLoginLatency.time(() -> {
+            log.info("Запрос пользователя по логину {}", login);
+            return userStorage.getUserByLogin(login)
+                    .orElseThrow(() -> new NotFoundException("Пользователь с логином " + login + " не найден"));
+        });
+    }
 
-        friendsMap.get(userId).add(friendId);
-        friendsMap.get(friendId).add(userId);
+    public User getUserById(Long id) {
+        return getUserByIdLatency.time(() -> {
+            log.info("Запрос пользователя по id={}", id);
+            return requireUserExists(id);
+        });
+    }
 
-        log.debug("Теперь пользователи {} и {} друзья", userId, friendId);
+    public void addFriend(Long userId, Long friendId) {
+        addFriendLatency.time(() -> {
+            if (userId.equals(friendId)) {
+                throw new ValidationException("Пользователь не может добавить в друзья сам себя");
+            }
+            log.info("Добавление в друзья: userId={} friendId={}", userId, friendId);
+
+            CompletableFuture<Void> commit = null;
+            userLocks.lockBoth(userId, friendId);
+            try {
+                // проверки под блокировкой: удаление любого из двоих не пропустит дружбу, добавленную следом
+                requireUserExists(userId);
+                requireUserExists(friendId);
+                if (friendshipStorage.addFriendship(userId, friendId)) {
+                    responseCache.friendshipChanged(userId, friendId);
+                    friendRecommender.friendshipAdded(userId, friendId);
+                    events.publish(ChangeEvent.Type.FRIEND_ADDED, userId, friendId);
+                    commit = mutationLog.append(Mutation.edge(MutationType.ADD_FRIEND, userId, friendId));
+                }
+            } finally {
+                userLocks.unlockBoth(userId, friendId);
+            }
+            if (commit != null) {
+                commit.join();
+            }
+
+            log.debug("Теперь пользователи {} и {} друзья", userId, friendId);
+        });
     }
 
     public void removeFriend(Long userId, Long friendId) {
-        if (userId.equals(friendId)) {
-            throw new ValidationException("Нельзя удалить самого себя из друзей");
-        }
-        log.info("Удаление из друзей: userId={} friendId={}", userId, friendId);
+        removeFriendLatency.time(() -> {
+            if (userId.equals(friendId)) {
+                throw new ValidationException("Нельзя удалить самого себя из друзей");
+            }
+            log.info("Удаление из друзей: userId={} friendId={}", userId, friendId);
+
+            CompletableFuture<Void> commit = null;
+            userLocks.lockBoth(userId, friendId);
+            try {
+                // проверки под блокировкой, как в addFriend: удаление любого из двоих не пройдёт между ними
+                requireUserExists(userId);
+                requireUserExists(friendId);
+                if (friendshipStorage.removeFriendship(userId, friendId)) {
+                    responseCache.friendshipChanged(userId, friendId);
+                    friendRecommender.friendshipRemoved(userId, friendId);
+                    events.publish(ChangeEvent.Type.FRIEND_REMOVED, userId, friendId);
+                    commit = mutationLog.append(Mutation.edge(MutationType.REMOVE_FRIEND, userId, friendId));
+                }
+            } finally {
+                userLocks.unlockBoth(userId, friendId);
+            }
+            if (commit != null) {
+                commit.join();
+            }
+
+            log.debug("Пользователи {} и {} больше не друзья", userId, friendId);
+        });
+    }
 
-        requireUserExists(userId);
-        requireUserExists(friendId);
+    /**
+     * Удаляет пользователя из хранилища и кэша. Дружба и лайки остаются: их снимает DeletionService через
+     * detachFriendList, detachFriend и методы FilmService. При восстановлении их снимает запись DELETE_USER.
+     */
+    public User deleteUser(Long userId) {
+        return deleteUserLatency.time(() -> {
+            log.info("Удаление пользователя id={}", userId);
+            if (userId == null) {
+                throw new NotFoundException("Пользователь с id null не найден");
+            }
+
+            User removed;
+            CompletableFuture<Void> commit;
+            userLocks.lock(userId);
+            try {
+                removed = userStorage.deleteUser(userId)
+                        .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
+                responseCache.userDeleted(userId);
+                events.publish(ChangeEvent.Type.USER_DELETED, userId, 0);
+                commit = mutationLog.append(Mutation.deletion(MutationType.DELETE_USER, userId));
+            } finally {
+                userLocks.unlock(userId);
+            }
+            commit.join();
+            return removed;
+        });
+    }
 
-        friendsMap.getOrDefault(userId, new HashSet<>()).remove(friendId);
-        friendsMap.getOrDefault(friendId, new HashSet<>()).remove(userId);
+    /**
+     * Снимает список друзей удалённого пользователя одной заменой и возвращает его: дальше дружба снимается
+     * только на стороне друзей, и снятие каждой стоит O(числа друзей друга), а не O(числа друзей удалённого).
+     */
+    long[] detachFriendList(long userId) {
+        userLocks.lock(userId);
+        try {
+            long[] friends = friendshipStorage.removeFriendList(userId);
+            friendRecommender.userDeleted(userId, friends);
+            return friends;
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
 
-        log.debug("Пользователи {} и {} больше не друзья", userId, friendId);
+    /**
+     * Снятие дружбы с удалённым пользователем. Кэш не трогается: списки друзей собираются только из существующих
+     * пользователей, а записи удалённого сброшены в deleteUser. Отдельного события и записи журнала нет.
+     */
+    void detachFriend(long userId, long friendId) {
+        userLocks.lockBoth(userId, friendId);
+        try {
+            if (friendshipStorage.removeFriendship(userId, friendId)) {
+                friendRecommender.friendDetached(userId, friendId);
+            }
+        } finally {
+            userLocks.unlockBoth(userId, friendId);
+        }
     }
 
-    public Set<User> getFriends(Long userId) {
-        log.info("Запрос списка друзей пользователя {}", userId);
-        requireUserExists(userId);
+    /**
+     * Друзья в порядке возрастания id.
+     */
+    public List<User> getFriends(Long userId) {
+        return getFriendsLatency.time(() -> {
+            log.info("Запрос списка друзей пользователя {}", userId);
+            requireUserExists(userId);
 
-        Set<Long> ids = friendsMap.getOrDefault(userId, Collections.emptySet());
+            long[] ids = friendshipStorage.getFriendIds(userId);
 
-        Set<User> result = ids.stream()
-                .map(this::requireUserExists)
-                .collect(Collectors.toSet());
+            List<User> result = userStorage.getUsersByIds(ids);
 
-        log.debug("У пользователя {} {} друзей: {}", userId, result.size(),
-                result.stream().map(User::getId).toList());
+            if (log.isDebugEnabled()) {
+                log.debug("У пользователя {} {} друзей: {}", userId, result.size(),
+                        result.stream().map(User::getId).toList());
+            }
 
-        return result;
+            return result;
+        });
     }
 
-    public Set<User> getCommonFriends(Long userId, Long otherId) {
-        log.info("Запрос общих друзей пользователей {} и {}", userId, otherId);
+    /**
+     * Общие друзья в порядке возрастания id.
+     */
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        return getCommonFriendsLatency.time(() -> {
+            log.info("Запрос общих друзей пользователей {} и {}", userId, otherId);
 
-        requireUserExists(userId);
-        requireUserExists(otherId);
+            requireUserExists(userId);
+            requireUserExists(otherId);
 
-        Set<Long> userFriends = friendsMap.getOrDefault(userId, Collections.emptySet());
-        Set<Long> otherFriends = friendsMap.getOrDefault(otherId, Collections.emptySet());
+            long[] commonIds = friendshipStorage.getCommonFriendIds(userId, otherId);
 
-        Set<Long> commonIds = new HashSet<>(userFriends);
-        commonIds.retainAll(otherFriends);
+            List<User> result = userStorage.getUsersByIds(commonIds);
 
-        Set<User> result = commonIds.stream()
-                .map(this::requireUserExists)
-                .collect(Collectors.toSet());
+            if (log.isDebugEnabled()) {
+                log.debug("Общие друзья пользователей {} и {} ({}): {}", userId, otherId, result.size(),
+                        result.stream().map(User::getId).toList());
+            }
 
-        log.debug("Общие друзья пользователей {} и {} ({}): {}", userId, otherId, result.size(),
-                result.stream().map(User::getId).toList());
+            return result;
+        });
+    }
 
-        return result;
+    /**
+     * «Возможно, вы знакомы»: друзья друзей по убыванию числа общих друзей.
+     * Для пользователя с большим числом друзей при первом запросе строится поддерживаемый дальше индекс;
+     * на время построения изменения дружбы ждут, чтобы индекс не разошёлся с хранилищем.
+     */
+    public List<FriendRecommendation> getFriendRecommendations(Long userId, int limit) {
+        return getFriendRecommendationsLatency.time(() -> {
+            if (limit <= 0 || limit > MAX_RECOMMENDATIONS) {
+                throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_RECOMMENDATIONS);
+            }
+            log.info("Запрос рекомендаций друзей для пользователя {}", userId);
+            requireUserExists(userId);
+
+            if (friendRecommender.needsPrecompute(userId)) {
+                precomputeRecommendations(userId);
+            }
+            FriendRecommender.Ranking ranking = friendRecommender.recommend(userId, limit);
+            if (ranking.truncated()) {
+                log.debug("Рекомендации для пользователя {} построены по части графа", userId);
+            }
+
+            // пользователи приходят в порядке ranking.ids() без отсутствующих: счётчик сдвигается до совпадения id
+            List<User> users = userStorage.getUsersByIds(ranking.ids());
+            List<FriendRecommendation> result = new ArrayList<>(users.size());
+            int position = 0;
+            for (User user : users) {
+                while (ranking.ids()[position] != user.getId()) {
+                    position++;
+                }
+                result.add(new FriendRecommendation(user, ranking.mutualFriends()[position++]));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Счётчики строятся без блокировок; все полосы берутся только на то, чтобы учесть изменения дружбы за время
+     * обхода и опубликовать результат. Параллельные запросы для того же пользователя до публикации получают
+     * ограниченный обход.
+     */
+    private void precomputeRecommendations(long userId) {
+        FriendRecommender.Build build = friendRecommender.build(userId);
+        if (build == null) {
+            return;
+        }
+        int[] stripes = userLocks.lockEveryStripe();
+        try {
+            // пользователь мог быть удалён, пока шёл обход: счётчики для него не публикуются
+            if (userStorage.getUserById(userId).isPresent()) {
+                friendRecommender.publish(build);
+            }
+        } finally {
+            friendRecommender.cancel(build);
+            userLocks.unlockAll(stripes);
+        }
     }
 
     private void validateUser(User user) {
@@ -142,7 +518,8 @@ public class UserService {
     }
 
     private User requireUserExists(Long userId) {
-        return userStorage.getUserById(userId)
+        return Optional.ofNullable(userId)
+                .flatMap(userStorage::getUserById)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
     }
 }
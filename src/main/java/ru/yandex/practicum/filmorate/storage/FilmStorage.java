@@ -2,15 +2,98 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
 
 public interface FilmStorage {
-    Film addFilm(Film film);
+    default Film addFilm(Film film) {
+        return addFilm(film, added -> {
+        });
+    }
+
+    /**
+     * Добавление, при котором beforePublish получает фильм с уже выданным id раньше, чем его увидят читатели.
+     * Исключение из beforePublish отменяет добавление, выданный id остаётся неиспользованным.
+     */
+    Film addFilm(Film film, Consumer<Film> beforePublish);
 
     Film updateFilm(Film film);
 
+    default List<Film> addFilms(List<Film> films) {
+        return addFilms(films, added -> {
+        });
+    }
+
+    /**
+     * Пакетное добавление; реализации выдают id одним диапазоном. beforePublish — как в addFilm, для каждого
+     * фильма пачки.
+     */
+    default List<Film> addFilms(List<Film> films, Consumer<Film> beforePublish) {
+        return films.stream().map(film -> addFilm(film, beforePublish)).toList();
+    }
+
+    default List<Film> updateFilms(List<Film> films) {
+        return films.stream().map(this::updateFilm).toList();
+    }
+
+    /**
+     * Сохраняет фильм с уже назначенным id (восстановление после перезапуска).
+     */
+    Film restoreFilm(Film film);
+
+    /**
+     * Удаляет фильм и возвращает его. Лайки фильма хранилище фильмов не трогает.
+     */
+    Optional<Film> deleteFilm(long id);
+
+    /**
+     * Все фильмы. Хранилища в памяти отдают неизменяемый срез каталога на момент вызова.
+     */
     Collection<Film> getAllFilms();
 
     Optional<Film> getFilmById(Long id);
+
+    /**
+     * Фильмы с данными id в том же порядке; отсутствующие пропускаются.
+     */
+    default List<Film> getFilmsByIds(long[] ids) {
+        List<Film> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            getFilmById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    /**
+     * Страница фильмов по возрастанию id: не больше limit фильмов с id больше afterId.
+     */
+    List<Film> getFilmsAfter(long afterId, int limit);
+
+    /**
+     * Фильмы с датой релиза в [from, to] (null — без границы), прошедшие filter: по возрастанию даты, затем id.
+     */
+    List<Film> getFilmsByReleaseDate(LocalDate from, LocalDate to, Predicate<Film> filter, int limit);
+
+    /**
+     * Фильмы с продолжительностью в [min, max] (null — без границы), прошедшие filter: по возрастанию
+     * продолжительности, затем id.
+     */
+    List<Film> getFilmsByDuration(Integer min, Integer max, Predicate<Film> filter, int limit);
+
+    /**
+     * Проверка существования без сборки объекта фильма.
+     */
+    default boolean containsFilm(long id) {
+        return getFilmById(id).isPresent();
+    }
+
+    default LongStream getFilmIds() {
+        return getAllFilms().stream().mapToLong(Film::getId);
+    }
 }
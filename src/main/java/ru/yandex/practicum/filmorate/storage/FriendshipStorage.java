@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage;
+
+public interface FriendshipStorage {
+    boolean addFriendship(long userId, long friendId);
+
+    /**
+     * Снимает дружбу; если список одного из двоих уже снят removeFriendList, дочищает список другого.
+     */
+    boolean removeFriendship(long userId, long friendId);
+
+    /**
+     * Снимает список друзей удалённого пользователя целиком и возвращает его. Пользователь остаётся в списках
+     * друзей, пока каждая дружба не снята через removeFriendship.
+     */
+    long[] removeFriendList(long userId);
+
+    /**
+     * Id друзей по возрастанию. Массив может быть общим с хранилищем: менять его нельзя.
+     */
+    long[] getFriendIds(long userId);
+
+    long[] getCommonFriendIds(long userId, long otherId);
+
+    int getFriendCount(long userId);
+
+    boolean areFriends(long userId, long friendId);
+
+    /**
+     * Число пар друзей; каждая дружба считается один раз.
+     */
+    long getFriendshipCount();
+}
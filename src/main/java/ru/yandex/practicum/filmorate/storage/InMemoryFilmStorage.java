@@ -1,48 +1,202 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.PersistentIdMap;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+/**
+ * Каталог в памяти — версии PersistentIdMap: писатели под блокировкой собирают следующую версию и публикуют её,
+ * читатели берут текущую версию без блокировок. Пакет фильмов публикуется одной версией.
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "filmorate.film-storage.type", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile PersistentIdMap<Film> films = PersistentIdMap.empty();
     private final AtomicLong idGenerator = new AtomicLong(0);
+    private final SortedIndex<Film, LocalDate> releaseDates = new SortedIndex<>(Film::getReleaseDate);
+    private final SortedIndex<Film, Integer> durations = new SortedIndex<>(Film::getDuration);
 
     @Override
-    public Film addFilm(Film film) {
-
+    public Film addFilm(Film film, Consumer<Film> beforePublish) {
         long id = idGenerator.incrementAndGet();
         film.setId(id);
-        films.put(id, film);
+        beforePublish.accept(film);
+        writeLock.lock();
+        try {
+            films = films.with(id, film);
+        } finally {
+            writeLock.unlock();
+        }
+        index(film);
         log.info("Добавлен фильм '{}' с id={}", film.getName(), id);
         return film;
     }
 
+    @Override
+    public List<Film> addFilms(List<Film> batch, Consumer<Film> beforePublish) {
+        long first = idGenerator.getAndAdd(batch.size()) + 1;
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(first + i);
+        }
+        batch.forEach(beforePublish);
+        writeLock.lock();
+        try {
+            PersistentIdMap<Film> updated = films;
+            for (Film film : batch) {
+                updated = updated.with(film.getId(), film);
+            }
+            films = updated;
+        } finally {
+            writeLock.unlock();
+        }
+        batch.forEach(this::index);
+        log.info("Добавлено фильмов: {}", batch.size());
+        return batch;
+    }
+
+    @Override
+    public List<Film> updateFilms(List<Film> batch) {
+        writeLock.lock();
+        try {
+            PersistentIdMap<Film> updated = films;
+            for (Film film : batch) {
+                updated = replace(updated, film);
+            }
+            films = updated;
+        } finally {
+            writeLock.unlock();
+        }
+        batch.forEach(this::index);
+        log.info("Обновлено фильмов: {}", batch.size());
+        return batch;
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        films.put(film.getId(), film);
+        writeLock.lock();
+        try {
+            films = replace(films, film);
+        } finally {
+            writeLock.unlock();
+        }
+        index(film);
         log.info("Фильм обновлён id={}", film.getId());
         return film;
     }
 
+    @Override
+    public Film restoreFilm(Film film) {
+        writeLock.lock();
+        try {
+            films = films.with(film.getId(), film);
+        } finally {
+            writeLock.unlock();
+        }
+        index(film);
+        idGenerator.accumulateAndGet(film.getId(), Math::max);
+        return film;
+    }
+
+    @Override
+    public Optional<Film> deleteFilm(long id) {
+        Film removed;
+        writeLock.lock();
+        try {
+            removed = films.get(id);
+            films = films.with(id, null);
+        } finally {
+            writeLock.unlock();
+        }
+        if (removed != null) {
+            releaseDates.remove(id);
+            durations.remove(id);
+            log.info("Удалён фильм id={}", id);
+        }
+        return Optional.ofNullable(removed);
+    }
 
     @Override
     public Optional<Film> getFilmById(Long id) {
-        return Optional.ofNullable(films.get(id));
+        return id == null ? Optional.empty() : Optional.ofNullable(films.get(id));
+    }
+
+    @Override
+    public boolean containsFilm(long id) {
+        return films.containsId(id);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(long[] ids) {
+        PersistentIdMap<Film> snapshot = films;
+        List<Film> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = snapshot.get(id);
+            if (film != null) {
+                found.add(film);
+            }
+        }
+        return found;
     }
 
+    /**
+     * id выдаются подряд, поэтому страница — это перебор следующих ключей, без сортировки всего каталога.
+     */
+    @Override
+    public List<Film> getFilmsAfter(long afterId, int limit) {
+        PersistentIdMap<Film> snapshot = films;
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        long last = idGenerator.get();
+        for (long id = Math.max(afterId, 0) + 1; id <= last && page.size() < limit; id++) {
+            Film film = snapshot.get(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Текущая версия каталога: не меняется при последующих записях, фильмы по возрастанию id.
+     */
     @Override
     public Collection<Film> getAllFilms() {
-        return films.values();
+        return films;
     }
 
+    @Override
+    public List<Film> getFilmsByReleaseDate(LocalDate from, LocalDate to, Predicate<Film> filter, int limit) {
+        return releaseDates.find(from, to, films::get, filter, limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByDuration(Integer min, Integer max, Predicate<Film> filter, int limit) {
+        return durations.find(min, max, films::get, filter, limit);
+    }
 
+    private static PersistentIdMap<Film> replace(PersistentIdMap<Film> version, Film film) {
+        if (film.getId() == null || !version.containsId(film.getId())) {
+            throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
+        }
+        return version.with(film.getId(), film);
+    }
+
+    private void index(Film film) {
+        releaseDates.put(film.getId(), film);
+        durations.put(film.getId(), film);
+    }
 }
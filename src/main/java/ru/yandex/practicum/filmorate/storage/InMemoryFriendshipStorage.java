@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Граф дружбы в виде списков смежности на неизменяемых множествах {@link PersistentLongSet}.
+ * Список не меняется на месте: писатель под блокировками полос обоих пользователей строит новую версию
+ * за O(log n), копируя только путь к листу, и публикует её заменой значения в карте. Читатели берут текущие
+ * версии без блокировок и видят каждый список целиком в одной из его версий; отсортированный массив версии
+ * собирается при первом чтении, вне блокировки писателя.
+ */
+@Component
+public class InMemoryFriendshipStorage implements FriendshipStorage {
+    private static final long[] NONE = new long[0];
+
+    private final Map<Long, PersistentLongSet> adjacency = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks(64);
+    private final LongAdder edgeCount = new LongAdder();
+
+    @Override
+    public boolean addFriendship(long userId, long friendId) {
+        locks.lockBoth(userId, friendId);
+        try {
+            boolean added = publish(userId, friends(userId).with(friendId));
+            added = publish(friendId, friends(friendId).with(userId)) || added;
+            if (added) {
+                edgeCount.increment();
+            }
+            return added;
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    }
+
+    @Override
+    public boolean removeFriendship(long userId, long friendId) {
+        locks.lockBoth(userId, friendId);
+        try {
+            boolean removed = publish(userId, friends(userId).without(friendId));
+            removed = publish(friendId, friends(friendId).without(userId)) || removed;
+            if (removed) {
+                edgeCount.decrement();
+            }
+            return removed;
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    }
+
+    @Override
+    public long[] removeFriendList(long userId) {
+        locks.lock(userId);
+        try {
+            PersistentLongSet removed = adjacency.remove(userId);
+            return removed == null ? NONE : removed.toArray();
+        } finally {
+            locks.unlock(userId);
+        }
+    }
+
+    @Override
+    public long[] getFriendIds(long userId) {
+        return friends(userId).toArray();
+    }
+
+    @Override
+    public long[] getCommonFriendIds(long userId, long otherId) {
+        return SortedLongSet.intersect(friends(userId).toArray(), friends(otherId).toArray());
+    }
+
+    @Override
+    public int getFriendCount(long userId) {
+        return friends(userId).size();
+    }
+
+    @Override
+    public boolean areFriends(long userId, long friendId) {
+        return friends(userId).contains(friendId);
+    }
+
+    @Override
+    public long getFriendshipCount() {
+        return edgeCount.sum();
+    }
+
+    private PersistentLongSet friends(long userId) {
+        return adjacency.getOrDefault(userId, PersistentLongSet.empty());
+    }
+
+    /**
+     * Заменяет список пользователя новой версией; возвращает false, если версия та же (список не изменился).
+     */
+    private boolean publish(long userId, PersistentLongSet updated) {
+        if (updated == friends(userId)) {
+            return false;
+        }
+        if (updated.isEmpty()) {
+            adjacency.remove(userId);
+        } else {
+            adjacency.put(userId, updated);
+        }
+        return true;
+    }
+}
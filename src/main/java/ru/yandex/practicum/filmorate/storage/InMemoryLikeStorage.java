@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Лайки фильмов: для каждого фильма множество id пользователей
+ * и обратный индекс — для каждого пользователя множество фильмов, которые он лайкнул. Лайк считается в числе
+ * лайков, пока он есть у фильма: сторона удалённого пользователя снимается раньше, чем лайки его фильмов.
+ * Множества неизменяемые ({@link PersistentLongSet}): писатель за O(log n) строит новую версию, общую со старой
+ * во всём, кроме пути к листу, и заменяет ею значение в карте, поэтому читатели берут версии без блокировок,
+ * а плоский массив версии собирается уже вне блокировки, при первом чтении. Своих полос блокировок у хранилища
+ * нет: лайк фильма меняется в compute его ячейки карты вместе с индексом популярности и обратным индексом
+ * (порядок всегда «фильм, затем пользователь»), а составные операции сервис и так ведёт под полосой фильма.
+ */
+@Component
+public class InMemoryLikeStorage implements LikeStorage {
+    private static final long[] NONE = new long[0];
+
+    private final Map<Long, PersistentLongSet> likes = new ConcurrentHashMap<>();
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+    private final Map<Long, PersistentLongSet> userLikes = new ConcurrentHashMap<>();
+    private final LongAdder edgeCount = new LongAdder();
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return update(likes, filmId, set -> set.with(userId), () -> {
+            update(userLikes, userId, set -> set.with(filmId), null);
+            popularityIndex.increment(filmId);
+            edgeCount.increment();
+        });
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        boolean[] unindexed = new boolean[1];
+        boolean removed = update(likes, filmId, set -> {
+            // обратный индекс дочищается, даже если сторона фильма уже снята removeFilmLikes
+            unindexed[0] = update(userLikes, userId, liked -> liked.without(filmId), null);
+            return set.without(userId);
+        }, () -> {
+            popularityIndex.decrement(filmId);
+            edgeCount.decrement();
+        });
+        return removed || unindexed[0];
+    }
+
+    @Override
+    public long[] removeFilmLikes(long filmId) {
+        PersistentLongSet[] removed = new PersistentLongSet[1];
+        likes.computeIfPresent(filmId, (id, set) -> {
+            removed[0] = set;
+            popularityIndex.add(filmId, -set.size());
+            edgeCount.add(-set.size());
+            return null;
+        });
+        return removed[0] == null ? NONE : removed[0].toArray();
+    }
+
+    @Override
+    public long[] removeUserLikes(long userId) {
+        PersistentLongSet removed = userLikes.remove(userId);
+        return removed == null ? NONE : removed.toArray();
+    }
+
+    @Override
+    public long[] getLikes(long filmId) {
+        return versionOf(likes, filmId).toArray();
+    }
+
+    @Override
+    public long[] getLikedFilmIds(long userId) {
+        return versionOf(userLikes, userId).toArray();
+    }
+
+    @Override
+    public int getLikedFilmCount(long userId) {
+        return versionOf(userLikes, userId).size();
+    }
+
+    @Override
+    public int getLikeCount(long filmId) {
+        return popularityIndex.getLikes(filmId);
+    }
+
+    @Override
+    public long getLikeEdgeCount() {
+        return edgeCount.sum();
+    }
+
+    @Override
+    public List<Long> getTopFilmIds(int count) {
+        return popularityIndex.getTopFilmIds(count);
+    }
+
+    private static PersistentLongSet versionOf(Map<Long, PersistentLongSet> map, long key) {
+        return map.getOrDefault(key, PersistentLongSet.empty());
+    }
+
+    /**
+     * Меняет множество по ключу в compute его ячейки: изменения одного ключа идут по очереди, разных — параллельно.
+     * onChange выполняется там же, если версия изменилась; опустевшее множество уходит из карты.
+     */
+    private static boolean update(Map<Long, PersistentLongSet> map, long key,
+                                  UnaryOperator<PersistentLongSet> change, Runnable onChange) {
+        boolean[] changed = new boolean[1];
+        map.compute(key, (id, current) -> {
+            PersistentLongSet base = current == null ? PersistentLongSet.empty() : current;
+            PersistentLongSet updated = change.apply(base);
+            if (updated != base) {
+                changed[0] = true;
+                if (onChange != null) {
+                    onChange.run();
+                }
+            }
+            return updated.isEmpty() ? null : updated;
+        });
+        return changed[0];
+    }
+}
@@ -2,50 +2,259 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.PersistentIdMap;
 
+import java.time.MonthDay;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+/**
+ * Пользователи в памяти — версии PersistentIdMap, как и каталог фильмов: запись публикует новую версию
+ * под блокировкой, чтение берёт текущую без блокировок.
+ */
 @Slf4j
 @Component
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile PersistentIdMap<User> users = PersistentIdMap.empty();
     private final AtomicLong idGenerator = new AtomicLong(0);
+    private final SortedIndex<User, MonthDay> birthdays =
+            new SortedIndex<>(user -> user.getBirthday() == null ? null : MonthDay.from(user.getBirthday()));
+    private final UniqueIndex<User> emails = new UniqueIndex<>(User::getEmail, id -> users.get(id));
+    private final UniqueIndex<User> logins = new UniqueIndex<>(User::getLogin, id -> users.get(id));
 
     @Override
-    public User addUser(User user) {
+    public User addUser(User user, Consumer<User> beforePublish) {
         long id = idGenerator.incrementAndGet();
+        String conflict = claim(user, id, null);
+        if (conflict != null) {
+            throw new ConflictException(conflict);
+        }
         user.setId(id);
-        users.put(id, user);
+        try {
+            beforePublish.accept(user);
+        } catch (RuntimeException e) {
+            unclaim(user, id);
+            throw e;
+        }
+        publish(user);
+        birthdays.put(id, user);
         log.info("Создан пользователь {} с id={}", user.getLogin(), id);
         return user;
     }
 
+    /**
+     * Пользователи, чей email или логин занят (в том числе другим пользователем той же пачки), пропускаются;
+     * их id остаётся прежним, а выданный им номер — неиспользованным.
+     */
+    @Override
+    public List<User> addUsers(List<User> batch, Consumer<User> beforePublish) {
+        long first = idGenerator.getAndAdd(batch.size()) + 1;
+        List<User> created = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.get(i);
+            if (claim(user, first + i, null) == null) {
+                user.setId(first + i);
+                created.add(user);
+            }
+        }
+        try {
+            created.forEach(beforePublish);
+        } catch (RuntimeException e) {
+            created.forEach(user -> unclaim(user, user.getId()));
+            throw e;
+        }
+        writeLock.lock();
+        try {
+            PersistentIdMap<User> updated = users;
+            for (User user : created) {
+                updated = updated.with(user.getId(), user);
+            }
+            users = updated;
+        } finally {
+            writeLock.unlock();
+        }
+        created.forEach(user -> birthdays.put(user.getId(), user));
+        log.info("Создано пользователей: {}", created.size());
+        return created;
+    }
+
+    /**
+     * Пользователи, чей новый email или логин занят, пропускаются.
+     */
+    @Override
+    public List<User> updateUsers(List<User> batch) {
+        List<User> updated = new ArrayList<>(batch.size());
+        for (User user : batch) {
+            User previous = user.getId() == null ? null : users.get(user.getId());
+            if (previous == null) {
+                throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
+            }
+            if (claim(user, user.getId(), previous) == null) {
+                replace(previous, user);
+                updated.add(user);
+            }
+        }
+        log.info("Обновлено пользователей: {}", updated.size());
+        return updated;
+    }
+
     @Override
     public User updateUser(User user) {
-        if (user.getId() == null || !users.containsKey(user.getId())) {
+        User previous = user.getId() == null ? null : users.get(user.getId());
+        if (previous == null) {
             throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
         }
-        users.put(user.getId(), user);
+        String conflict = claim(user, user.getId(), previous);
+        if (conflict != null) {
+            throw new ConflictException(conflict);
+        }
+        replace(previous, user);
         log.info("Обновлён пользователь id={}", user.getId());
         return user;
     }
 
+    @Override
+    public User restoreUser(User user) {
+        User previous = users.get(user.getId());
+        String conflict = claim(user, user.getId(), previous);
+        if (conflict != null) {
+            log.warn("При восстановлении пользователя id={}: {}", user.getId(), conflict);
+        }
+        if (previous == null) {
+            publish(user);
+            birthdays.put(user.getId(), user);
+        } else {
+            replace(previous, user);
+        }
+        idGenerator.accumulateAndGet(user.getId(), Math::max);
+        return user;
+    }
+
+    @Override
+    public Optional<User> deleteUser(long id) {
+        User removed;
+        writeLock.lock();
+        try {
+            removed = users.get(id);
+            users = users.with(id, null);
+        } finally {
+            writeLock.unlock();
+        }
+        if (removed != null) {
+            birthdays.remove(id);
+            emails.release(removed.getEmail(), id);
+            logins.release(removed.getLogin(), id);
+            log.info("Удалён пользователь id={}", id);
+        }
+        return Optional.ofNullable(removed);
+    }
 
     @Override
     public Optional<User> getUserById(Long id) {
-        return Optional.ofNullable(users.get(id));
+        return id == null ? Optional.empty() : Optional.ofNullable(users.get(id));
     }
 
+    @Override
+    public List<User> getUsersByIds(long[] ids) {
+        PersistentIdMap<User> snapshot = users;
+        List<User> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = snapshot.get(id);
+            if (user != null) {
+                found.add(user);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * id выдаются подряд, поэтому страница — это перебор следующих ключей, без сортировки всех пользователей.
+     */
+    @Override
+    public List<User> getUsersAfter(long afterId, int limit) {
+        PersistentIdMap<User> snapshot = users;
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        long last = idGenerator.get();
+        for (long id = Math.max(afterId, 0) + 1; id <= last && page.size() < limit; id++) {
+            User user = snapshot.get(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Текущая версия: не меняется при последующих записях, пользователи по возрастанию id.
+     */
     @Override
     public Collection<User> getAllUsers() {
-        return users.values();
+        return users;
     }
 
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return Optional.ofNullable(users.get(emails.find(email)));
+    }
+
+    @Override
+    public Optional<User> getUserByLogin(String login) {
+        return Optional.ofNullable(users.get(logins.find(login)));
+    }
+
+    @Override
+    public List<User> getUsersByBirthday(MonthDay from, MonthDay to, int limit) {
+        return birthdays.find(from, to, users::get, user -> true, limit);
+    }
 
+    /**
+     * Резерв перед вставкой: занимает email и логин за id; если логин занят, снимает только что занятый email.
+     * Возвращает текст конфликта или null.
+     */
+    private void unclaim(User user, long id) {
+        emails.release(user.getEmail(), id);
+        logins.release(user.getLogin(), id);
+    }
+
+    private String claim(User user, long id, User previous) {
+        if (!emails.claim(user.getEmail(), id)) {
+            return "Пользователь с email " + user.getEmail() + " уже существует";
+        }
+        if (!logins.claim(user.getLogin(), id)) {
+            if (previous == null || !UniqueIndex.sameKey(previous.getEmail(), user.getEmail())) {
+                emails.release(user.getEmail(), id);
+            }
+            return "Пользователь с логином " + user.getLogin() + " уже существует";
+        }
+        return null;
+    }
+
+    private void publish(User user) {
+        writeLock.lock();
+        try {
+            users = users.with(user.getId(), user);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void replace(User previous, User user) {
+        publish(user);
+        birthdays.put(user.getId(), user);
+        if (!UniqueIndex.sameKey(previous.getEmail(), user.getEmail())) {
+            emails.release(previous.getEmail(), user.getId());
+        }
+        if (!UniqueIndex.sameKey(previous.getLogin(), user.getLogin())) {
+            logins.release(previous.getLogin(), user.getId());
+        }
+    }
 }
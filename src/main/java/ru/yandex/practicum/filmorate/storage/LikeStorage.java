@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+
+public interface LikeStorage {
+    boolean addLike(long filmId, long userId);
+
+    /**
+     * Снимает лайк; если одна из сторон уже снята removeFilmLikes или removeUserLikes, дочищает другую.
+     */
+    boolean removeLike(long filmId, long userId);
+
+    /**
+     * Снимает сторону удалённого фильма целиком — его список и место в популярных — и возвращает лайкнувших.
+     * Фильм остаётся в их списках, пока каждый лайк не снят через removeLike.
+     */
+    long[] removeFilmLikes(long filmId);
+
+    /**
+     * Снимает обратный индекс удалённого пользователя целиком и возвращает его фильмы. Пользователь остаётся
+     * в лайках этих фильмов, пока каждый лайк не снят через removeLike.
+     */
+    long[] removeUserLikes(long userId);
+
+    /**
+     * Id пользователей, лайкнувших фильм, по возрастанию. Массив может быть общим с хранилищем: менять его нельзя.
+     */
+    long[] getLikes(long filmId);
+
+    int getLikeCount(long filmId);
+
+    /**
+     * Id фильмов, которые лайкнул пользователь, по возрастанию. Массив, как и в getLikes, менять нельзя.
+     */
+    long[] getLikedFilmIds(long userId);
+
+    int getLikedFilmCount(long userId);
+
+    /**
+     * Общее число лайков по всем фильмам.
+     */
+    long getLikeEdgeCount();
+
+    /**
+     * Id фильмов, у которых есть лайки, по убыванию числа лайков (при равенстве — по возрастанию id).
+     */
+    List<Long> getTopFilmIds(int count);
+}
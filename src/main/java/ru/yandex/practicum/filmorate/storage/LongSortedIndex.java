@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Вторичный индекс по long-значению поля без объектов на запись: пары (значение, id), упорядоченные
+ * по значению, при равных значениях — по id, лежат кусками по CHUNK пар в примитивных массивах.
+ * Вставка и удаление сдвигают не больше одного куска, переполненный кусок делится пополам.
+ * Индекс не помнит, под каким значением лежит id: прежнее значение передаёт хранилище, которое читает его
+ * из своего слота. Поиск сверяет значение у прочитанной записи, поэтому пара, ещё не перенесённая
+ * после обновления, не попадёт в результат.
+ */
+final class LongSortedIndex {
+    static final long ABSENT = Long.MIN_VALUE;
+    private static final int CHUNK = 128;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Chunk[] chunks = new Chunk[0];
+    private int size;
+
+    /**
+     * Переносит id со значения previous на current; ABSENT — значения нет.
+     */
+    void move(long id, long previous, long current) {
+        if (previous == current) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (previous != ABSENT) {
+                remove(id, previous);
+            }
+            if (current != ABSENT) {
+                insert(id, current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Записи со значением в [from, to], прошедшие filter; не больше limit. Запись берётся через lookup
+     * под блокировкой чтения индекса; если у неё уже другое значение, пара пропускается.
+     */
+    <T> List<T> find(long from, long to, LongFunction<T> lookup, ToLongFunction<T> keyOf, Predicate<T> filter,
+                     int limit) {
+        List<T> found = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            int first = chunkFor(from, Long.MIN_VALUE);
+            for (int c = first; c < chunks.length; c++) {
+                Chunk chunk = chunks[c];
+                int start = c == first ? lowerBound(chunk, from, Long.MIN_VALUE) : 0;
+                for (int i = start; i < chunk.size; i++) {
+                    long key = chunk.keys[i];
+                    if (key > to) {
+                        return found;
+                    }
+                    T record = lookup.apply(chunk.ids[i]);
+                    if (record != null && keyOf.applyAsLong(record) == key && filter.test(record)) {
+                        found.add(record);
+                        if (found.size() == limit) {
+                            return found;
+                        }
+                    }
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(long id, long key) {
+        if (chunks.length == 0) {
+            chunks = new Chunk[]{new Chunk()};
+        }
+        int c = chunkFor(key, id);
+        Chunk chunk = chunks[c];
+        int at = lowerBound(chunk, key, id);
+        if (at < chunk.size && chunk.keys[at] == key && chunk.ids[at] == id) {
+            return;
+        }
+        if (chunk.size == CHUNK) {
+            Chunk right = chunk.split();
+            Chunk[] grown = new Chunk[chunks.length + 1];
+            System.arraycopy(chunks, 0, grown, 0, c + 1);
+            grown[c + 1] = right;
+            System.arraycopy(chunks, c + 1, grown, c + 2, chunks.length - c - 1);
+            chunks = grown;
+            if (at > chunk.size) {
+                at -= chunk.size;
+                chunk = right;
+            }
+        }
+        System.arraycopy(chunk.keys, at, chunk.keys, at + 1, chunk.size - at);
+        System.arraycopy(chunk.ids, at, chunk.ids, at + 1, chunk.size - at);
+        chunk.keys[at] = key;
+        chunk.ids[at] = id;
+        chunk.size++;
+        size++;
+    }
+
+    private void remove(long id, long key) {
+        if (chunks.length == 0) {
+            return;
+        }
+        int c = chunkFor(key, id);
+        Chunk chunk = chunks[c];
+        int at = lowerBound(chunk, key, id);
+        if (at == chunk.size || chunk.keys[at] != key || chunk.ids[at] != id) {
+            return;
+        }
+        System.arraycopy(chunk.keys, at + 1, chunk.keys, at, chunk.size - at - 1);
+        System.arraycopy(chunk.ids, at + 1, chunk.ids, at, chunk.size - at - 1);
+        chunk.size--;
+        size--;
+        if (chunk.size == 0) {
+            Chunk[] shrunk = new Chunk[chunks.length - 1];
+            System.arraycopy(chunks, 0, shrunk, 0, c);
+            System.arraycopy(chunks, c + 1, shrunk, c, chunks.length - c - 1);
+            chunks = shrunk;
+        }
+    }
+
+    /**
+     * Последний кусок, чья первая пара не больше (key, id), или первый кусок.
+     */
+    private int chunkFor(long key, long id) {
+        int low = 1;
+        int high = chunks.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(chunks[middle].keys[0], chunks[middle].ids[0], key, id) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Первая позиция в куске, где пара не меньше (key, id).
+     */
+    private static int lowerBound(Chunk chunk, long key, long id) {
+        int low = 0;
+        int high = chunk.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(chunk.keys[middle], chunk.ids[middle], key, id) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(long key, long id, long otherKey, long otherId) {
+        int byKey = Long.compare(key, otherKey);
+        return byKey != 0 ? byKey : Long.compare(id, otherId);
+    }
+
+    private static final class Chunk {
+        private final long[] keys = new long[CHUNK];
+        private final long[] ids = new long[CHUNK];
+        private int size;
+
+        /**
+         * Отдаёт верхнюю половину пар в новый кусок.
+         */
+        private Chunk split() {
+            Chunk right = new Chunk();
+            int half = size / 2;
+            right.size = size - half;
+            System.arraycopy(keys, half, right.keys, 0, right.size);
+            System.arraycopy(ids, half, right.ids, 0, right.size);
+            Arrays.fill(keys, half, size, 0);
+            size = half;
+            return right;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+
+/**
+ * Каталог фильмов вне кучи: фиксированные слоты в films.slots и строковая арена в films.strings,
+ * оба файла отображены в память кусками. Слот фильма с id N лежит по смещению (N - 1) * SLOT_SIZE:
+ * признак наличия, продолжительность, дата релиза (epochDay) и ссылки на название и описание в арене.
+ * Арена только дописывается, поэтому строки прежней версии фильма после обновления остаются мусором в файле.
+ * Индексы по дате релиза и продолжительности — куски примитивных массивов пар (значение, id), 16–32 байта
+ * на фильм без объектов на запись: прежнее значение поля индекс не хранит, его читает из слота запись фильма.
+ * Файлы — рабочая память, а не хранилище: при старте они обнуляются, а сохранность обеспечивает журнал изменений.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.film-storage.type", havingValue = "mapped")
+public class MappedFilmStorage implements FilmStorage, Closeable {
+    private static final int SLOT_SIZE = 32;
+    private static final int PRESENT = 0;
+    private static final int DURATION = 4;
+    private static final int RELEASE_DATE = 8;
+    private static final int NAME = 16;
+    private static final int DESCRIPTION = 24;
+    private static final long NO_DATE = LongSortedIndex.ABSENT;
+    private static final long NO_STRING = -1;
+    private static final int LENGTH_BITS = 24;
+
+    private final Path slotsPath;
+    private final Path stringsPath;
+    private final FileChannel slotsChannel;
+    private final FileChannel stringsChannel;
+    private final int slotsPerChunk;
+    private final int arenaChunkSize;
+    private final StripedLocks locks = new StripedLocks(64);
+    // отображение нового куска — файловый ввод-вывод, поэтому не synchronized: он закрепил бы виртуальный поток
+    private final ReentrantLock growLock = new ReentrantLock();
+    private final AtomicLong idGenerator = new AtomicLong(0);
+    private final AtomicLong size = new AtomicLong(0);
+    // обновляются после записи слота, вне блокировки полосы: поиск по индексу читает слоты под ней
+    private final LongSortedIndex releaseDates = new LongSortedIndex();
+    private final LongSortedIndex durations = new LongSortedIndex();
+    private volatile MappedByteBuffer[] slotChunks = new MappedByteBuffer[0];
+    private volatile MappedByteBuffer[] arenaChunks = new MappedByteBuffer[0];
+    private long arenaOffset;
+
+    @Autowired
+    public MappedFilmStorage(@Value("${filmorate.film-storage.directory}") Path directory) throws IOException {
+        this(directory, 1 << 20, 1 << 26);
+    }
+
+    MappedFilmStorage(Path directory, int slotsPerChunk, int arenaChunkSize) throws IOException {
+        this.slotsPerChunk = slotsPerChunk;
+        this.arenaChunkSize = arenaChunkSize;
+        Files.createDirectories(directory);
+        slotsPath = directory.resolve("films.slots");
+        stringsPath = directory.resolve("films.strings");
+        slotsChannel = open(slotsPath);
+        stringsChannel = open(stringsPath);
+        log.info("Каталог фильмов отображён в память: {}", directory);
+    }
+
+    @Override
+    public Film addFilm(Film film, Consumer<Film> beforePublish) {
+        long id = idGenerator.incrementAndGet();
+        film.setId(id);
+        beforePublish.accept(film);
+        index(film, write(id, film, false));
+        log.info("Добавлен фильм '{}' с id={}", film.getName(), id);
+        return film;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> batch, Consumer<Film> beforePublish) {
+        long first = idGenerator.getAndAdd(batch.size()) + 1;
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(first + i);
+        }
+        batch.forEach(beforePublish);
+        for (Film film : batch) {
+            index(film, write(film.getId(), film, false));
+        }
+        log.info("Добавлено фильмов: {}", batch.size());
+        return batch;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        Indexed previous = film.getId() == null ? null : write(film.getId(), film, true);
+        if (previous == null) {
+            throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
+        }
+        index(film, previous);
+        log.info("Фильм обновлён id={}", film.getId());
+        return film;
+    }
+
+    @Override
+    public Film restoreFilm(Film film) {
+        idGenerator.accumulateAndGet(film.getId(), Math::max);
+        index(film, write(film.getId(), film, false));
+        return film;
+    }
+
+    /**
+     * Слот помечается пустым; строки удалённого фильма, как и прежние версии при обновлении, остаются мусором в арене.
+     */
+    @Override
+    public Optional<Film> deleteFilm(long id) {
+        Film removed = getFilmById(id).orElse(null);
+        if (removed == null) {
+            return Optional.empty();
+        }
+        MappedByteBuffer chunk = slotChunk(id);
+        int base = slotBase(id);
+        Indexed previous;
+        locks.lock(id);
+        try {
+            if (chunk.getInt(base + PRESENT) == 0) {
+                return Optional.empty();
+            }
+            previous = indexed(chunk, base);
+            chunk.putInt(base + PRESENT, 0);
+            size.decrementAndGet();
+        } finally {
+            locks.unlock(id);
+        }
+        releaseDates.move(id, previous.releaseDate(), LongSortedIndex.ABSENT);
+        durations.move(id, previous.duration(), LongSortedIndex.ABSENT);
+        log.info("Удалён фильм id={}", id);
+        return Optional.of(removed);
+    }
+
+    @Override
+    public Optional<Film> getFilmById(Long id) {
+        if (id == null || id <= 0 || id > idGenerator.get()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(read(id));
+    }
+
+    @Override
+    public boolean containsFilm(long id) {
+        if (id <= 0 || id > idGenerator.get()) {
+            return false;
+        }
+        MappedByteBuffer chunk = slotChunk(id);
+        int base = slotBase(id);
+        locks.lock(id);
+        try {
+            return chunk.getInt(base + PRESENT) != 0;
+        } finally {
+            locks.unlock(id);
+        }
+    }
+
+    @Override
+    public LongStream getFilmIds() {
+        return LongStream.rangeClosed(1, idGenerator.get()).filter(this::containsFilm);
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(long afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        long last = idGenerator.get();
+        for (long id = Math.max(afterId, 0) + 1; id <= last && page.size() < limit; id++) {
+            Film film = read(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Фильмы собираются в объекты по одному во время обхода, весь каталог в куче не материализуется.
+     */
+    @Override
+    public Collection<Film> getAllFilms() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return new Iterator<>() {
+                    private final long last = idGenerator.get();
+                    private long id = 0;
+                    private Film next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && id < last) {
+                            next = read(++id);
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Film next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Film film = next;
+                        next = null;
+                        return film;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return (int) Math.min(Integer.MAX_VALUE, size.get());
+            }
+        };
+    }
+
+    @Override
+    public List<Film> getFilmsByReleaseDate(LocalDate from, LocalDate to, Predicate<Film> filter, int limit) {
+        return releaseDates.find(from == null ? Long.MIN_VALUE + 1 : from.toEpochDay(),
+                to == null ? Long.MAX_VALUE : to.toEpochDay(), this::read, MappedFilmStorage::releaseDateKey, filter,
+                limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByDuration(Integer min, Integer max, Predicate<Film> filter, int limit) {
+        return durations.find(min == null ? Long.MIN_VALUE + 1 : min, max == null ? Long.MAX_VALUE : max, this::read,
+                MappedFilmStorage::durationKey, filter, limit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer chunk : slotChunks) {
+            chunk.force();
+        }
+        slotsChannel.close();
+        stringsChannel.close();
+        Files.deleteIfExists(slotsPath);
+        Files.deleteIfExists(stringsPath);
+        log.info("Каталог фильмов вне кучи закрыт");
+    }
+
+    /**
+     * Строки пишутся в арену до захвата блокировки: арена только растёт, и читатель увидит их через слот,
+     * опубликованный под блокировкой полосы. Возвращает прежние значения индексируемых полей
+     * или null, если фильма нет, а mustExist.
+     */
+    private Indexed write(long id, Film film, boolean mustExist) {
+        long name = putString(film.getName());
+        long description = putString(film.getDescription());
+        MappedByteBuffer chunk = slotChunk(id);
+        int base = slotBase(id);
+        locks.lock(id);
+        try {
+            boolean existed = chunk.getInt(base + PRESENT) != 0;
+            if (mustExist && !existed) {
+                return null;
+            }
+            Indexed previous = existed ? indexed(chunk, base) : Indexed.NONE;
+            chunk.putInt(base + DURATION, film.getDuration());
+            chunk.putLong(base + RELEASE_DATE, film.getReleaseDate() == null
+                    ? NO_DATE : film.getReleaseDate().toEpochDay());
+            chunk.putLong(base + NAME, name);
+            chunk.putLong(base + DESCRIPTION, description);
+            chunk.putInt(base + PRESENT, 1);
+            if (!existed) {
+                size.incrementAndGet();
+            }
+            return previous;
+        } finally {
+            locks.unlock(id);
+        }
+    }
+
+    private void index(Film film, Indexed previous) {
+        releaseDates.move(film.getId(), previous.releaseDate(), releaseDateKey(film));
+        durations.move(film.getId(), previous.duration(), durationKey(film));
+    }
+
+    private static long releaseDateKey(Film film) {
+        return film.getReleaseDate() == null ? LongSortedIndex.ABSENT : film.getReleaseDate().toEpochDay();
+    }
+
+    private static long durationKey(Film film) {
+        return film.getDuration();
+    }
+
+    /**
+     * Индексируемые поля слота; вызывается под блокировкой полосы. Дата хранится как long (NO_DATE == ABSENT),
+     * продолжительность — как int.
+     */
+    private static Indexed indexed(MappedByteBuffer chunk, int base) {
+        return new Indexed(chunk.getLong(base + RELEASE_DATE), chunk.getInt(base + DURATION));
+    }
+
+    private Film read(long id) {
+        MappedByteBuffer chunk = slotChunk(id);
+        int base = slotBase(id);
+        int duration;
+        long releaseDate;
+        long name;
+        long description;
+        locks.lock(id);
+        try {
+            if (chunk.getInt(base + PRESENT) == 0) {
+                return null;
+            }
+            duration = chunk.getInt(base + DURATION);
+            releaseDate = chunk.getLong(base + RELEASE_DATE);
+            name = chunk.getLong(base + NAME);
+            description = chunk.getLong(base + DESCRIPTION);
+        } finally {
+            locks.unlock(id);
+        }
+        Film film = new Film();
+        film.setId(id);
+        film.setName(getString(name));
+        film.setDescription(getString(description));
+        film.setReleaseDate(releaseDate == NO_DATE ? null : LocalDate.ofEpochDay(releaseDate));
+        film.setDuration(duration);
+        return film;
+    }
+
+    /**
+     * Ссылка на строку: старшие биты — смещение в арене, младшие LENGTH_BITS — длина в байтах UTF-8.
+     */
+    private long putString(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= 1 << LENGTH_BITS || bytes.length > arenaChunkSize) {
+            throw new IllegalArgumentException("Строка длиной " + bytes.length + " байт не помещается в арену");
+        }
+        long offset = allocate(bytes.length);
+        arenaChunks[(int) (offset / arenaChunkSize)].put((int) (offset % arenaChunkSize), bytes);
+        return offset << LENGTH_BITS | bytes.length;
+    }
+
+    private String getString(long reference) {
+        if (reference == NO_STRING) {
+            return null;
+        }
+        long offset = reference >>> LENGTH_BITS;
+        byte[] bytes = new byte[(int) (reference & ((1 << LENGTH_BITS) - 1))];
+        arenaChunks[(int) (offset / arenaChunkSize)].get((int) (offset % arenaChunkSize), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Строка не пересекает границу куска арены: если не помещается в хвост текущего, начинается со следующего.
+     */
+    private long allocate(int length) {
+        growLock.lock();
+        try {
+            long offset = arenaOffset;
+            if (offset % arenaChunkSize + length > arenaChunkSize) {
+                offset = (offset / arenaChunkSize + 1) * arenaChunkSize;
+            }
+            arenaOffset = offset + length;
+            int chunk = (int) (offset / arenaChunkSize);
+            if (chunk >= arenaChunks.length) {
+                arenaChunks = grow(arenaChunks, chunk, stringsChannel, arenaChunkSize);
+            }
+            return offset;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private MappedByteBuffer slotChunk(long id) {
+        int chunk = (int) ((id - 1) / slotsPerChunk);
+        MappedByteBuffer[] chunks = slotChunks;
+        if (chunk < chunks.length) {
+            return chunks[chunk];
+        }
+        growLock.lock();
+        try {
+            if (chunk >= slotChunks.length) {
+                slotChunks = grow(slotChunks, chunk, slotsChannel, (long) slotsPerChunk * SLOT_SIZE);
+            }
+            return slotChunks[chunk];
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private int slotBase(long id) {
+        return (int) ((id - 1) % slotsPerChunk) * SLOT_SIZE;
+    }
+
+    private static MappedByteBuffer[] grow(MappedByteBuffer[] chunks, int upTo, FileChannel channel, long chunkSize) {
+        MappedByteBuffer[] grown = Arrays.copyOf(chunks, upTo + 1);
+        try {
+            for (int i = chunks.length; i <= upTo; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * chunkSize, chunkSize);
+                grown[i].order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось отобразить в память файл каталога фильмов", e);
+        }
+        return grown;
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private record Indexed(long releaseDate, long duration) {
+        private static final Indexed NONE = new Indexed(LongSortedIndex.ABSENT, LongSortedIndex.ABSENT);
+    }
+}
@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Индекс популярности фильмов.
+ * Фильмы с лайками лежат в неизменяемых декартовых деревьях (treap), упорядоченных по убыванию числа лайков,
+ * при равенстве — по возрастанию id. Деревьев PARTITIONS, фильм попадает в своё по перемешанному id, и у каждого
+ * своя блокировка: лайки разных фильмов почти всегда меняют разные деревья и идут параллельно. Изменение копирует
+ * только путь к узлу фильма (O(log n) узлов) и публикует новый корень. Топ-N читается без блокировок слиянием
+ * первых узлов всех деревьев; каждое дерево читается в одной версии, но версии разных деревьев берутся независимо.
+ */
+public class PopularityIndex {
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+
+    private final Map<Long, Integer> likeCounts = new ConcurrentHashMap<>();
+    private final Partition[] partitions = new Partition[PARTITIONS];
+
+    public PopularityIndex() {
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i] = new Partition();
+        }
+    }
+
+    public void increment(long filmId) {
+        add(filmId, 1);
+    }
+
+    public void decrement(long filmId) {
+        add(filmId, -1);
+    }
+
+    /**
+     * Меняет счётчик фильма на delta; ниже нуля он не опускается, обнулившийся фильм уходит из индекса.
+     */
+    public void add(long filmId, int delta) {
+        Partition partition = partitions[partition(filmId)];
+        partition.lock.lock();
+        try {
+            Integer current = likeCounts.get(filmId);
+            Node root = partition.version.root;
+            Node updatedRoot = current == null ? root : remove(root, filmId, current);
+            int updated = Math.max(0, (current == null ? 0 : current) + delta);
+            if (updated == 0) {
+                likeCounts.remove(filmId);
+            } else {
+                updatedRoot = insert(updatedRoot, new Node(filmId, updated, priority(filmId), null, null));
+                likeCounts.put(filmId, updated);
+            }
+            partition.version = new Version(updatedRoot, leftmost(updatedRoot, null));
+        } finally {
+            partition.lock.unlock();
+        }
+    }
+
+    public int size() {
+        return likeCounts.size();
+    }
+
+    public int getLikes(long filmId) {
+        return likeCounts.getOrDefault(filmId, 0);
+    }
+
+    /**
+     * Слияние деревьев: у каждого — стек ещё не пройденных узлов, начиная с заранее собранного левого края,
+     * на каждом шаге берётся лучший из верхних узлов. Новые кадры стека создаются только для пройденных узлов.
+     */
+    public List<Long> getTopFilmIds(int count) {
+        List<Long> result = new ArrayList<>(Math.min(count, 1024));
+        Path[] heads = new Path[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++) {
+            heads[i] = partitions[i].version.first;
+        }
+        while (result.size() < count) {
+            int best = -1;
+            for (int i = 0; i < PARTITIONS; i++) {
+                if (heads[i] != null && (best < 0 || before(heads[i].node, heads[best].node.filmId,
+                        heads[best].node.likes))) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            Node node = heads[best].node;
+            result.add(node.filmId);
+            heads[best] = leftmost(node.right, heads[best].rest);
+        }
+        return result;
+    }
+
+    /**
+     * Кладёт на стек rest левый край поддерева node: сверху окажется его первый узел.
+     */
+    private static Path leftmost(Node node, Path rest) {
+        while (node != null) {
+            rest = new Path(node, rest);
+            node = node.left;
+        }
+        return rest;
+    }
+
+    /**
+     * Старшие биты id, перемешанного другим множителем, чем приоритет: номер дерева не связан с формой дерева.
+     */
+    private static int partition(long filmId) {
+        return (int) ((filmId * 0xC2B2AE3D27D4EB4FL) >>> (Long.SIZE - PARTITION_BITS));
+    }
+
+    /**
+     * Порядок дерева: больше лайков — левее, при равенстве меньший id левее.
+     */
+    private static boolean before(Node a, long filmId, int likes) {
+        return a.likes != likes ? a.likes > likes : a.filmId < filmId;
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (before(added, node.filmId, node.likes)) {
+            Node left = insert(node.left, added);
+            return left.priority > node.priority
+                    ? left.withRight(node.withLeft(left.right))
+                    : node.withLeft(left);
+        }
+        Node right = insert(node.right, added);
+        return right.priority > node.priority
+                ? right.withLeft(node.withRight(right.left))
+                : node.withRight(right);
+    }
+
+    private static Node remove(Node node, long filmId, int likes) {
+        if (node == null) {
+            return null;
+        }
+        if (node.filmId == filmId) {
+            return merge(node.left, node.right);
+        }
+        return before(node, filmId, likes)
+                ? node.withRight(remove(node.right, filmId, likes))
+                : node.withLeft(remove(node.left, filmId, likes));
+    }
+
+    /**
+     * Слияние поддеревьев, где все узлы left стоят раньше узлов right.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        return left.priority > right.priority
+                ? left.withRight(merge(left.right, right))
+                : right.withLeft(merge(left, right.left));
+    }
+
+    /**
+     * Приоритет узла — перемешанный id: дерево сбалансировано в среднем и не зависит от порядка изменений.
+     */
+    private static int priority(long filmId) {
+        long z = filmId * 0x9E3779B97F4A7C15L;
+        return (int) (z ^ (z >>> 32));
+    }
+
+    private static final class Partition {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Version version = new Version(null, null);
+    }
+
+    /**
+     * Опубликованная версия дерева: корень и стек его левого края, с которого начинается обход.
+     */
+    private record Version(Node root, Path first) {
+    }
+
+    private record Path(Node node, Path rest) {
+    }
+
+    private record Node(long filmId, int likes, int priority, Node left, Node right) {
+        private Node withLeft(Node left) {
+            return new Node(filmId, likes, priority, left, right);
+        }
+
+        private Node withRight(Node right) {
+            return new Node(filmId, likes, priority, left, right);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Вторичный индекс хранилища: отсортированное отображение значения поля в id записей с этим значением.
+ * Индекс помнит, под каким значением лежит каждый id, поэтому при обновлении не нужна прежняя версия записи —
+ * даже если вызывающий изменил сохранённый объект на месте. Записи без значения (null) в индекс не попадают.
+ * Обход диапазона идёт по возрастанию значения, при равных значениях — по возрастанию id.
+ */
+public class SortedIndex<T, K extends Comparable<? super K>> {
+    private final Function<T, K> key;
+    private final NavigableMap<K, SortedLongSet> byKey = new TreeMap<>();
+    private final Map<Long, K> keys = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SortedIndex(Function<T, K> key) {
+        this.key = key;
+    }
+
+    /**
+     * Добавляет запись или переносит её под новое значение поля.
+     */
+    public void put(long id, T record) {
+        K current = key.apply(record);
+        lock.writeLock().lock();
+        try {
+            K previous = keys.get(id);
+            if (Objects.equals(previous, current)) {
+                return;
+            }
+            if (previous != null) {
+                unlink(previous, id);
+            }
+            if (current == null) {
+                keys.remove(id);
+            } else {
+                keys.put(id, current);
+                byKey.computeIfAbsent(current, ignored -> new SortedLongSet()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            K previous = keys.remove(id);
+            if (previous != null) {
+                unlink(previous, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Записи со значением в [from, to] (null — без границы), прошедшие filter; не больше limit.
+     * Запись берётся через lookup под блокировкой чтения индекса. Если хранилище уже сохранило новую версию,
+     * а индекс её ещё не получил, у записи другое значение поля — такая запись пропускается.
+     */
+    public List<T> find(K from, K to, LongFunction<T> lookup, Predicate<T> filter, int limit) {
+        List<T> found = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            NavigableMap<K, SortedLongSet> range = byKey;
+            if (from != null) {
+                range = range.tailMap(from, true);
+            }
+            if (to != null) {
+                range = range.headMap(to, true);
+            }
+            for (Map.Entry<K, SortedLongSet> entry : range.entrySet()) {
+                SortedLongSet ids = entry.getValue();
+                for (int i = 0; i < ids.size(); i++) {
+                    T record = lookup.apply(ids.get(i));
+                    if (record != null && entry.getKey().equals(key.apply(record)) && filter.test(record)) {
+                        found.add(record);
+                        if (found.size() == limit) {
+                            return found;
+                        }
+                    }
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unlink(K value, long id) {
+        SortedLongSet ids = byKey.get(value);
+        if (ids != null && ids.remove(id) && ids.size() == 0) {
+            byKey.remove(value);
+        }
+    }
+}
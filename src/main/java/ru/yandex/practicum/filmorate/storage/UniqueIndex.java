@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Уникальный индекс хранилища: нормализованное значение поля (без пробелов по краям, в нижнем регистре) -> id.
+ * Значение занимается до вставки записи — claim с уже выданным id атомарен для ключа, поэтому из двух одновременных
+ * регистраций с одним значением пройдёт только одна. Ключ, чьей записи ещё нет в хранилище, считается резервом.
+ * <p>
+ * Индекс не хранит значения по id: если запись изменили на месте и прежнее значение не освободили,
+ * оно освобождается при следующей попытке его занять — у записи-владельца поле уже другое.
+ */
+public class UniqueIndex<T> {
+    private final Function<T, String> field;
+    private final LongFunction<T> lookup;
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+
+    public UniqueIndex(Function<T, String> field, LongFunction<T> lookup) {
+        this.field = field;
+        this.lookup = lookup;
+    }
+
+    public static String normalize(String value) {
+        return value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Занимает значение за записью id; false — оно занято другой записью или её резервом. null ничего не занимает.
+     */
+    public boolean claim(String value, long id) {
+        if (value == null) {
+            return true;
+        }
+        String key = normalize(value);
+        return ids.compute(key, (ignored, owner) -> owner == null || owner == id || isStale(key, owner)
+                ? id : owner) == id;
+    }
+
+    public void release(String value, long id) {
+        if (value != null) {
+            ids.remove(normalize(value), id);
+        }
+    }
+
+    /**
+     * id записи с этим значением поля или 0, если такой нет.
+     */
+    public long find(String value) {
+        if (value == null) {
+            return 0;
+        }
+        String key = normalize(value);
+        Long owner = ids.get(key);
+        if (owner == null) {
+            return 0;
+        }
+        T record = lookup.apply(owner);
+        return record != null && owns(record, key) ? owner : 0;
+    }
+
+    public static boolean sameKey(String value, String other) {
+        return value == null ? other == null : other != null && normalize(value).equals(normalize(other));
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private boolean isStale(String key, long owner) {
+        T record = lookup.apply(owner);
+        return record != null && !owns(record, key);
+    }
+
+    private boolean owns(T record, String key) {
+        String value = field.apply(record);
+        return value != null && key.equals(normalize(value));
+    }
+}
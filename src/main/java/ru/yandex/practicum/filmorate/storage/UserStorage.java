@@ -1,16 +1,106 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.time.MonthDay;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 public interface UserStorage {
-    User addUser(User user);
+    default User addUser(User user) {
+        return addUser(user, added -> {
+        });
+    }
+
+    /**
+     * email и логин уникальны без учёта регистра; если один из них занят — ConflictException. beforePublish
+     * получает пользователя с уже выданным id, когда email и логин заняты, но раньше, чем его увидят читатели;
+     * исключение из beforePublish отменяет добавление и освобождает email и логин.
+     */
+    User addUser(User user, Consumer<User> beforePublish);
 
     User updateUser(User user);
 
+    default List<User> addUsers(List<User> users) {
+        return addUsers(users, added -> {
+        });
+    }
+
+    /**
+     * Пакетное добавление; реализации выдают id одним диапазоном. Пользователи с занятым email или логином
+     * пропускаются и не попадают в результат. beforePublish — как в addUser, для каждого добавляемого.
+     */
+    default List<User> addUsers(List<User> users, Consumer<User> beforePublish) {
+        return skipConflicts(users, user -> addUser(user, beforePublish));
+    }
+
+    default List<User> updateUsers(List<User> users) {
+        return skipConflicts(users, this::updateUser);
+    }
+
+    /**
+     * Сохраняет пользователя с уже назначенным id (восстановление после перезапуска).
+     */
+    User restoreUser(User user);
+
+    /**
+     * Удаляет пользователя, освобождая его email и логин, и возвращает его. Дружбу и лайки хранилище не трогает.
+     */
+    Optional<User> deleteUser(long id);
+
+    /**
+     * Все пользователи. Хранилище в памяти отдаёт неизменяемый срез на момент вызова.
+     */
     Collection<User> getAllUsers();
 
     Optional<User> getUserById(Long id);
+
+    /**
+     * Пользователи с данными id в том же порядке; отсутствующие пропускаются. Реализации читают за один проход
+     * без Optional на каждый id.
+     */
+    default List<User> getUsersByIds(long[] ids) {
+        List<User> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            getUserById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    /**
+     * Поиск по email без учёта регистра и пробелов по краям.
+     */
+    Optional<User> getUserByEmail(String email);
+
+    /**
+     * Поиск по логину без учёта регистра и пробелов по краям.
+     */
+    Optional<User> getUserByLogin(String login);
+
+    /**
+     * Страница пользователей по возрастанию id: не больше limit пользователей с id больше afterId.
+     */
+    List<User> getUsersAfter(long afterId, int limit);
+
+    /**
+     * Пользователи, у которых день рождения (месяц и число) в [from, to]: по возрастанию дня рождения, затем id.
+     */
+    List<User> getUsersByBirthday(MonthDay from, MonthDay to, int limit);
+
+    private static List<User> skipConflicts(List<User> users, UnaryOperator<User> operation) {
+        List<User> done = new ArrayList<>(users.size());
+        for (User user : users) {
+            try {
+                done.add(operation.apply(user));
+            } catch (ConflictException e) {
+                // занятый email или логин — пользователь пропускается
+            }
+        }
+        return done;
+    }
 }
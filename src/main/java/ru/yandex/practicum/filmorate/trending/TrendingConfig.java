@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+@Configuration
+public class TrendingConfig {
+
+    @Bean(destroyMethod = "close")
+    public TrendingCounter trendingCounter(MetricsRegistry metrics) {
+        TrendingCounter counter = new TrendingCounter();
+        for (TrendingCounter.Window window : TrendingCounter.Window.values()) {
+            metrics.gauge("trending." + window, () -> counter.size(window));
+        }
+        counter.scheduleRotation();
+        return counter;
+    }
+}
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лайки за последний час, день и неделю. Для каждого окна у фильма кольцо счётчиков-корзин фиксированной
+ * ширины (AtomicIntegerArray в ConcurrentHashMap): лайк за O(1) увеличивает текущую корзину каждого окна
+ * и отмечает фильм изменённым, не беря общих блокировок. Фоновый планировщик раз в ширину корзины сдвигает
+ * кольцо и обнуляет самую старую корзину — только у фильмов, у которых она не пуста. Историю лайков никто
+ * не перебирает, а память на фильм ограничена числом корзин и освобождается, когда его счётчик в окне обнуляется.
+ * <p>
+ * Итоги окна лежат в отдельном PopularityIndex, так что топ по окну читается так же, как общий топ. Индекс
+ * переранжируется пачкой — при сдвиге окна и перед чтением топа, только по фильмам, изменившимся с прошлого
+ * раза; если изменений не было, чтение топа ничего не пересчитывает.
+ * Окно покрывает от (slots - 1) до slots ширин корзины. Время лайка не хранится, поэтому снятый лайк
+ * вычитается из самой свежей непустой корзины — чаще всего лайк и снимают вскоре после того, как поставили.
+ * Счётчики не сохраняются в журнал: после перезапуска тренды набираются заново.
+ */
+@Slf4j
+public class TrendingCounter implements AutoCloseable {
+    private final Ring[] rings;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("trending-rotation").daemon().unstarted(runnable));
+
+    public TrendingCounter() {
+        Window[] windows = Window.values();
+        rings = new Ring[windows.length];
+        for (Window window : windows) {
+            rings[window.ordinal()] = new Ring(window.slots);
+        }
+    }
+
+    public enum Window {
+        HOUR(Duration.ofMinutes(5), 12),
+        DAY(Duration.ofHours(1), 24),
+        WEEK(Duration.ofHours(6), 28);
+
+        private final Duration bucket;
+        private final int slots;
+
+        Window(Duration bucket, int slots) {
+            this.bucket = bucket;
+            this.slots = slots;
+        }
+
+        public Duration getBucket() {
+            return bucket;
+        }
+
+        public static Window parse(String value) {
+            for (Window window : values()) {
+                if (window.name().equalsIgnoreCase(value)) {
+                    return window;
+                }
+            }
+            throw new ValidationException("Параметр window должен быть одним из: hour, day, week");
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public void likeAdded(long filmId) {
+        for (Ring ring : rings) {
+            ring.add(filmId);
+        }
+    }
+
+    public void likeRemoved(long filmId) {
+        for (Ring ring : rings) {
+            ring.removeNewest(filmId);
+        }
+    }
+
+    public List<Long> getTopFilmIds(Window window, int count) {
+        return rings[window.ordinal()].ranked().getTopFilmIds(count);
+    }
+
+    public int getLikes(Window window, long filmId) {
+        return rings[window.ordinal()].getLikes(filmId);
+    }
+
+    /**
+     * Фильмов с ненулевым счётчиком в окне.
+     */
+    public int size(Window window) {
+        return rings[window.ordinal()].ranked().size();
+    }
+
+    /**
+     * Сдвигает кольцо окна на одну корзину: самая старая корзина выпадает из окна и становится текущей.
+     */
+    public void rotate(Window window) {
+        rings[window.ordinal()].rotate();
+    }
+
+    public void scheduleRotation() {
+        for (Window window : Window.values()) {
+            long millis = window.bucket.toMillis();
+            scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    rotate(window);
+                } catch (RuntimeException e) {
+                    log.error("Не удалось сдвинуть окно трендов {}", window, e);
+                }
+            }, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Ring {
+        private final int slots;
+        private final Map<Long, AtomicIntegerArray> counters = new ConcurrentHashMap<>();
+        // для каждой корзины — фильмы, у которых она стала непустой: сдвиг трогает только их
+        private final List<Set<Long>> touched;
+        // фильмы, чей итог изменился после последнего переранжирования
+        private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+        // сдвиг и переранжирование; лайки её не берут
+        private final ReentrantLock lock = new ReentrantLock();
+        private final PopularityIndex index = new PopularityIndex();
+        private volatile int head;
+
+        Ring(int slots) {
+            this.slots = slots;
+            this.touched = new ArrayList<>(slots);
+            for (int i = 0; i < slots; i++) {
+                touched.add(ConcurrentHashMap.newKeySet());
+            }
+        }
+
+        /**
+         * compute держит ячейку фильма, поэтому сдвиг не может удалить его счётчики между чтением и увеличением.
+         */
+        void add(long filmId) {
+            counters.compute(filmId, (id, buckets) -> {
+                AtomicIntegerArray result = buckets == null ? new AtomicIntegerArray(slots) : buckets;
+                int current = head;
+                if (result.getAndIncrement(current) == 0) {
+                    touched.get(current).add(filmId);
+                }
+                return result;
+            });
+            dirty.add(filmId);
+        }
+
+        void removeNewest(long filmId) {
+            counters.computeIfPresent(filmId, (id, buckets) -> {
+                int current = head;
+                for (int age = 0; age < slots; age++) {
+                    int slot = Math.floorMod(current - age, slots);
+                    if (buckets.get(slot) > 0) {
+                        buckets.decrementAndGet(slot);
+                        break;
+                    }
+                }
+                return total(buckets) == 0 ? null : buckets;
+            });
+            dirty.add(filmId);
+        }
+
+        int getLikes(long filmId) {
+            AtomicIntegerArray buckets = counters.get(filmId);
+            return buckets == null ? 0 : total(buckets);
+        }
+
+        /**
+         * Корзина, которая станет текущей, обнуляется до переключения head: лайки до переключения пишутся
+         * в прежнюю корзину и не теряются.
+         */
+        void rotate() {
+            lock.lock();
+            try {
+                int next = (head + 1) % slots;
+                Set<Long> expired = touched.get(next);
+                for (Long filmId : expired) {
+                    counters.computeIfPresent(filmId, (id, buckets) -> {
+                        buckets.set(next, 0);
+                        return total(buckets) == 0 ? null : buckets;
+                    });
+                    dirty.add(filmId);
+                }
+                expired.clear();
+                head = next;
+                rerank();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Индекс с итогами на момент вызова.
+         */
+        PopularityIndex ranked() {
+            if (!dirty.isEmpty()) {
+                lock.lock();
+                try {
+                    rerank();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Переносит в индекс итоги изменившихся фильмов. Фильм снимается с отметки до чтения итога:
+         * лайк, пришедший после, отметит его снова и попадёт в следующую пачку.
+         */
+        private void rerank() {
+            Iterator<Long> iterator = dirty.iterator();
+            while (iterator.hasNext()) {
+                long filmId = iterator.next();
+                iterator.remove();
+                int delta = getLikes(filmId) - index.getLikes(filmId);
+                if (delta != 0) {
+                    index.add(filmId, delta);
+                }
+            }
+        }
+
+        private static int total(AtomicIntegerArray buckets) {
+            int sum = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                sum += buckets.get(i);
+            }
+            return sum;
+        }
+    }
+}
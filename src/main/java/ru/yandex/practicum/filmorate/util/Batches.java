@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.util;
+
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Общие шаги пакетной обработки: параллельная проверка элементов и сбор результатов по позициям.
+ */
+public final class Batches {
+    private Batches() {
+    }
+
+    /**
+     * Проверяет элементы параллельно; null в ответе — элемент прошёл проверку, иначе текст ошибки.
+     */
+    public static <T> String[] validate(List<T> items, Consumer<T> validator) {
+        String[] errors = new String[items.size()];
+        IntStream.range(0, items.size()).parallel().forEach(i -> {
+            try {
+                validator.accept(items.get(i));
+            } catch (ValidationException | NotFoundException e) {
+                errors[i] = e.getMessage();
+            }
+        });
+        return errors;
+    }
+
+    public static <T> List<T> accepted(List<T> items, String[] errors) {
+        List<T> accepted = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (errors[i] == null) {
+                accepted.add(items.get(i));
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Отмечает ошибкой принятые элементы, которых хранилище не обработало (их нет в done).
+     */
+    public static <T> void rejectSkipped(List<T> items, String[] errors, List<T> done, String error) {
+        if (done.size() == items.size()) {
+            return;
+        }
+        Set<T> processed = Collections.newSetFromMap(new IdentityHashMap<>());
+        processed.addAll(done);
+        for (int i = 0; i < items.size(); i++) {
+            if (errors[i] == null && !processed.contains(items.get(i))) {
+                errors[i] = error;
+            }
+        }
+    }
+
+    public static <T> List<BatchResult> results(List<T> items, String[] errors, Function<T, Long> id) {
+        List<BatchResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            results.add(errors[i] == null ? BatchResult.ok(id.apply(items.get(i))) : BatchResult.failed(errors[i]));
+        }
+        return results;
+    }
+
+    public static void joinAll(List<CompletableFuture<Void>> commits) {
+        CompletableFuture.allOf(commits.toArray(CompletableFuture[]::new)).join();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Счётчики по long-ключам на открытой адресации с линейным пробированием: два примитивных массива
+ * без упаковки ключей и значений. Ключ 0 зарезервирован под пустую ячейку — id в приложении начинаются с 1.
+ * Обнулившиеся счётчики не удаляются, их пропускают при обходе. Класс не потокобезопасен.
+ */
+public class LongIntCounter {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    public LongIntCounter() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public void add(long key, int delta) {
+        int slot = find(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = delta;
+                grow();
+                return;
+            }
+        }
+        values[slot] += delta;
+    }
+
+    public int get(long key) {
+        int slot = find(key);
+        return keys[slot] == 0 ? 0 : values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ячейки для обхода: keyAt(slot) == 0 — пустая ячейка.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Прибавляет к себе все счётчики other.
+     */
+    public void addAll(LongIntCounter other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != 0) {
+                add(other.keys[slot], other.values[slot]);
+            }
+        }
+    }
+
+    private int find(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != 0) {
+                int target = find(oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Второй шаг обхода двудольного или обычного графа: для вершин sources[from, to) берутся их соседи,
+ * и каждый сосед получает +1 (или weights[i], если веса заданы) за каждую вершину, через которую он найден.
+ * Диапазоны длиннее leafSize делятся пополам и считаются параллельно задачами fork-join, у каждой свой счётчик.
+ * <p>
+ * Бюджет — число просмотренных соседей — делится между половинами пропорционально длине, так что результат
+ * не зависит от планирования. Вершина, чей список соседей не влезает в остаток бюджета, пропускается,
+ * а не обрывает обход: одна вершина огромной степени не должна вытеснять все остальные.
+ */
+public class NeighbourCountTask extends RecursiveTask<LongIntCounter> {
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private final long[] sources;
+    private final int[] weights;
+    private final int from;
+    private final int to;
+    private final long budget;
+    private final int leafSize;
+    private final LongFunction<long[]> neighbours;
+    private final LongToIntFunction degree;
+    private boolean truncated;
+    private NeighbourCountTask left;
+    private NeighbourCountTask right;
+
+    public NeighbourCountTask(long[] sources, long budget, int leafSize, LongFunction<long[]> neighbours,
+                              LongToIntFunction degree) {
+        this(sources, null, budget, leafSize, neighbours, degree);
+    }
+
+    public NeighbourCountTask(long[] sources, int[] weights, long budget, int leafSize,
+                              LongFunction<long[]> neighbours, LongToIntFunction degree) {
+        this(sources, weights, 0, sources.length, budget, leafSize, neighbours, degree);
+    }
+
+    private NeighbourCountTask(long[] sources, int[] weights, int from, int to, long budget, int leafSize,
+                               LongFunction<long[]> neighbours, LongToIntFunction degree) {
+        this.sources = sources;
+        this.weights = weights;
+        this.from = from;
+        this.to = to;
+        this.budget = budget;
+        this.leafSize = Math.max(1, leafSize);
+        this.neighbours = neighbours;
+        this.degree = degree;
+    }
+
+    /**
+     * Считает в текущем потоке, если делить нечего, иначе — в общем пуле fork-join.
+     */
+    public LongIntCounter run() {
+        return to - from > leafSize ? ForkJoinPool.commonPool().invoke(this) : compute();
+    }
+
+    /**
+     * Хотя бы одна вершина пропущена из-за бюджета.
+     */
+    public boolean isTruncated() {
+        return truncated || left != null && left.isTruncated() || right != null && right.isTruncated();
+    }
+
+    @Override
+    protected LongIntCounter compute() {
+        if (to - from > leafSize) {
+            int middle = (from + to) >>> 1;
+            long leftBudget = budget == UNBOUNDED ? budget : budget * (middle - from) / (to - from);
+            long rightBudget = budget == UNBOUNDED ? budget : budget - leftBudget;
+            left = new NeighbourCountTask(sources, weights, from, middle, leftBudget, leafSize, neighbours, degree);
+            right = new NeighbourCountTask(sources, weights, middle, to, rightBudget, leafSize, neighbours, degree);
+            left.fork();
+            LongIntCounter counts = right.compute();
+            LongIntCounter other = left.join();
+            if (other.size() > counts.size()) {
+                other.addAll(counts);
+                return other;
+            }
+            counts.addAll(other);
+            return counts;
+        }
+        LongIntCounter counts = new LongIntCounter();
+        long spent = 0;
+        for (int i = from; i < to; i++) {
+            if (spent + degree.applyAsInt(sources[i]) > budget) {
+                truncated = true;
+                continue;
+            }
+            long[] found = neighbours.apply(sources[i]);
+            spent += found.length;
+            int weight = weights == null ? 1 : weights[i];
+            for (long neighbour : found) {
+                counts.add(neighbour, weight);
+            }
+        }
+        return counts;
+    }
+}
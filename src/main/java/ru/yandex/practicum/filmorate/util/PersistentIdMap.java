@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемое отображение неотрицательного id в значение на 32-ичном префиксном дереве.
+ * with возвращает новую версию, копируя только путь от корня до листа (log32 id узлов по 32 ссылки),
+ * остальные узлы у версий общие. Поэтому версия — согласованный срез: её можно читать и обходить из любого
+ * потока без блокировок, пока писатели публикуют следующие версии. Как коллекция — значения по возрастанию id.
+ */
+public final class PersistentIdMap<T> extends AbstractCollection<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentIdMap<?> EMPTY = new PersistentIdMap<>(null, 0, 0);
+
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+
+    private PersistentIdMap(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentIdMap<T> empty() {
+        return (PersistentIdMap<T>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long id) {
+        if (root == null || id < 0 || !fits(id, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(int) (id >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (T) node[(int) id & MASK];
+    }
+
+    public boolean containsId(long id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Версия, в которой id соответствует value; null удаляет id. Если ничего не меняется, возвращается this.
+     */
+    public PersistentIdMap<T> with(long id, T value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id не может быть отрицательным: " + id);
+        }
+        if (value == null && get(id) == null) {
+            return this;
+        }
+        Object[] top = root == null ? new Object[WIDTH] : root;
+        int topShift = root == null ? 0 : shift;
+        while (!fits(id, topShift)) {
+            Object[] grown = new Object[WIDTH];
+            grown[0] = top;
+            top = grown;
+            topShift += BITS;
+        }
+        Object[] copy = top.clone();
+        Object[] node = copy;
+        for (int level = topShift; level > 0; level -= BITS) {
+            int index = (int) (id >>> level) & MASK;
+            Object[] child = node[index] == null ? new Object[WIDTH] : ((Object[]) node[index]).clone();
+            node[index] = child;
+            node = child;
+        }
+        int index = (int) id & MASK;
+        Object previous = node[index];
+        if (previous == value) {
+            return this;
+        }
+        node[index] = value;
+        int updated = size + (previous == null ? 1 : 0) - (value == null ? 1 : 0);
+        return new PersistentIdMap<>(copy, topShift, updated);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Cursor();
+    }
+
+    private static boolean fits(long id, int shift) {
+        return shift + BITS >= Long.SIZE - 1 || id >>> (shift + BITS) == 0;
+    }
+
+    /**
+     * Обход в глубину со стеком узлов по уровням, без рекурсии и без копирования значений.
+     */
+    private final class Cursor implements Iterator<T> {
+        private final Object[][] nodes;
+        private final int[] positions;
+        private int level;
+        private Object next;
+
+        private Cursor() {
+            int depth = root == null ? 0 : shift / BITS + 1;
+            nodes = new Object[depth][];
+            positions = new int[depth];
+            if (depth > 0) {
+                nodes[0] = root;
+            }
+            level = depth > 0 ? 0 : -1;
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Object current = next;
+            next = advance();
+            return (T) current;
+        }
+
+        private Object advance() {
+            while (level >= 0) {
+                if (positions[level] == WIDTH) {
+                    level--;
+                    continue;
+                }
+                Object item = nodes[level][positions[level]++];
+                if (item == null) {
+                    continue;
+                }
+                if (level == nodes.length - 1) {
+                    return item;
+                }
+                level++;
+                nodes[level] = (Object[]) item;
+                positions[level] = 0;
+            }
+            return null;
+        }
+    }
+}
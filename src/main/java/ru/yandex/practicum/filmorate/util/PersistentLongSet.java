@@ -0,0 +1,259 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемое множество long на B+-дереве: листья — отсортированные массивы до 64 значений, узлы — до 64 детей.
+ * with и without возвращают новую версию, копируя только путь от корня до листа (O(log n), не O(n)), остальные
+ * узлы у версий общие. Соседи, опустевшие до четверти, сливаются, так что высота остаётся логарифмической.
+ * Плоский отсортированный массив версии собирается при первом toArray и запоминается; у множества из одного
+ * листа это сам лист. Версию можно читать из любого потока без блокировок.
+ */
+public final class PersistentLongSet {
+    private static final int WIDTH = 64;
+    private static final int MERGE_BELOW = WIDTH / 4;
+    private static final long[] NO_VALUES = new long[0];
+    private static final PersistentLongSet EMPTY = new PersistentLongSet(NO_VALUES, 0);
+
+    // long[] для листа или Branch
+    private final Object root;
+    private final int size;
+    private volatile long[] flat;
+
+    private PersistentLongSet(Object root, int size) {
+        this.root = root;
+        this.size = size;
+        this.flat = root instanceof long[] leaf ? leaf : null;
+    }
+
+    public static PersistentLongSet empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long value) {
+        Object node = root;
+        while (node instanceof Branch branch) {
+            node = branch.children[branch.childFor(value)];
+        }
+        return Arrays.binarySearch((long[]) node, value) >= 0;
+    }
+
+    /**
+     * Версия с value; если value уже есть, возвращается this.
+     */
+    public PersistentLongSet with(long value) {
+        Object[] inserted = insert(root, value);
+        if (inserted == null) {
+            return this;
+        }
+        Object top = inserted.length == 1 ? inserted[0] : Branch.of(inserted);
+        return new PersistentLongSet(top, size + 1);
+    }
+
+    /**
+     * Версия без value; если value нет, возвращается this.
+     */
+    public PersistentLongSet without(long value) {
+        Object updated = remove(root, value);
+        if (updated == root) {
+            return this;
+        }
+        if (updated == null) {
+            return EMPTY;
+        }
+        while (updated instanceof Branch branch && branch.children.length == 1) {
+            updated = branch.children[0];
+        }
+        return new PersistentLongSet(updated, size - 1);
+    }
+
+    /**
+     * Значения по возрастанию. Массив общий для всех читателей версии и не должен меняться.
+     */
+    public long[] toArray() {
+        long[] values = flat;
+        if (values == null) {
+            values = new long[size];
+            copyTo(root, values, 0);
+            flat = values;
+        }
+        return values;
+    }
+
+    /**
+     * Новый узел вместо node, либо два узла, если он разделился; null — value уже есть.
+     */
+    private static Object[] insert(Object node, long value) {
+        if (node instanceof Branch branch) {
+            int index = branch.childFor(value);
+            Object[] inserted = insert(branch.children[index], value);
+            return inserted == null ? null : branch.inserted(index, inserted);
+        }
+        long[] leaf = (long[]) node;
+        int found = Arrays.binarySearch(leaf, value);
+        if (found >= 0) {
+            return null;
+        }
+        int at = -found - 1;
+        long[] grown = new long[leaf.length + 1];
+        System.arraycopy(leaf, 0, grown, 0, at);
+        grown[at] = value;
+        System.arraycopy(leaf, at, grown, at + 1, leaf.length - at);
+        if (grown.length <= WIDTH) {
+            return new Object[]{grown};
+        }
+        int half = grown.length / 2;
+        return new Object[]{Arrays.copyOfRange(grown, 0, half), Arrays.copyOfRange(grown, half, grown.length)};
+    }
+
+    /**
+     * Новый узел вместо node; тот же node — value нет; null — узел опустел.
+     */
+    private static Object remove(Object node, long value) {
+        if (node instanceof Branch branch) {
+            int index = branch.childFor(value);
+            Object child = branch.children[index];
+            Object updated = remove(child, value);
+            return updated == child ? node : branch.removed(index, updated);
+        }
+        long[] leaf = (long[]) node;
+        int at = Arrays.binarySearch(leaf, value);
+        if (at < 0) {
+            return node;
+        }
+        if (leaf.length == 1) {
+            return null;
+        }
+        long[] shrunk = new long[leaf.length - 1];
+        System.arraycopy(leaf, 0, shrunk, 0, at);
+        System.arraycopy(leaf, at + 1, shrunk, at, shrunk.length - at);
+        return shrunk;
+    }
+
+    private static int copyTo(Object node, long[] target, int offset) {
+        if (node instanceof Branch branch) {
+            for (Object child : branch.children) {
+                offset = copyTo(child, target, offset);
+            }
+            return offset;
+        }
+        long[] leaf = (long[]) node;
+        System.arraycopy(leaf, 0, target, offset, leaf.length);
+        return offset + leaf.length;
+    }
+
+    private static long first(Object node) {
+        return node instanceof Branch branch ? branch.firsts[0] : ((long[]) node)[0];
+    }
+
+    private static int width(Object node) {
+        return node instanceof Branch branch ? branch.children.length : ((long[]) node).length;
+    }
+
+    /**
+     * Сливает соседние узлы одного уровня: у сбалансированного дерева они одного вида.
+     */
+    private static Object merge(Object left, Object right) {
+        if (left instanceof Branch branch) {
+            Branch other = (Branch) right;
+            return new Branch(concat(branch.children, other.children), concat(branch.firsts, other.firsts));
+        }
+        return concat((long[]) left, (long[]) right);
+    }
+
+    private static Object[] concat(Object[] left, Object[] right) {
+        Object[] joined = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, joined, left.length, right.length);
+        return joined;
+    }
+
+    private static long[] concat(long[] left, long[] right) {
+        long[] joined = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, joined, left.length, right.length);
+        return joined;
+    }
+
+    /**
+     * Внутренний узел: дети и первое значение каждого из них для спуска бинарным поиском.
+     */
+    private static final class Branch {
+        private final Object[] children;
+        private final long[] firsts;
+
+        private Branch(Object[] children, long[] firsts) {
+            this.children = children;
+            this.firsts = firsts;
+        }
+
+        private static Branch of(Object[] children) {
+            long[] firsts = new long[children.length];
+            for (int i = 0; i < children.length; i++) {
+                firsts[i] = first(children[i]);
+            }
+            return new Branch(children, firsts);
+        }
+
+        /**
+         * Последний ребёнок, чьё первое значение не больше value, или первый.
+         */
+        private int childFor(long value) {
+            int found = Arrays.binarySearch(firsts, value);
+            return found >= 0 ? found : Math.max(0, -found - 2);
+        }
+
+        /**
+         * Копия узла, где ребёнок index заменён на nodes (один узел или два после разделения);
+         * возвращает один узел или два, если разделился и он сам.
+         */
+        private Object[] inserted(int index, Object[] nodes) {
+            Object[] updated = new Object[children.length + nodes.length - 1];
+            System.arraycopy(children, 0, updated, 0, index);
+            System.arraycopy(nodes, 0, updated, index, nodes.length);
+            System.arraycopy(children, index + 1, updated, index + nodes.length, children.length - index - 1);
+            if (updated.length <= WIDTH) {
+                return new Object[]{of(updated)};
+            }
+            int half = updated.length / 2;
+            return new Object[]{of(Arrays.copyOfRange(updated, 0, half)),
+                    of(Arrays.copyOfRange(updated, half, updated.length))};
+        }
+
+        /**
+         * Копия узла, где ребёнок index заменён на child (null — удалён); маленький ребёнок сливается с соседом.
+         * null — узел опустел.
+         */
+        private Object removed(int index, Object child) {
+            if (child == null) {
+                if (children.length == 1) {
+                    return null;
+                }
+                Object[] updated = new Object[children.length - 1];
+                System.arraycopy(children, 0, updated, 0, index);
+                System.arraycopy(children, index + 1, updated, index, updated.length - index);
+                return of(updated);
+            }
+            int neighbour = index + 1 < children.length ? index + 1 : index - 1;
+            if (width(child) < MERGE_BELOW && neighbour >= 0
+                    && width(child) + width(children[neighbour]) <= WIDTH) {
+                int left = Math.min(index, neighbour);
+                Object merged = left == index ? merge(child, children[neighbour]) : merge(children[neighbour], child);
+                Object[] updated = new Object[children.length - 1];
+                System.arraycopy(children, 0, updated, 0, left);
+                updated[left] = merged;
+                System.arraycopy(children, left + 2, updated, left + 1, updated.length - left - 1);
+                return of(updated);
+            }
+            Object[] updated = children.clone();
+            updated[index] = child;
+            return of(updated);
+        }
+    }
+}
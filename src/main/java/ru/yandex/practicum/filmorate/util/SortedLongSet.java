@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Множество long на отсортированном примитивном массиве: 8 байт на элемент без упаковки в Long.
+ * Вставка и удаление сдвигают хвост массива через System.arraycopy, поиск — бинарный.
+ * Класс не потокобезопасен, синхронизация лежит на владельце.
+ */
+public class SortedLongSet {
+    private static final long[] EMPTY = new long[0];
+    private static final int MIN_CAPACITY = 4;
+    // при таком перекосе размеров поиск галопом по большему массиву выгоднее линейного слияния
+    private static final int GALLOP_RATIO = 16;
+
+    private long[] values = EMPTY;
+    private int size;
+
+    public boolean add(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(MIN_CAPACITY, size + (size >> 1)));
+        }
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        if (size < values.length >> 2 && values.length > MIN_CAPACITY) {
+            values = Arrays.copyOf(values, Math.max(MIN_CAPACITY, size << 1));
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Элемент по порядковому номеру, 0 <= index < size(): обход без копирования массива.
+     */
+    public long get(int index) {
+        return values[index];
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Пересечение отсортированных массивов целиком; единственная аллокация — массив результата.
+     */
+    public static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int found = intersect(a, a.length, b, b.length, out);
+        return found == out.length ? out : Arrays.copyOf(out, found);
+    }
+
+    /**
+     * Пересечение без промежуточных коллекций: единственная аллокация — массив результата.
+     */
+    public long[] intersect(SortedLongSet other) {
+        long[] out = new long[Math.min(size, other.size)];
+        int found = intersect(values, size, other.values, other.size, out);
+        return found == out.length ? out : Arrays.copyOf(out, found);
+    }
+
+    /**
+     * Пересекает отсортированные массивы в out и возвращает число найденных элементов.
+     * Стратегия выбирается по соотношению размеров: галоп для перекошенных пар, слияние для сопоставимых.
+     */
+    public static int intersect(long[] a, int aSize, long[] b, int bSize, long[] out) {
+        if (aSize > bSize) {
+            return intersect(b, bSize, a, aSize, out);
+        }
+        if (aSize == 0) {
+            return 0;
+        }
+        if (bSize / aSize >= GALLOP_RATIO) {
+            return gallopIntersect(a, aSize, b, bSize, out);
+        }
+        return mergeIntersect(a, aSize, b, bSize, out);
+    }
+
+    public static int mergeIntersect(long[] a, int aSize, long[] b, int bSize, long[] out) {
+        int i = 0;
+        int j = 0;
+        int found = 0;
+        while (i < aSize && j < bSize) {
+            long x = a[i];
+            long y = b[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                out[found++] = x;
+                i++;
+                j++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Для каждого элемента меньшего массива ищет его в большем экспоненциальным шагом от прошлой позиции,
+     * затем бинарным поиском: O(small * log(large / small)).
+     */
+    public static int gallopIntersect(long[] small, int smallSize, long[] large, int largeSize, long[] out) {
+        int found = 0;
+        int low = 0;
+        for (int i = 0; i < smallSize && low < largeSize; i++) {
+            long target = small[i];
+            int step = 1;
+            int high = low;
+            while (high < largeSize && large[high] < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(large, low, Math.min(high + 1, largeSize), target);
+            if (index >= 0) {
+                out[found++] = target;
+                low = index + 1;
+            } else {
+                low = -index - 1;
+            }
+        }
+        return found;
+    }
+}
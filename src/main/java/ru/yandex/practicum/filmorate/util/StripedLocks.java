@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, разбитых на полосы по id.
+ * Операции над разными id почти всегда идут параллельно, а составные операции над парой id
+ * (дружба, лайк) берут обе полосы в фиксированном порядке, поэтому взаимных блокировок нет.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public void lock(long id) {
+        locks[stripe(id)].lock();
+    }
+
+    public void unlock(long id) {
+        locks[stripe(id)].unlock();
+    }
+
+    public void lockBoth(long first, long second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        locks[Math.min(a, b)].lock();
+        if (a != b) {
+            locks[Math.max(a, b)].lock();
+        }
+    }
+
+    public void unlockBoth(long first, long second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        if (a != b) {
+            locks[Math.max(a, b)].unlock();
+        }
+        locks[Math.min(a, b)].unlock();
+    }
+
+    /**
+     * Берёт полосы всех id пачки по возрастанию номера — в том же порядке, что и lockBoth.
+     * Возвращает захваченные полосы, их нужно передать в unlockAll.
+     */
+    public int[] lockAll(long[] ids) {
+        int[] stripes = Arrays.stream(ids).mapToInt(this::stripe).sorted().distinct().toArray();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        return stripes;
+    }
+
+    /**
+     * Берёт все полосы по возрастанию: после этого ни одна операция над любыми id не идёт, пока они не отпущены.
+     */
+    public int[] lockEveryStripe() {
+        int[] stripes = new int[locks.length];
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            locks[stripe].lock();
+            stripes[stripe] = stripe;
+        }
+        return stripes;
+    }
+
+    public void unlockAll(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    private int stripe(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Отбор limit ключей с наибольшими положительными счётчиками: больше счётчик — выше, при равенстве — меньший id.
+ */
+public record TopCounts(long[] ids, int[] counts) {
+
+    /**
+     * Исключения (excluded) проверяются только для ключей, которые прошли сравнение с худшим из уже отобранных.
+     */
+    public static TopCounts select(LongIntCounter counter, int limit, LongPredicate excluded) {
+        Heap heap = new Heap(limit);
+        for (int slot = 0; slot < counter.capacity(); slot++) {
+            long id = counter.keyAt(slot);
+            int count = counter.valueAt(slot);
+            if (id != 0 && count > 0 && heap.accepts(id, count) && !excluded.test(id)) {
+                heap.offer(id, count);
+            }
+        }
+        return heap.result();
+    }
+
+    /**
+     * Ограниченная куча на двух примитивных массивах: в вершине худший из отобранных,
+     * так что отказ новому ключу — одно сравнение без выделения памяти.
+     */
+    public static final class Heap {
+        private final long[] ids;
+        private final int[] counts;
+        private int size;
+
+        public Heap(int limit) {
+            ids = new long[limit];
+            counts = new int[limit];
+        }
+
+        public boolean isFull() {
+            return size == ids.length;
+        }
+
+        /**
+         * Счётчик худшего из отобранных; пока куча не заполнена — 0.
+         */
+        public int worstCount() {
+            return isFull() && size > 0 ? counts[0] : 0;
+        }
+
+        public boolean accepts(long id, int count) {
+            return !isFull() || size > 0 && better(id, count, ids[0], counts[0]);
+        }
+
+        public void offer(long id, int count) {
+            if (!isFull()) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!better(ids[parent], counts[parent], id, count)) {
+                        break;
+                    }
+                    ids[i] = ids[parent];
+                    counts[i] = counts[parent];
+                    i = parent;
+                }
+                ids[i] = id;
+                counts[i] = count;
+            } else if (accepts(id, count)) {
+                siftDown(id, count);
+            }
+        }
+
+        /**
+         * Отобранные ключи по убыванию; куча после этого пуста.
+         */
+        public TopCounts result() {
+            long[] sortedIds = new long[size];
+            int[] sortedCounts = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                sortedIds[i] = ids[0];
+                sortedCounts[i] = counts[0];
+                size--;
+                if (size > 0) {
+                    siftDown(ids[size], counts[size]);
+                }
+            }
+            return new TopCounts(sortedIds, sortedCounts);
+        }
+
+        private void siftDown(long id, int count) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && better(ids[child], counts[child], ids[child + 1], counts[child + 1])) {
+                    child++;
+                }
+                if (!better(id, count, ids[child], counts[child])) {
+                    break;
+                }
+                ids[i] = ids[child];
+                counts[i] = counts[child];
+                i = child;
+            }
+            ids[i] = id;
+            counts[i] = count;
+        }
+
+        private static boolean better(long id, int count, long otherId, int otherCount) {
+            return count > otherCount || count == otherCount && id < otherId;
+        }
+    }
+}
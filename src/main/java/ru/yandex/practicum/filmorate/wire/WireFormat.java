@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.wire;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Форматы тел запросов и ответов. JSON — формат по умолчанию; CBOR и Smile — двоичные представления той же модели
+ * Jackson: имена полей те же, числа и даты пишутся без перевода в текст.
+ */
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(new MediaType("application", "x-jackson-smile"));
+
+    private static final WireFormat[] FORMATS = values();
+
+    private final MediaType mediaType;
+
+    WireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Формат по заголовку Accept: первый по q и точности тип, который совпадает с одним из форматов.
+     * Без заголовка, с некорректным заголовком или без совпадений — JSON, как раньше.
+     */
+    public static WireFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+            // у MediaType сравнение точности учитывает и q
+            MimeTypeUtils.sortBySpecificity(accepted);
+        } catch (IllegalArgumentException e) {
+            return JSON;
+        }
+        for (MediaType type : accepted) {
+            for (WireFormat format : FORMATS) {
+                if (type.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Формат по Content-Type сообщения или null, если тип не из этого набора.
+     */
+    public static WireFormat of(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (WireFormat format : FORMATS) {
+            if (contentType.regionMatches(true, 0, format.mediaType.toString(), 0,
+                    format.mediaType.toString().length())) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
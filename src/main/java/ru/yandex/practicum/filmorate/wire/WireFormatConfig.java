@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.wire;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Конвертеры CBOR и Smile для обычных эндпоинтов: Spring Boot ставит их вместо конвертеров по умолчанию
+ * и выбирает по Accept, а тело запроса — по Content-Type. Без Accept по-прежнему отдаётся JSON.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public WireFormats wireFormats(ObjectMapper objectMapper) {
+        return new WireFormats(objectMapper);
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(WireFormats wireFormats) {
+        return new MappingJackson2CborHttpMessageConverter(wireFormats.mapper(WireFormat.CBOR));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(WireFormats wireFormats) {
+        return new MappingJackson2SmileHttpMessageConverter(wireFormats.mapper(WireFormat.SMILE));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.wire;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * ObjectMapper на каждый формат. Двоичные копируются с настроенного Spring JSON-маппера, поэтому модули
+ * и настройки у них общие; отличие одно — даты пишутся числами ([год, месяц, день]), а не строкой ISO,
+ * что короче и не требует форматирования. Разбор принимает оба вида.
+ */
+public class WireFormats {
+    private final Map<WireFormat, ObjectMapper> mappers = new EnumMap<>(WireFormat.class);
+
+    public WireFormats(ObjectMapper json) {
+        mappers.put(WireFormat.JSON, json);
+        mappers.put(WireFormat.CBOR, binary(json, new CBORFactory()));
+        mappers.put(WireFormat.SMILE, binary(json, new SmileFactory()));
+    }
+
+    public ObjectMapper mapper(WireFormat format) {
+        return mappers.get(format);
+    }
+
+    /**
+     * Тело ответа целиком; Jackson собирает его в переиспользуемых буферах потока и копирует один раз в итоговый
+     * массив, который потом уходит в сокет без копирования.
+     */
+    public byte[] write(WireFormat format, Object value) {
+        try {
+            return mappers.get(format).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    private static ObjectMapper binary(ObjectMapper json, JsonFactory factory) {
+        return json.copyWith(factory).enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -1,16 +1,38 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.wire.WireFormat;
+import ru.yandex.practicum.filmorate.wire.WireFormats;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -23,6 +45,15 @@ class FilmorateApplicationTests {
     @Autowired
     private UserController userController;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WireFormats wireFormats;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
     // --- Тесты фильмов ---
     @Test
     void shouldCreateFilmWhenValid() {
@@ -47,6 +78,89 @@ class FilmorateApplicationTests {
         assertThrows(ValidationException.class, () -> filmController.createFilm(film));
     }
 
+    @Test
+    void shouldReturnPopularFilmsOrderedByLikes() throws IOException {
+        final Film first = filmController.createFilm(new Film() {{
+                                                         setName("Popular");
+                                                         setReleaseDate(LocalDate.of(2000, 1, 1));
+                                                         setDuration(90);
+                                                     }}
+        );
+
+        final Film second = filmController.createFilm(new Film() {{
+                                                          setName("Less popular");
+                                                          setReleaseDate(LocalDate.of(2000, 1, 1));
+                                                          setDuration(90);
+                                                      }}
+        );
+
+        final User fan1 = userController.createUser(new User() {{
+                                                        setEmail("fan1@mail.com");
+                                                        setLogin("fan1");
+                                                        setBirthday(LocalDate.of(1990, 1, 1));
+                                                    }}
+        );
+
+        final User fan2 = userController.createUser(new User() {{
+                                                        setEmail("fan2@mail.com");
+                                                        setLogin("fan2");
+                                                        setBirthday(LocalDate.of(1990, 1, 1));
+                                                    }}
+        );
+
+        filmController.addLike(first.getId(), fan1.getId());
+        filmController.addLike(first.getId(), fan2.getId());
+        filmController.addLike(second.getId(), fan1.getId());
+        filmController.addLike(second.getId(), fan1.getId());
+
+        // контекст общий, и другие тесты тоже ставят лайки: проверяется только порядок фильмов этого теста
+        assertEquals(List.of(first.getId(), second.getId()), popularOrderOf(first, second));
+
+        filmController.removeLike(first.getId(), fan1.getId());
+        filmController.removeLike(first.getId(), fan2.getId());
+
+        assertEquals(List.of(second.getId(), first.getId()), popularOrderOf(first, second));
+        // count больше каталога отдаёт весь каталог и не резервирует память под count элементов
+        assertTrue(popularFilms(2_000_000_000).stream().map(Film::getId).toList()
+                .containsAll(List.of(first.getId(), second.getId())));
+    }
+
+    @Test
+    void shouldPageFilmsAfterId() {
+        final List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(filmController.createFilm(new Film() {{
+                                                  setName("Paged");
+                                                  setReleaseDate(LocalDate.of(2000, 1, 1));
+                                                  setDuration(90);
+                                              }}
+            ).getId());
+        }
+
+        Collection<Film> page = filmController.getAllFilms(ids.get(0), 2, null, null, null, null);
+        assertEquals(ids.subList(1, 3), page.stream().map(Film::getId).toList());
+        assertTrue(filmController.getAllFilms(ids.get(2), 10, null, null, null, null).isEmpty());
+        assertThrows(ValidationException.class, () -> filmController.getAllFilms(0L, 0, null, null, null, null));
+    }
+
+    @Test
+    void shouldReportBatchResultsPerItem() throws Exception {
+        String body = "[{\"name\":\"Batch\",\"releaseDate\":\"2000-01-01\",\"duration\":90},"
+                + "{\"name\":\" \",\"releaseDate\":\"2000-01-01\",\"duration\":90},"
+                + "{\"name\":\"Batch\",\"duration\":\"long\"}]";
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filmController.createFilms(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), response);
+
+        JsonNode results = new ObjectMapper().readTree(response.getContentAsByteArray());
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).has("id"));
+        assertEquals("Название фильма не может быть пустым", results.get(1).get("error").asText());
+        assertEquals(2, results.get(2).get("index").asInt());
+        assertTrue(results.get(2).has("error"));
+        assertEquals("Batch", filmController.getFilmById(results.get(0).get("id").asLong()).getName());
+    }
+
     // --- Тесты пользователей ---
     @Test
     void shouldCreateUserWhenValid() {
@@ -65,7 +179,7 @@ class FilmorateApplicationTests {
     @Test
     void shouldSetLoginAsNameWhenNameBlank() {
         User user = new User();
-        user.setEmail("test@mail.com");
+        user.setEmail("login123@mail.com");
         user.setLogin("login123");
         user.setName("");
         user.setBirthday(LocalDate.of(1990, 1, 1));
@@ -76,7 +190,7 @@ class FilmorateApplicationTests {
     }
 
     @Test
-    void shouldAddAndRemoveFriend() {
+    void shouldAddAndRemoveFriend() throws IOException {
         final User user1 = userController.createUser(new User() {{
                                                          setEmail("user1@mail.com");
                                                          setLogin("user1");
@@ -92,22 +206,22 @@ class FilmorateApplicationTests {
         );
 
         userController.addFriend(user1.getId(), user2.getId());
-        Set<User> friendsOfUser1 = userController.getFriends(user1.getId());
-        Set<User> friendsOfUser2 = userController.getFriends(user2.getId());
+        List<User> friendsOfUser1 = friends(user1.getId());
+        List<User> friendsOfUser2 = friends(user2.getId());
 
         assertTrue(friendsOfUser1.stream().anyMatch(u -> u.getId() == user2.getId()));
         assertTrue(friendsOfUser2.stream().anyMatch(u -> u.getId() == user1.getId()));
 
         userController.removeFriend(user1.getId(), user2.getId());
-        friendsOfUser1 = userController.getFriends(user1.getId());
-        friendsOfUser2 = userController.getFriends(user2.getId());
+        friendsOfUser1 = friends(user1.getId());
+        friendsOfUser2 = friends(user2.getId());
 
         assertFalse(friendsOfUser1.stream().anyMatch(u -> u.getId() == user2.getId()));
         assertFalse(friendsOfUser2.stream().anyMatch(u -> u.getId() == user1.getId()));
     }
 
     @Test
-    void shouldGetCommonFriends() {
+    void shouldGetCommonFriends() throws IOException {
         final User user1 = userController.createUser(new User() {{
                                                          setEmail("a@mail.com");
                                                          setLogin("a");
@@ -132,8 +246,373 @@ class FilmorateApplicationTests {
         userController.addFriend(user1.getId(), friend.getId());
         userController.addFriend(user2.getId(), friend.getId());
 
-        Set<User> common = userController.getCommonFriends(user1.getId(), user2.getId());
+        List<User> common = objectMapper.readValue(
+                userController.getCommonFriends(user1.getId(), user2.getId(), null, null).getBody(),
+                new TypeReference<>() {
+                });
         assertTrue(common.stream().anyMatch(u -> u.getId() == friend.getId()));
     }
 
+    @Test
+    void shouldReturnFriendsOrderedById() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setEmail("ordered" + i + "@mail.com");
+            user.setLogin("ordered" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            ids.add(userController.createUser(user).getId());
+        }
+        long owner = ids.getFirst();
+        // друзья добавляются в обратном порядке, а отдаются по возрастанию id
+        for (int i = ids.size() - 1; i > 0; i--) {
+            userController.addFriend(owner, ids.get(i));
+        }
+
+        assertEquals(ids.subList(1, ids.size()), friends(owner).stream().map(User::getId).toList());
+    }
+
+    @Test
+    void shouldDeleteFilmAndUserTogetherWithTheirEdges() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setEmail("deleted" + i + "@mail.com");
+            user.setLogin("deleted" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            ids.add(userController.createUser(user).getId());
+        }
+        Film film = new Film();
+        film.setName("Удаляемый фильм");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        long filmId = filmController.createFilm(film).getId();
+        userController.addFriend(ids.get(0), ids.get(1));
+        userController.addFriend(ids.get(0), ids.get(2));
+        filmController.addLike(filmId, ids.get(0));
+        assertEquals(ids.subList(1, 3), friends(ids.get(0)).stream().map(User::getId).toList());
+
+        userController.deleteUser(ids.get(1));
+        assertThrows(NotFoundException.class, () -> userController.getUserById(ids.get(1)));
+        assertThrows(NotFoundException.class, () -> userController.deleteUser(ids.get(1)));
+        assertEquals(List.of(ids.get(2)), friends(ids.get(0)).stream().map(User::getId).toList());
+
+        filmController.deleteFilm(filmId);
+        assertThrows(NotFoundException.class, () -> filmController.getFilmById(filmId));
+        assertThrows(NotFoundException.class, () -> filmController.addLike(filmId, ids.get(0)));
+
+        // email и логин удалённого пользователя снова свободны
+        User again = new User();
+        again.setEmail("deleted1@mail.com");
+        again.setLogin("deleted1");
+        assertNotEquals(ids.get(1), userController.createUser(again).getId());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedUntilFriendsChange() throws IOException {
+        final User user = userController.createUser(new User() {{
+                                                        setEmail("etag@mail.com");
+                                                        setLogin("etag");
+                                                        setBirthday(LocalDate.of(1990, 1, 1));
+                                                    }}
+        );
+
+        final User friend = userController.createUser(new User() {{
+                                                          setEmail("etag-friend@mail.com");
+                                                          setLogin("etagFriend");
+                                                          setBirthday(LocalDate.of(1990, 1, 1));
+                                                      }}
+        );
+
+        String etag = userController.getFriends(user.getId(), null, null).getHeaders().getETag();
+        assertNotNull(etag);
+        ResponseEntity<byte[]> repeated = userController.getFriends(user.getId(), etag, null);
+        assertEquals(HttpStatus.NOT_MODIFIED, repeated.getStatusCode());
+        assertNull(repeated.getBody());
+
+        userController.addFriend(friend.getId(), user.getId());
+
+        ResponseEntity<byte[]> changed = userController.getFriends(user.getId(), etag, null);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertTrue(friends(user.getId()).stream().anyMatch(u -> u.getId().equals(friend.getId())));
+
+        friend.setName("Renamed");
+        userController.updateUser(friend);
+        assertEquals("Renamed", friends(user.getId()).iterator().next().getName());
+    }
+
+    @Test
+    void shouldRecommendFriendsOfFriends() {
+        final User user = userController.createUser(new User() {{
+                                                        setEmail("pymk@mail.com");
+                                                        setLogin("pymk");
+                                                        setBirthday(LocalDate.of(1990, 1, 1));
+                                                    }}
+        );
+
+        final User friend = userController.createUser(new User() {{
+                                                          setEmail("pymk-friend@mail.com");
+                                                          setLogin("pymkFriend");
+                                                          setBirthday(LocalDate.of(1990, 1, 1));
+                                                      }}
+        );
+
+        final User candidate = userController.createUser(new User() {{
+                                                             setEmail("pymk-candidate@mail.com");
+                                                             setLogin("pymkCandidate");
+                                                             setBirthday(LocalDate.of(1990, 1, 1));
+                                                         }}
+        );
+
+        userController.addFriend(user.getId(), friend.getId());
+        userController.addFriend(friend.getId(), candidate.getId());
+
+        List<FriendRecommendation> recommendations = userController.getFriendRecommendations(user.getId(), 10);
+        assertEquals(1, recommendations.size());
+        assertEquals(candidate.getId(), recommendations.get(0).getUser().getId());
+        assertEquals(1, recommendations.get(0).getMutualFriends());
+        assertThrows(ValidationException.class, () -> userController.getFriendRecommendations(user.getId(), 0));
+    }
+
+    @Test
+    void shouldRecommendFilmsLikedBySimilarUsers() {
+        final Film shared = filmController.createFilm(new Film() {{
+                                                          setName("Shared taste");
+                                                          setReleaseDate(LocalDate.of(2000, 1, 1));
+                                                          setDuration(90);
+                                                      }}
+        );
+
+        final Film unseen = filmController.createFilm(new Film() {{
+                                                          setName("Unseen");
+                                                          setReleaseDate(LocalDate.of(2000, 1, 1));
+                                                          setDuration(90);
+                                                      }}
+        );
+
+        final User viewer = userController.createUser(new User() {{
+                                                          setEmail("cf-viewer@mail.com");
+                                                          setLogin("cfViewer");
+                                                          setBirthday(LocalDate.of(1990, 1, 1));
+                                                      }}
+        );
+
+        final User similar = userController.createUser(new User() {{
+                                                           setEmail("cf-similar@mail.com");
+                                                           setLogin("cfSimilar");
+                                                           setBirthday(LocalDate.of(1990, 1, 1));
+                                                       }}
+        );
+
+        filmController.addLike(shared.getId(), viewer.getId());
+        filmController.addLike(shared.getId(), similar.getId());
+        filmController.addLike(unseen.getId(), similar.getId());
+
+        List<Film> recommendations = userController.getFilmRecommendations(viewer.getId(), 10);
+        assertEquals(1, recommendations.size());
+        assertEquals(unseen.getId(), recommendations.get(0).getId());
+        assertThrows(ValidationException.class, () -> userController.getFilmRecommendations(viewer.getId(), 0));
+    }
+
+    @Test
+    void shouldRankTrendingFilmsByLikesInWindow() {
+        final Film trending = filmController.createFilm(new Film() {{
+                                                            setName("Trending");
+                                                            setReleaseDate(LocalDate.of(2000, 1, 1));
+                                                            setDuration(90);
+                                                        }}
+        );
+
+        final User fan = userController.createUser(new User() {{
+                                                       setEmail("trend-fan@mail.com");
+                                                       setLogin("trendFan");
+                                                       setBirthday(LocalDate.of(1990, 1, 1));
+                                                   }}
+        );
+
+        filmController.addLike(trending.getId(), fan.getId());
+
+        assertTrue(filmController.getTrendingFilms("hour", 1000).stream()
+                .anyMatch(film -> film.getId().equals(trending.getId())));
+        filmController.removeLike(trending.getId(), fan.getId());
+        assertTrue(filmController.getTrendingFilms("week", 1000).stream()
+                .noneMatch(film -> film.getId().equals(trending.getId())));
+        assertThrows(ValidationException.class, () -> filmController.getTrendingFilms("month", 10));
+    }
+
+    @Test
+    void shouldSearchFilmsByNameAndDescription() {
+        final Film film = filmController.createFilm(new Film() {{
+                                                        setName("Полосатый рейс");
+                                                        setDescription("Комедия о тиграх на теплоходе");
+                                                        setReleaseDate(LocalDate.of(1961, 1, 1));
+                                                        setDuration(80);
+                                                    }}
+        );
+
+        assertEquals(List.of(film.getId()), filmController.searchFilms("тигр", 20, true, false).stream()
+                .map(Film::getId).toList());
+
+        filmController.updateFilm(new Film() {{
+                                      setId(film.getId());
+                                      setName(film.getName());
+                                      setDescription("Комедия о львах на теплоходе");
+                                      setReleaseDate(film.getReleaseDate());
+                                      setDuration(film.getDuration());
+                                  }}
+        );
+        assertTrue(filmController.searchFilms("тигр", 20, true, false).isEmpty());
+        assertEquals(1, filmController.searchFilms("полосатый львах", 20, false, true).size());
+        assertThrows(ValidationException.class, () -> filmController.searchFilms(" ", 20, true, false));
+    }
+
+    @Test
+    void shouldFilterListsByIndexedFields() {
+        final List<Long> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final int day = 3 - i;
+            films.add(filmController.createFilm(new Film() {{
+                                                    setName("Индексы");
+                                                    setReleaseDate(LocalDate.of(1896, 1, day));
+                                                    setDuration(7001 + day);
+                                                }}
+            ).getId());
+        }
+
+        assertEquals(List.of(films.get(2), films.get(1)), filmController.getAllFilms(null, null,
+                LocalDate.of(1896, 1, 1), LocalDate.of(1896, 1, 2), null, null).stream().map(Film::getId).toList());
+        assertEquals(List.of(films.get(1)), filmController.getAllFilms(null, null,
+                LocalDate.of(1896, 1, 1), LocalDate.of(1896, 1, 31), 7003, 7003).stream().map(Film::getId).toList());
+
+        filmController.updateFilm(new Film() {{
+                                      setId(films.get(0));
+                                      setName("Индексы");
+                                      setReleaseDate(LocalDate.of(1896, 1, 1));
+                                      setDuration(7001);
+                                  }}
+        );
+        assertEquals(List.of(films.get(0), films.get(2), films.get(1)), filmController.getAllFilms(null, 10,
+                null, null, 7001, 7005).stream().map(Film::getId).toList());
+        assertThrows(ValidationException.class, () -> filmController.getAllFilms(null, null,
+                null, null, 10, 5));
+
+        final List<Long> users = new ArrayList<>();
+        for (LocalDate birthday : List.of(LocalDate.of(1992, 2, 29), LocalDate.of(1991, 12, 31),
+                LocalDate.of(1993, 1, 2))) {
+            users.add(userController.createUser(new User() {{
+                                                    setEmail("birthday" + birthday.getYear() + "@mail.com");
+                                                    setLogin("birthday" + birthday.getYear());
+                                                    setBirthday(birthday);
+                                                }}
+            ).getId());
+        }
+
+        assertTrue(userController.getAllUsers(null, null, LocalDate.of(2027, 2, 28), 1).stream()
+                .anyMatch(user -> user.getId().equals(users.get(0))));
+        assertTrue(userController.getAllUsers(null, null, LocalDate.of(2028, 2, 28), 1).stream()
+                .noneMatch(user -> user.getId().equals(users.get(0))));
+        assertEquals(List.of(users.get(1), users.get(2)), userController.getAllUsers(null, null,
+                        LocalDate.of(2026, 12, 31), 3).stream().map(User::getId).filter(users::contains).toList());
+    }
+
+    @Test
+    void shouldKeepEmailAndLoginUnique() throws Exception {
+        final User user = userController.createUser(new User() {{
+                                                        setEmail("unique@mail.com");
+                                                        setLogin("unique");
+                                                        setBirthday(LocalDate.of(1990, 1, 1));
+                                                    }}
+        );
+
+        assertThrows(ConflictException.class, () -> userController.createUser(new User() {{
+                                                     setEmail(" Unique@Mail.com ");
+                                                     setLogin("unique2");
+                                                 }}
+        ));
+        assertThrows(ConflictException.class, () -> userController.createUser(new User() {{
+                                                     setEmail("unique2@mail.com");
+                                                     setLogin("UNIQUE");
+                                                 }}
+        ));
+        assertEquals(user.getId(), userController.getUserByLogin("Unique").getId());
+        assertEquals(user.getId(), userController.getUserByEmail("unique@mail.com").getId());
+
+        userController.updateUser(new User() {{
+                                      setId(user.getId());
+                                      setEmail("renamed@mail.com");
+                                      setLogin("unique");
+                                  }}
+        );
+        assertThrows(NotFoundException.class, () -> userController.getUserByEmail("unique@mail.com"));
+        assertEquals(user.getId(), userController.getUserByEmail("RENAMED@mail.com").getId());
+
+        String body = "[{\"email\":\"unique@mail.com\",\"login\":\"uniqueAgain\"},"
+                + "{\"email\":\"UNIQUE@mail.com\",\"login\":\"uniqueTwice\"}]";
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        userController.createUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), response);
+        JsonNode results = objectMapper.readTree(response.getContentAsByteArray());
+        assertTrue(results.get(0).has("id"));
+        assertTrue(results.get(1).has("error"));
+    }
+
+    @Test
+    void shouldNegotiateBinaryFormats() throws IOException {
+        final User user = userController.createUser(new User() {{
+                                                        setEmail("binary@mail.com");
+                                                        setLogin("binary");
+                                                        setBirthday(LocalDate.of(1990, 1, 1));
+                                                    }}
+        );
+        final User friend = userController.createUser(new User() {{
+                                                          setEmail("binary-friend@mail.com");
+                                                          setLogin("binaryFriend");
+                                                          setName("Binary Friend");
+                                                          setBirthday(LocalDate.of(1991, 2, 3));
+                                                      }}
+        );
+        userController.addFriend(user.getId(), friend.getId());
+
+        ResponseEntity<byte[]> json = userController.getFriends(user.getId(), null, null);
+        ResponseEntity<byte[]> cbor = userController.getFriends(user.getId(), null,
+                "application/json;q=0.5, application/cbor");
+        ResponseEntity<byte[]> smile = userController.getFriends(user.getId(), null, "application/x-jackson-smile");
+        assertEquals(MediaType.APPLICATION_JSON, json.getHeaders().getContentType());
+        assertEquals(WireFormat.CBOR.mediaType(), cbor.getHeaders().getContentType());
+        assertEquals(WireFormat.SMILE.mediaType(), smile.getHeaders().getContentType());
+        assertEquals(List.of(HttpHeaders.ACCEPT), cbor.getHeaders().getVary());
+        assertNotEquals(json.getHeaders().getETag(), cbor.getHeaders().getETag());
+        assertTrue(cbor.getBody().length < json.getBody().length);
+        assertTrue(smile.getBody().length < json.getBody().length);
+
+        TypeReference<List<User>> users = new TypeReference<>() {
+        };
+        List<User> expected = objectMapper.readValue(json.getBody(), users);
+        assertEquals(expected, wireFormats.mapper(WireFormat.CBOR).readValue(cbor.getBody(), users));
+        assertEquals(expected, wireFormats.mapper(WireFormat.SMILE).readValue(smile.getBody(), users));
+        assertEquals(LocalDate.of(1991, 2, 3), expected.get(0).getBirthday());
+
+        // остальные эндпоинты выбирают формат конвертерами Spring с теми же настройками
+        assertTrue(handlerAdapter.getMessageConverters().stream()
+                .anyMatch(converter -> converter instanceof MappingJackson2CborHttpMessageConverter cborConverter
+                        && cborConverter.getObjectMapper() == wireFormats.mapper(WireFormat.CBOR)));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("*/*"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("text/html"));
+        assertEquals(WireFormat.SMILE, WireFormat.negotiate("application/x-jackson-smile, */*;q=0.1"));
+    }
+
+    private List<Film> popularFilms(int count) throws IOException {
+        return objectMapper.readValue(filmController.getPopularFilms(count, null, null).getBody(),
+                new TypeReference<>() {
+                });
+    }
+
+    private List<Long> popularOrderOf(Film... films) throws IOException {
+        List<Long> ids = Arrays.stream(films).map(Film::getId).toList();
+        return popularFilms(FilmService.MAX_PAGE_SIZE).stream().map(Film::getId).filter(ids::contains).toList();
+    }
+
+    private List<User> friends(Long userId) throws IOException {
+        return objectMapper.readValue(userController.getFriends(userId, null, null).getBody(), new TypeReference<>() {
+        });
+    }
 }
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    @Test
+    void shouldInvalidateOnlyAffectedPopularLists() {
+        ResponseCache cache = new ResponseCache(100, new MetricsRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        ResponseCache.Popular top2 = new ResponseCache.Popular(2);
+        // в списке фильмы 1 и 2, у последнего 5 лайков
+        ResponseCache.Loaded loaded = new ResponseCache.Loaded(body("[1,2]"), new long[]{1, 2}, 5, false);
+
+        cache.get(top2, () -> count(loads, loaded));
+        cache.likeAdded(7, 3);
+        cache.likeRemoved(8);
+        cache.filmUpdated(9);
+        cache.filmAdded();
+        cache.get(top2, () -> count(loads, loaded));
+        assertEquals(1, loads.get());
+
+        cache.likeAdded(7, 5);
+        cache.get(top2, () -> count(loads, loaded));
+        assertEquals(2, loads.get());
+
+        cache.likeRemoved(2);
+        cache.get(top2, () -> count(loads, loaded));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shouldStoreLoadUnlessChangeDuringItAffectsResult() {
+        ResponseCache cache = new ResponseCache(100, new MetricsRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        ResponseCache.Popular top2 = new ResponseCache.Popular(2);
+        ResponseCache.Loaded loaded = new ResponseCache.Loaded(body("[1,2]"), new long[]{1, 2}, 5, false);
+
+        // лайк фильму, который не дотягивает до списка, и изменение пользователя не мешают сохранить список
+        cache.get(top2, () -> {
+            cache.likeAdded(7, 3);
+            cache.userUpdated(1);
+            return count(loads, loaded);
+        });
+        cache.get(top2, () -> count(loads, loaded));
+        assertEquals(1, loads.get());
+
+        cache.likeRemoved(1);
+        cache.get(top2, () -> {
+            cache.likeAdded(2, 6);
+            return count(loads, loaded);
+        });
+        cache.get(top2, () -> count(loads, loaded));
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void shouldInvalidateFriendListsByParticipantAndMemberAndEvictLeastRecentlyUsed() {
+        ResponseCache cache = new ResponseCache(2, new MetricsRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        ResponseCache.Friends friendsOf1 = new ResponseCache.Friends(1);
+        ResponseCache.Loaded loaded = ResponseCache.Loaded.of(body("[2,3]"), new long[]{3, 2});
+
+        cache.get(friendsOf1, () -> count(loads, loaded));
+        cache.friendshipChanged(4, 5);
+        cache.userUpdated(4);
+        cache.get(friendsOf1, () -> count(loads, loaded));
+        assertEquals(1, loads.get());
+
+        cache.userUpdated(3);
+        cache.get(friendsOf1, () -> count(loads, loaded));
+        cache.friendshipChanged(2, 1);
+        cache.get(friendsOf1, () -> count(loads, loaded));
+        assertEquals(3, loads.get());
+
+        cache.get(new ResponseCache.Friends(2), () -> loaded);
+        cache.get(new ResponseCache.CommonFriends(2, 3), () -> loaded);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.get(friendsOf1, () -> count(loads, loaded));
+        assertEquals(4, loads.get());
+    }
+
+    private static ResponseCache.Loaded count(AtomicInteger loads, ResponseCache.Loaded loaded) {
+        loads.incrementAndGet();
+        return loaded;
+    }
+
+    private static byte[] body(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ServiceFixture;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.service.ServiceFixture.film;
+import static ru.yandex.practicum.filmorate.service.ServiceFixture.user;
+
+class ShardedStorageTest {
+
+    @Test
+    void shouldSpreadIdsEvenlyAndMoveFewWhenNodeIsAdded() {
+        ConsistentHashRing four = new ConsistentHashRing(4, 128);
+        ConsistentHashRing five = new ConsistentHashRing(5, 128);
+        int ids = 100_000;
+        int[] counts = new int[4];
+        int moved = 0;
+        for (long id = 1; id <= ids; id++) {
+            int owner = four.owner(id);
+            counts[owner]++;
+            int newOwner = five.owner(id);
+            if (newOwner != owner) {
+                moved++;
+                // id переезжает только на добавленный узел
+                assertEquals(4, newOwner);
+            }
+        }
+        for (int count : counts) {
+            assertEquals(ids / 4.0, count, ids * 0.05);
+        }
+        assertEquals(ids / 5.0, moved, ids * 0.05);
+    }
+
+    @Test
+    void shouldServeServicesFromShardsWithScatterGather() {
+        LoopbackTransport transport = LoopbackTransport.inMemory(3);
+        ShardRouter router = new ShardRouter(new ConsistentHashRing(3, 64), transport);
+        ShardedFilmStorage filmStorage = new ShardedFilmStorage(router);
+        ShardedUserStorage userStorage = new ShardedUserStorage(router);
+        ShardedLikeStorage likeStorage = new ShardedLikeStorage(router);
+        ShardedFriendshipStorage friendshipStorage = new ShardedFriendshipStorage(router);
+        try (transport; ServiceFixture services = ServiceFixture.builder()
+                .storages(filmStorage, userStorage, likeStorage, friendshipStorage)
+                .build()) {
+            FilmService filmService = services.filmService;
+            UserService userService = services.userService;
+
+            List<Long> users = new ArrayList<>();
+            List<Long> films = new ArrayList<>();
+            for (int i = 1; i <= 12; i++) {
+                users.add(userService.addUser(user(i)).getId());
+                films.add(filmService.addFilm(film(i)).getId());
+            }
+            // фильм i лайкают первые i пользователей: чем больше номер, тем популярнее
+            for (int i = 0; i < films.size(); i++) {
+                for (int j = 0; j <= i; j++) {
+                    filmService.addLike(films.get(i), users.get(j));
+                }
+            }
+            assertTrue(films.stream().map(router::owner).distinct().count() > 1);
+            assertEquals(films.reversed().subList(0, 5),
+                    filmService.getPopularFilms(5).stream().map(Film::getId).toList());
+            assertEquals(films, filmService.getFilmsPage(0, 100).stream().map(Film::getId).toList());
+            assertEquals(12, filmService.getAllFilms().size());
+            assertEquals(12, likeStorage.getLikedFilmCount(users.get(0)));
+            // пакетное чтение с разных узлов сохраняет порядок запроса и пропускает отсутствующие id
+            long[] requested = {users.get(7), users.get(2), 1_000, users.get(11), users.get(2)};
+            assertEquals(List.of(users.get(7), users.get(2), users.get(11), users.get(2)),
+                    userStorage.getUsersByIds(requested).stream().map(User::getId).toList());
+            assertEquals(films.reversed(), filmStorage.getFilmsByIds(films.reversed().stream()
+                    .mapToLong(Long::longValue).toArray()).stream().map(Film::getId).toList());
+
+            // общие друзья пользователей с разных узлов
+            long first = users.stream().filter(id -> router.owner(id) == 0).findFirst().orElseThrow();
+            long second = users.stream().filter(id -> router.owner(id) == 1).findFirst().orElseThrow();
+            List<Long> common = users.stream().filter(id -> id != first && id != second).limit(4).toList();
+            for (long friend : common) {
+                userService.addFriend(first, friend);
+                userService.addFriend(second, friend);
+            }
+            userService.addFriend(first, second);
+            assertEquals(common, userService.getCommonFriends(first, second).stream().map(User::getId)
+                    .sorted().toList());
+            assertEquals(5, userService.getFriends(first).size());
+            assertEquals(9, friendshipStorage.getFriendshipCount());
+            userService.removeFriend(second, first);
+            assertFalse(friendshipStorage.areFriends(first, second));
+            assertFalse(friendshipStorage.areFriends(second, first));
+
+            // email уникален на всех узлах сразу
+            assertThrows(ConflictException.class, () -> userService.addUser(user(1)));
+            assertEquals(users.get(3), userService.getUserByLogin("USER4").getId());
+            // а после удаления освобождается тоже на всех
+            assertEquals(users.get(0), userService.deleteUser(users.get(0)).getId());
+            assertTrue(userStorage.getUserById(users.get(0)).isEmpty());
+            assertNotEquals(users.get(0), userService.addUser(user(1)).getId());
+        }
+    }
+}
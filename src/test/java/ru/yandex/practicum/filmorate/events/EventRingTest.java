@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventRingTest {
+
+    @Test
+    void shouldResumeFromOffsetAndReportOverwrittenEvents() {
+        EventRing ring = new EventRing(4);
+        for (long filmId = 1; filmId <= 3; filmId++) {
+            ring.publish(ChangeEvent.Type.LIKE_ADDED, filmId, 10);
+        }
+
+        EventBatch first = ring.read(0, 2);
+        assertEquals(List.of(1L, 2L), first.events().stream().map(ChangeEvent::subjectId).toList());
+        assertEquals(2, first.nextOffset());
+        EventBatch second = ring.read(first.nextOffset(), 10);
+        assertEquals(List.of(3L), second.events().stream().map(ChangeEvent::subjectId).toList());
+        assertEquals(0, second.missed());
+        assertEquals(EventBatch.empty(3), ring.read(3, 10));
+
+        // ещё три события переписывают ячейки событий 0 и 1: потребитель с offset 0 их уже не застанет
+        for (long filmId = 4; filmId <= 6; filmId++) {
+            ring.publish(ChangeEvent.Type.LIKE_REMOVED, filmId, 10);
+        }
+        EventBatch lagging = ring.read(0, 10);
+        assertEquals(2, lagging.missed());
+        assertEquals(List.of(2L, 3L, 4L, 5L), lagging.events().stream().map(ChangeEvent::offset).toList());
+        assertEquals(6, lagging.nextOffset());
+        // offset из будущего, например после перезапуска, — это конец потока
+        assertEquals(EventBatch.empty(6), ring.read(100, 10));
+    }
+
+    @Test
+    void shouldDeliverBatchesToSubscribersAndCompletePolls() throws InterruptedException {
+        EventRing ring = new EventRing(1024);
+        try (EventDispatcher dispatcher = new EventDispatcher(ring, 2)) {
+            List<EventBatch> received = new CopyOnWriteArrayList<>();
+            CountDownLatch delivered = new CountDownLatch(2);
+            dispatcher.subscribe(0, batch -> {
+                received.add(batch);
+                delivered.countDown();
+                return true;
+            });
+            List<EventBatch> polled = new CopyOnWriteArrayList<>();
+            CountDownLatch answered = new CountDownLatch(1);
+            dispatcher.poll(0, 10, batch -> {
+                polled.add(batch);
+                answered.countDown();
+                return true;
+            });
+            assertEquals(2, dispatcher.size());
+
+            ring.publish(ChangeEvent.Type.FRIEND_ADDED, 1, 2);
+            ring.publish(ChangeEvent.Type.FRIEND_ADDED, 2, 1);
+            ring.publish(ChangeEvent.Type.FRIEND_REMOVED, 1, 2);
+            dispatcher.start(Duration.ofMillis(5));
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertTrue(answered.await(5, TimeUnit.SECONDS));
+            assertEquals(2, received.get(0).events().size());
+            assertEquals(ChangeEvent.Type.FRIEND_REMOVED, received.get(1).events().get(0).type());
+            assertEquals(3, received.get(1).nextOffset());
+            // долгий опрос отвечает одной пачкой и отписывается
+            assertEquals(1, polled.size());
+            assertEquals(1, dispatcher.size());
+        }
+    }
+}
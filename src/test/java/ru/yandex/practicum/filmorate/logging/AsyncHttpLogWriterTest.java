@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncHttpLogWriterTest {
+
+    @Test
+    void shouldWriteEntriesInOrderAndFlushOnClose() {
+        RecordingWriter delegate = new RecordingWriter(new CountDownLatch(0));
+        AsyncHttpLogWriter writer = new AsyncHttpLogWriter(delegate, 1024, 16);
+
+        for (int i = 0; i < 100; i++) {
+            writer.write((Precorrelation) null, "request " + i);
+        }
+        writer.close();
+
+        assertEquals(100, delegate.messages.size());
+        assertEquals("request 0", delegate.messages.get(0));
+        assertEquals("request 99", delegate.messages.get(99));
+        assertEquals(0, writer.getDropped());
+    }
+
+    @Test
+    void shouldDropAndCountEntriesWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter delegate = new RecordingWriter(release);
+        AsyncHttpLogWriter writer = new AsyncHttpLogWriter(delegate, 4, 4);
+
+        writer.write((Precorrelation) null, "blocked");
+        assertTrue(delegate.started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            writer.write((Precorrelation) null, "queued " + i);
+        }
+
+        assertEquals(6, writer.getDropped());
+        release.countDown();
+        writer.close();
+        assertEquals(5, delegate.messages.size());
+    }
+
+    private static final class RecordingWriter implements HttpLogWriter {
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        RecordingWriter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void write(Precorrelation precorrelation, String request) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(request);
+        }
+
+        @Override
+        public void write(Correlation correlation, String response) {
+            messages.add(response);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldMapEveryValueIntoBucketThatCoversIt() {
+        for (long value = 0; value < 1L << 20; value++) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(LatencyHistogram.highestValue(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value);
+        }
+    }
+
+    @Test
+    void shouldEstimatePercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.count());
+        assertEquals(5_000, snapshot.p50Micros(), 5_000 / 32.0);
+        assertEquals(9_900, snapshot.p99Micros(), 9_900 / 32.0);
+        assertEquals(10_000, snapshot.maxMicros());
+        assertEquals(5_000.5, snapshot.meanMicros(), 0.001);
+    }
+}
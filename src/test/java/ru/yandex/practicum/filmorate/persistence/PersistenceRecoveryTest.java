@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ServiceFixture;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.service.ServiceFixture.film;
+import static ru.yandex.practicum.filmorate.service.ServiceFixture.user;
+
+class PersistenceRecoveryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRecoverFromSnapshotAndLogTail() throws Exception {
+        Node before = new Node(directory);
+        for (int i = 1; i <= 5; i++) {
+            before.userService.addUser(user(i));
+            before.filmService.addFilm(film(i));
+        }
+        before.filmService.addLike(1L, 1L);
+        before.filmService.addLike(1L, 2L);
+        before.filmService.addLike(2L, 3L);
+        before.userService.addFriend(1L, 2L);
+        before.userService.addFriend(1L, 3L);
+
+        before.manager.snapshot();
+
+        Film updated = film(1);
+        updated.setId(1L);
+        updated.setName("Обновлённый фильм");
+        before.filmService.updateFilm(updated);
+        before.filmService.removeLike(1L, 2L);
+        before.filmService.addLike(3L, 4L);
+        before.userService.removeFriend(1L, 3L);
+        before.userService.addFriend(4L, 5L);
+        before.close();
+
+        Node after = new Node(directory);
+        after.manager.recover();
+
+        assertEquals("Обновлённый фильм", after.filmStorage.getFilmById(1L).orElseThrow().getName());
+        assertEquals(5, after.userStorage.getAllUsers().size());
+        assertArrayEquals(new long[]{1}, after.likeStorage.getLikes(1L));
+        assertArrayEquals(new long[]{4}, after.likeStorage.getLikes(3L));
+        assertEquals(List.of(1L, 2L, 3L), after.likeStorage.getTopFilmIds(10));
+        assertArrayEquals(new long[]{2}, after.friendshipStorage.getFriendIds(1L));
+        assertArrayEquals(new long[]{4}, after.friendshipStorage.getFriendIds(5L));
+        assertEquals(6L, after.filmService.addFilm(film(6)).getId());
+        after.close();
+    }
+
+    @Test
+    void shouldIgnoreTornTailOfLastSegment() throws Exception {
+        Node before = new Node(directory);
+        before.userService.addUser(user(1));
+        before.filmService.addFilm(film(1));
+        before.filmService.addLike(1L, 1L);
+        long segment = before.wal.getCurrentSegment();
+        before.close();
+
+        Files.write(WriteAheadLog.segmentPath(directory, segment), new byte[]{0, 0, 0, 42, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        Node after = new Node(directory);
+        after.manager.recover();
+        assertArrayEquals(new long[]{1}, after.likeStorage.getLikes(1L));
+        after.close();
+    }
+
+    @Test
+    void shouldKeepAcknowledgedRecordsWrittenAfterFailedBatch() throws Exception {
+        AtomicBoolean failNextWrite = new AtomicBoolean();
+        WriteAheadLog wal = new WriteAheadLog(directory, true, 4) {
+            @Override
+            void write(FileChannel target, ByteBuffer source) throws IOException {
+                if (failNextWrite.getAndSet(false)) {
+                    // на диск попадает половина пачки, обрывая запись посередине
+                    source.limit(source.position() + source.remaining() / 2);
+                    super.write(target, source);
+                    throw new IOException("Сбой записи на середине пачки");
+                }
+                super.write(target, source);
+            }
+        };
+        List<Mutation> acknowledged = new ArrayList<>();
+        int failed = 0;
+        for (int round = 0; round < 5; round++) {
+            failNextWrite.set(round == 2);
+            List<Mutation> batch = new ArrayList<>();
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            for (long i = 1; i <= 10; i++) {
+                Mutation like = Mutation.edge(MutationType.ADD_LIKE, round, i);
+                batch.add(like);
+                commits.add(wal.append(like));
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    commits.get(i).join();
+                    acknowledged.add(batch.get(i));
+                } catch (CompletionException e) {
+                    failed++;
+                }
+            }
+        }
+        wal.close();
+
+        List<Mutation> recovered = new ArrayList<>();
+        for (long segment : WriteAheadLog.segments(directory)) {
+            recovered.addAll(WriteAheadLog.readSegment(WriteAheadLog.segmentPath(directory, segment)));
+        }
+        assertTrue(failed > 0);
+        assertEquals(acknowledged, recovered);
+    }
+
+    @Test
+    void shouldCompleteEveryAppendRacingWithClose() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, true, 4);
+        Queue<CompletableFuture<Void>> commits = new ConcurrentLinkedQueue<>();
+        AtomicInteger appended = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long filmId = t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                // пишут, пока журнал не закроется
+                for (long i = 1; i <= 100_000; i++) {
+                    try {
+                        commits.add(wal.append(Mutation.edge(MutationType.ADD_LIKE, filmId, i)));
+                        appended.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+        while (appended.get() < 1_000) {
+            Thread.onSpinWait();
+        }
+        wal.close();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        long written = 0;
+        for (CompletableFuture<Void> commit : commits) {
+            assertTrue(commit.isDone());
+            if (!commit.isCompletedExceptionally()) {
+                written++;
+            }
+        }
+        long recovered = 0;
+        for (long segment : WriteAheadLog.segments(directory)) {
+            recovered += WriteAheadLog.readSegment(WriteAheadLog.segmentPath(directory, segment)).size();
+        }
+        assertEquals(written, recovered);
+    }
+
+    @Test
+    void shouldNotRestoreEdgesOfDeletedFilmsAndUsers() throws Exception {
+        Node before = new Node(directory);
+        for (int i = 1; i <= 5; i++) {
+            before.userService.addUser(user(i));
+        }
+        for (int i = 1; i <= 3; i++) {
+            before.filmService.addFilm(film(i));
+        }
+        before.filmService.addLike(1L, 1L);
+        before.filmService.addLike(1L, 2L);
+        before.filmService.addLike(2L, 2L);
+        before.filmService.addLike(3L, 3L);
+        before.userService.addFriend(1L, 2L);
+        before.userService.addFriend(2L, 3L);
+        before.userService.addFriend(4L, 5L);
+
+        // рёбра не снимаются, как если бы узел остановился раньше фоновой очистки: снимок должен их отбросить,
+        // а запись журнала после снимка — снять при восстановлении
+        before.userService.deleteUser(2L);
+        before.manager.snapshot();
+        before.filmService.deleteFilm(1L);
+        before.close();
+
+        Node after = new Node(directory);
+        after.manager.recover();
+
+        assertTrue(after.userStorage.getUserById(2L).isEmpty());
+        assertTrue(after.userStorage.getUserByEmail("user2@mail.com").isEmpty());
+        assertTrue(after.filmStorage.getFilmById(1L).isEmpty());
+        assertArrayEquals(new long[0], after.likeStorage.getLikes(1L));
+        assertArrayEquals(new long[0], after.likeStorage.getLikes(2L));
+        assertArrayEquals(new long[0], after.likeStorage.getLikedFilmIds(1L));
+        assertArrayEquals(new long[]{3}, after.likeStorage.getLikes(3L));
+        assertEquals(List.of(3L), after.likeStorage.getTopFilmIds(10));
+        assertArrayEquals(new long[0], after.friendshipStorage.getFriendIds(1L));
+        assertArrayEquals(new long[0], after.friendshipStorage.getFriendIds(3L));
+        assertArrayEquals(new long[]{5}, after.friendshipStorage.getFriendIds(4L));
+        after.close();
+    }
+
+    private static class Node {
+        final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        final InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+        final InMemoryFriendshipStorage friendshipStorage = new InMemoryFriendshipStorage();
+        final WriteAheadLog wal;
+        final PersistenceManager manager;
+        final ServiceFixture services;
+        final FilmService filmService;
+        final UserService userService;
+
+        Node(Path directory) throws Exception {
+            wal = new WriteAheadLog(directory, true, 16);
+            manager = new PersistenceManager(wal, new SnapshotStore(directory), filmStorage, userStorage,
+                    likeStorage, friendshipStorage);
+            services = ServiceFixture.builder()
+                    .storages(filmStorage, userStorage, likeStorage, friendshipStorage)
+                    .mutationLog(wal)
+                    .build();
+            filmService = services.filmService;
+            userService = services.userService;
+        }
+
+        void close() throws Exception {
+            services.close();
+            manager.close();
+            wal.close();
+        }
+    }
+}
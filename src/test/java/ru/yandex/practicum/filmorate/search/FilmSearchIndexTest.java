@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.search;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.TopCounts;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+
+    @Test
+    void shouldRankNameMatchesAboveDescriptionAndCompletePrefix() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        index.add(film(1, "Ёлки", "Новогодняя комедия"));
+        index.add(film(2, "Ирония судьбы", "Новогодняя комедия про ёлки и баню"));
+        index.add(film(3, "Брат", "Криминальная драма"));
+
+        assertEquals(Set.of("елки", "новогодняя", "комедия", "2"),
+                FilmSearchIndex.tokenize("ЁЛКИ, новогодняя-комедия 2!"));
+        assertArrayEquals(new long[]{1, 2}, index.search("елки", 10, false, null).ids());
+        assertArrayEquals(new long[]{2}, index.search("комедия ба", 10, true, null).ids());
+        assertEquals(0, index.search("комедия ба", 10, false, null).ids().length);
+        assertArrayEquals(new long[]{3}, index.search("крим", 10, true, null).ids());
+        assertEquals(0, index.search("!!!", 10, true, null).ids().length);
+
+        // лайки поднимают фильм, совпавший только по описанию, выше совпавшего по названию
+        TopCounts boosted = index.search("елки", 10, false, filmId -> filmId == 2 ? 1_000 : 0);
+        assertArrayEquals(new long[]{2, 1}, boosted.ids());
+    }
+
+    @Test
+    void shouldReindexOnlyChangedTerms() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        Film original = film(1, "Сталкер", "Зона исполняет желания");
+        index.add(original);
+        index.add(film(2, "Солярис", "Океан исполняет желания"));
+
+        // тот же объект, изменённый на месте: прежние термы индекс помнит сам
+        original.setDescription("Фильм Тарковского");
+        index.add(original);
+        assertArrayEquals(new long[]{2}, index.search("желания", 10, false, null).ids());
+        assertArrayEquals(new long[]{1}, index.search("тарковск", 10, true, null).ids());
+        assertArrayEquals(new long[]{1}, index.search("сталкер", 10, false, null).ids());
+
+        index.remove(2);
+        assertEquals(0, index.search("желания", 10, false, null).ids().length);
+        assertEquals(0, index.search("океан", 10, true, null).ids().length);
+        assertEquals(3, index.termCount());
+    }
+
+    private static Film film(long id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        return film;
+    }
+}
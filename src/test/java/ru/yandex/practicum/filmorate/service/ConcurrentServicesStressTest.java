@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentServicesStressTest {
+    private static final int THREADS = 8;
+    private static final int FILMS = 200;
+    private static final int USERS = 200;
+
+    private ServiceFixture fixture;
+    private FilmService filmService;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        fixture = ServiceFixture.builder().users(USERS).films(FILMS).build();
+        filmService = fixture.filmService;
+        userService = fixture.userService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void shouldNotLoseLikesUnderConcurrentUpdates() throws Exception {
+        // Фильм i получает лайки от пользователей 1..i, пользователь USERS параллельно ставит и снимает лайки всем
+        runConcurrently(thread -> {
+            for (long filmId = 1; filmId <= FILMS; filmId++) {
+                for (long userId = 1 + thread; userId <= filmId && userId < USERS; userId += THREADS) {
+                    filmService.addLike(filmId, userId);
+                    filmService.addLike(filmId, (long) USERS);
+                    filmService.removeLike(filmId, (long) USERS);
+                }
+            }
+        });
+
+        List<Long> popular = filmService.getPopularFilms(FILMS).stream().map(Film::getId).toList();
+        List<Long> expected = new ArrayList<>();
+        for (long filmId = FILMS; filmId >= 1; filmId--) {
+            expected.add(filmId);
+        }
+        // фильмы FILMS и FILMS-1 набирают одинаково лайков (последний пользователь только "крутит" лайк)
+        assertEquals(expected.subList(2, FILMS), popular.subList(2, FILMS));
+        assertEquals(FILMS, popular.size());
+    }
+
+    @Test
+    void shouldKeepFriendshipsSymmetricUnderConcurrentUpdates() throws Exception {
+        runConcurrently(thread -> {
+            for (long userId = 1; userId <= USERS; userId++) {
+                for (long friendId = userId + 1; friendId <= USERS; friendId++) {
+                    if ((userId + friendId) % (THREADS / 2) != thread / 2) {
+                        continue;
+                    }
+                    // каждую пару одновременно меняют два потока: один со стороны userId, другой со стороны friendId
+                    if (thread % 2 == 0) {
+                        userService.addFriend(userId, friendId);
+                        userService.removeFriend(friendId, userId);
+                        userService.addFriend(friendId, userId);
+                    } else {
+                        userService.addFriend(friendId, userId);
+                        userService.removeFriend(userId, friendId);
+                        userService.addFriend(userId, friendId);
+                    }
+                }
+            }
+        });
+
+        for (long userId = 1; userId <= USERS; userId++) {
+            List<Long> friendIds = userService.getFriends(userId).stream().map(User::getId).toList();
+            assertEquals(USERS - 1, friendIds.size(), "У пользователя " + userId + " потеряны друзья");
+            for (Long friendId : friendIds) {
+                long id = userId;
+                assertTrue(userService.getFriends(friendId).stream().anyMatch(u -> u.getId() == id),
+                        "Односторонняя дружба " + userId + " -> " + friendId);
+            }
+        }
+    }
+
+    @Test
+    void shouldRegisterEachEmailOnceUnderConcurrentSignUps() throws Exception {
+        // все потоки регистрируют одни и те же email, отличающиеся только регистром, с разными логинами
+        AtomicIntegerArray registered = new AtomicIntegerArray(USERS);
+        runConcurrently(thread -> {
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setEmail((thread % 2 == 0 ? "new" : "NEW") + i + "@mail.com");
+                user.setLogin("new" + i + "_" + thread);
+                user.setBirthday(LocalDate.of(1990, 1, 1));
+                try {
+                    userService.addUser(user);
+                    registered.incrementAndGet(i);
+                } catch (ConflictException e) {
+                    // email уже занят другим потоком
+                }
+            }
+        });
+
+        for (int i = 0; i < USERS; i++) {
+            assertEquals(1, registered.get(i), "Email new" + i + " зарегистрирован не один раз");
+            assertEquals("new" + i + "@mail.com",
+                    userService.getUserByEmail("New" + i + "@Mail.com").getEmail().toLowerCase());
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeletionServiceTest {
+    private static final int USERS = 300;
+    private static final int FILMS = 100;
+
+    private ServiceFixture fixture;
+    private LikeStorage likeStorage;
+    private FriendshipStorage friendshipStorage;
+    private FilmService filmService;
+    private UserService userService;
+    private EdgeCleaner edgeCleaner;
+    private DeletionService deletionService;
+
+    @BeforeEach
+    void setUp() {
+        // индекс рекомендаций строится с 50 друзей: удаление «звезды» должно поддерживать и его;
+        // до 10 рёбер снимается сразу в запросе, длиннее — в фоне пачками по 7
+        fixture = ServiceFixture.builder().precomputeDegree(50).deletion(10, 7).users(USERS).films(FILMS).build();
+        likeStorage = fixture.likeStorage;
+        friendshipStorage = fixture.friendshipStorage;
+        filmService = fixture.filmService;
+        userService = fixture.userService;
+        edgeCleaner = fixture.edgeCleaner;
+        deletionService = fixture.deletionService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void shouldRemoveEveryEdgeOfDeletedFilmAndUser() throws Exception {
+        // фильм 1 лайкнули все, у пользователя 1 все в друзьях и лайк каждому фильму; у пользователя 2 — по три
+        for (long userId = 1; userId <= USERS; userId++) {
+            filmService.addLike(1L, userId);
+        }
+        for (long id = 2; id <= USERS; id++) {
+            userService.addFriend(1L, id);
+        }
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            filmService.addLike(filmId, 1L);
+        }
+        for (long id = 3; id <= 5; id++) {
+            filmService.addLike(id, 2L);
+            userService.addFriend(2L, id);
+        }
+        // у пользователя 6 дружба с 2, 3 и 7..80: для него строится индекс рекомендаций, в котором 2 — общий друг
+        userService.addFriend(6L, 2L);
+        userService.addFriend(6L, 3L);
+        for (long id = 7; id <= 80; id++) {
+            userService.addFriend(6L, id);
+        }
+        userService.getFriendRecommendations(1L, 10);
+        userService.getFriendRecommendations(6L, 10);
+
+        CompletableFuture<Void> small = deletionService.deleteUser(2L);
+        assertTrue(small.isDone());
+        assertThrows(NotFoundException.class, () -> userService.getUserById(2L));
+        assertEquals(0, likeStorage.getLikedFilmCount(2L));
+        assertEquals(1, likeStorage.getLikeCount(3L));
+        assertFalse(friendshipStorage.areFriends(3L, 2L));
+        assertArrayEquals(new long[0], friendshipStorage.getFriendIds(2L));
+        FriendRecommender fresh = new FriendRecommender(friendshipStorage, 50_000, 512, Integer.MAX_VALUE, 64);
+        assertEquals(ranked(fresh.recommend(6L, 10)),
+                userService.getFriendRecommendations(6L, 10).stream()
+                        .map(r -> r.getUser().getId() + ":" + r.getMutualFriends()).toList());
+
+        deletionService.deleteFilm(1L).get(10, TimeUnit.SECONDS);
+        assertThrows(NotFoundException.class, () -> filmService.getFilmById(1L));
+        assertEquals(0, likeStorage.getLikeCount(1L));
+        assertFalse(likeStorage.getTopFilmIds(FILMS).contains(1L));
+        for (long userId = 3; userId <= USERS; userId++) {
+            assertEquals(0, likeStorage.getLikedFilmCount(userId));
+        }
+        assertEquals(FILMS - 1, likeStorage.getLikedFilmCount(1L));
+
+        deletionService.deleteUser(1L).get(10, TimeUnit.SECONDS);
+        assertEquals(0, edgeCleaner.getPending());
+        assertEquals(0, likeStorage.getLikeEdgeCount());
+        assertEquals(75, friendshipStorage.getFriendshipCount());
+        assertEquals(ranked(new FriendRecommender(friendshipStorage, 50_000, 512, Integer.MAX_VALUE, 64)
+                .recommend(6L, 10)), userService.getFriendRecommendations(6L, 10).stream()
+                .map(r -> r.getUser().getId() + ":" + r.getMutualFriends()).toList());
+        assertThrows(NotFoundException.class, () -> deletionService.deleteUser(1L));
+
+        // email и логин удалённого свободны
+        User again = new User();
+        again.setEmail("user1@mail.com");
+        again.setLogin("user1");
+        assertEquals(USERS + 1, userService.addUser(again).getId());
+    }
+
+    private static List<String> ranked(FriendRecommender.Ranking ranking) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < ranking.ids().length; i++) {
+            result.add(ranking.ids()[i] + ":" + ranking.mutualFriends()[i]);
+        }
+        return result;
+    }
+
+    @Test
+    void shouldNotLeaveEdgesAddedDuringDeletion() throws Exception {
+        for (long victim = 1; victim <= 20; victim++) {
+            long deleted = victim;
+            for (long id = 21; id <= 60; id++) {
+                userService.addFriend(deleted, id);
+                filmService.addLike(id, deleted);
+            }
+            AtomicBoolean running = new AtomicBoolean(true);
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+                long id = 61;
+                while (running.get()) {
+                    try {
+                        userService.addFriend(id, deleted);
+                        filmService.addLike(id % FILMS + 1, deleted);
+                    } catch (NotFoundException ignored) {
+                        // пользователь уже удалён
+                    }
+                    id = id == USERS ? 61 : id + 1;
+                }
+            });
+            deletionService.deleteUser(deleted).get(10, TimeUnit.SECONDS);
+            running.set(false);
+            writer.join();
+
+            assertArrayEquals(new long[0], friendshipStorage.getFriendIds(deleted));
+            assertArrayEquals(new long[0], likeStorage.getLikedFilmIds(deleted));
+            for (long id = 21; id <= USERS; id++) {
+                assertFalse(friendshipStorage.areFriends(id, deleted));
+            }
+            for (long filmId = 1; filmId <= FILMS; filmId++) {
+                assertTrue(Arrays.binarySearch(likeStorage.getLikes(filmId), deleted) < 0);
+            }
+        }
+        assertEquals(0, edgeCleaner.getPending());
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmRecommenderTest {
+
+    @Test
+    void shouldRankFilmsOfSimilarUsersBySimilarity() {
+        InMemoryLikeStorage storage = new InMemoryLikeStorage();
+        // у 1 лайки 1, 2; у 2 — 1, 2, 3 (сходство 2/sqrt(6)), у 3 — 1, 4 (1/2), у 4 с ним общих лайков нет
+        long[][] likes = {{1, 1}, {2, 1}, {1, 2}, {2, 2}, {2, 3}, {3, 1}, {3, 4}, {4, 5}};
+        for (long[] like : likes) {
+            storage.addLike(like[1], like[0]);
+        }
+        // порог 1: обход делится на задачи fork-join уже при двух фильмах
+        FilmRecommender recommender = new FilmRecommender(storage, 1_000, 1, 10);
+
+        FilmRecommender.Ranking ranking = recommender.recommend(1, 10);
+
+        assertArrayEquals(new long[]{3, 4}, ranking.ids());
+        assertArrayEquals(new int[]{8164, 5000}, ranking.scores());
+        assertFalse(ranking.truncated());
+        assertEquals(0, recommender.recommend(5, 10).ids().length);
+        assertTrue(new FilmRecommender(storage, 2, 1, 10).recommend(1, 10).truncated());
+    }
+
+    @Test
+    void shouldKeepUserIndexInSyncWithFilmLikes() {
+        InMemoryLikeStorage storage = new InMemoryLikeStorage();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 20_000; i++) {
+            long filmId = 1 + random.nextInt(100);
+            long userId = 1 + random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                storage.removeLike(filmId, userId);
+            } else {
+                storage.addLike(filmId, userId);
+            }
+        }
+
+        long indexed = 0;
+        for (long userId = 1; userId <= 300; userId++) {
+            long[] liked = storage.getLikedFilmIds(userId);
+            assertEquals(liked.length, storage.getLikedFilmCount(userId));
+            for (long filmId : liked) {
+                assertTrue(Arrays.binarySearch(storage.getLikes(filmId), userId) >= 0);
+            }
+            indexed += liked.length;
+        }
+        assertEquals(storage.getLikeEdgeCount(), indexed);
+
+        FilmRecommender.Ranking parallel = new FilmRecommender(storage, Integer.MAX_VALUE, 2, 50).recommend(1, 20);
+        FilmRecommender.Ranking sequential = new FilmRecommender(storage, Integer.MAX_VALUE, 1_000, 50)
+                .recommend(1, 20);
+        assertArrayEquals(sequential.ids(), parallel.ids());
+        assertArrayEquals(sequential.scores(), parallel.scores());
+        for (long filmId : parallel.ids()) {
+            assertTrue(Arrays.binarySearch(storage.getLikedFilmIds(1), filmId) < 0);
+        }
+    }
+}
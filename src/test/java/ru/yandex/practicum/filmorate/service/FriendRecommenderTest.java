@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendRecommenderTest {
+
+    @Test
+    void shouldRankFriendsOfFriendsByMutualFriends() {
+        InMemoryFriendshipStorage storage = new InMemoryFriendshipStorage();
+        // у 1 друзья 2, 3, 4; у 5 с ним трое общих, у 6 — двое, у 7 — один
+        long[][] edges = {{1, 2}, {1, 3}, {1, 4}, {5, 2}, {5, 3}, {5, 4}, {6, 2}, {6, 3}, {7, 4}, {2, 3}};
+        for (long[] edge : edges) {
+            storage.addFriendship(edge[0], edge[1]);
+        }
+        // порог 1: обход делится на задачи fork-join уже при двух друзьях
+        FriendRecommender recommender = new FriendRecommender(storage, 1_000, 1, 1_000, 4);
+
+        FriendRecommender.Ranking ranking = recommender.recommend(1, 2);
+
+        assertArrayEquals(new long[]{5, 6}, ranking.ids());
+        assertArrayEquals(new int[]{3, 2}, ranking.mutualFriends());
+        assertFalse(ranking.truncated());
+        assertTrue(new FriendRecommender(storage, 2, 1, 1_000, 4).recommend(1, 2).truncated());
+    }
+
+    @Test
+    void shouldKeepPrecomputedCountsInSyncWithGraph() {
+        InMemoryFriendshipStorage storage = new InMemoryFriendshipStorage();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 2_000; i++) {
+            addRandomEdge(storage, null, random);
+        }
+        FriendRecommender precomputing = new FriendRecommender(storage, Integer.MAX_VALUE, 8, 1, 4);
+        FriendRecommender fresh = new FriendRecommender(storage, Integer.MAX_VALUE, 8, Integer.MAX_VALUE, 4);
+        assertTrue(precomputing.needsPrecompute(1));
+        precomputing.precompute(1);
+
+        for (int i = 0; i < 5_000; i++) {
+            if (random.nextBoolean()) {
+                addRandomEdge(storage, precomputing, random);
+            } else {
+                long userId = random.nextInt(3) == 0 ? 1 : 1 + random.nextInt(200);
+                long[] friends = storage.getFriendIds(userId);
+                if (friends.length > 0) {
+                    long friendId = friends[random.nextInt(friends.length)];
+                    storage.removeFriendship(userId, friendId);
+                    precomputing.friendshipRemoved(userId, friendId);
+                }
+            }
+        }
+
+        assertTrue(precomputing.isPrecomputed(1));
+        FriendRecommender.Ranking expected = fresh.recommend(1, 50);
+        FriendRecommender.Ranking actual = precomputing.recommend(1, 50);
+        assertArrayEquals(expected.ids(), actual.ids());
+        assertArrayEquals(expected.mutualFriends(), actual.mutualFriends());
+    }
+
+    @Test
+    void shouldApplyChangesMadeWhileCountersWereBuilt() {
+        InMemoryFriendshipStorage storage = new InMemoryFriendshipStorage();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 2_000; i++) {
+            addRandomEdge(storage, null, random);
+        }
+        FriendRecommender precomputing = new FriendRecommender(storage, Integer.MAX_VALUE, 8, 1, 4);
+        FriendRecommender fresh = new FriendRecommender(storage, Integer.MAX_VALUE, 8, Integer.MAX_VALUE, 4);
+        FriendRecommender.Build build = precomputing.build(1);
+        assertNotNull(build);
+        assertFalse(precomputing.needsPrecompute(1));
+        assertNull(precomputing.build(1));
+
+        // обход уже прочитал списки: всё, что меняется дальше, учитывается только при публикации
+        for (int i = 0; i < 500; i++) {
+            addRandomEdge(storage, precomputing, random);
+            long userId = 1 + random.nextInt(200);
+            long[] friends = storage.getFriendIds(userId);
+            if (friends.length > 0) {
+                long friendId = friends[random.nextInt(friends.length)];
+                storage.removeFriendship(userId, friendId);
+                precomputing.friendshipRemoved(userId, friendId);
+            }
+        }
+        assertFalse(precomputing.isPrecomputed(1));
+        precomputing.publish(build);
+
+        assertTrue(precomputing.isPrecomputed(1));
+        FriendRecommender.Ranking expected = fresh.recommend(1, 50);
+        FriendRecommender.Ranking actual = precomputing.recommend(1, 50);
+        assertArrayEquals(expected.ids(), actual.ids());
+        assertArrayEquals(expected.mutualFriends(), actual.mutualFriends());
+    }
+
+    private static void addRandomEdge(InMemoryFriendshipStorage storage, FriendRecommender recommender,
+                                      SplittableRandom random) {
+        long userId = random.nextInt(3) == 0 ? 1 : 1 + random.nextInt(200);
+        long friendId = 1 + random.nextInt(200);
+        if (userId != friendId && storage.addFriendship(userId, friendId) && recommender != null) {
+            recommender.friendshipAdded(userId, friendId);
+        }
+    }
+}
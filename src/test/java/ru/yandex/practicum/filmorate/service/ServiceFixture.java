@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.events.EventRing;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingCounter;
+
+import java.time.LocalDate;
+
+/**
+ * Сервисы фильмов и пользователей без Spring, собранные так же, как в приложении: по умолчанию поверх хранилищ
+ * в памяти и без журнала. close останавливает фоновые потоки, которые запустила фикстура, — ротацию трендов
+ * и очистку рёбер удалённых.
+ */
+public final class ServiceFixture implements AutoCloseable {
+    public final FilmStorage filmStorage;
+    public final UserStorage userStorage;
+    public final LikeStorage likeStorage;
+    public final FriendshipStorage friendshipStorage;
+    public final FilmService filmService;
+    public final UserService userService;
+    // null, пока удаление не включено в builder
+    public final EdgeCleaner edgeCleaner;
+    public final DeletionService deletionService;
+    private final TrendingCounter trendingCounter = new TrendingCounter();
+
+    private ServiceFixture(Builder builder) {
+        filmStorage = builder.filmStorage;
+        userStorage = builder.userStorage;
+        likeStorage = builder.likeStorage;
+        friendshipStorage = builder.friendshipStorage;
+        MetricsRegistry metrics = new MetricsRegistry();
+        ResponseCache responseCache = new ResponseCache(1_000, metrics);
+        EventRing events = new EventRing(1024);
+        filmService = new FilmService(filmStorage, userStorage, likeStorage, builder.mutationLog, metrics,
+                responseCache, new FilmRecommender(likeStorage, 20_000, 64, 50), trendingCounter,
+                new FilmSearchIndex(), events);
+        userService = new UserService(userStorage, friendshipStorage, builder.mutationLog, metrics, responseCache,
+                new FriendRecommender(friendshipStorage, 50_000, 512, builder.precomputeDegree, 64), events);
+        if (builder.chunkSize > 0) {
+            edgeCleaner = new EdgeCleaner(builder.inlineEdges, builder.chunkSize, metrics);
+            deletionService = new DeletionService(filmService, userService, edgeCleaner);
+        } else {
+            edgeCleaner = null;
+            deletionService = null;
+        }
+        for (int i = 1; i <= builder.users; i++) {
+            userService.addUser(user(i));
+        }
+        for (int i = 1; i <= builder.films; i++) {
+            filmService.addFilm(film(i));
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static Film film(int i) {
+        Film film = new Film();
+        film.setName("Фильм " + i);
+        film.setDescription("Описание " + i);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(i - 1));
+        film.setDuration(90 + i);
+        return film;
+    }
+
+    public static User user(int i) {
+        User user = new User();
+        user.setEmail("user" + i + "@mail.com");
+        user.setLogin("user" + i);
+        user.setName("Пользователь " + i);
+        user.setBirthday(LocalDate.of(1990, 1, 1).plusDays(i - 1));
+        return user;
+    }
+
+    @Override
+    public void close() {
+        trendingCounter.close();
+        if (edgeCleaner != null) {
+            edgeCleaner.close();
+        }
+    }
+
+    public static final class Builder {
+        private FilmStorage filmStorage = new InMemoryFilmStorage();
+        private UserStorage userStorage = new InMemoryUserStorage();
+        private LikeStorage likeStorage = new InMemoryLikeStorage();
+        private FriendshipStorage friendshipStorage = new InMemoryFriendshipStorage();
+        private MutationLog mutationLog = MutationLog.NOOP;
+        private int precomputeDegree = 5_000;
+        private int inlineEdges;
+        private int chunkSize;
+        private int users;
+        private int films;
+
+        private Builder() {
+        }
+
+        public Builder storages(FilmStorage filmStorage, UserStorage userStorage, LikeStorage likeStorage,
+                                FriendshipStorage friendshipStorage) {
+            this.filmStorage = filmStorage;
+            this.userStorage = userStorage;
+            this.likeStorage = likeStorage;
+            this.friendshipStorage = friendshipStorage;
+            return this;
+        }
+
+        public Builder mutationLog(MutationLog mutationLog) {
+            this.mutationLog = mutationLog;
+            return this;
+        }
+
+        /**
+         * С какого числа друзей FriendRecommender держит предрасчитанные рекомендации.
+         */
+        public Builder precomputeDegree(int precomputeDegree) {
+            this.precomputeDegree = precomputeDegree;
+            return this;
+        }
+
+        /**
+         * Включает DeletionService: до inlineEdges рёбер снимаются в запросе, длиннее — в фоне пачками по chunkSize.
+         */
+        public Builder deletion(int inlineEdges, int chunkSize) {
+            this.inlineEdges = inlineEdges;
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Пользователи user(1)..user(count), добавленные через сервис до фильмов.
+         */
+        public Builder users(int count) {
+            this.users = count;
+            return this;
+        }
+
+        /**
+         * Фильмы film(1)..film(count), добавленные через сервис.
+         */
+        public Builder films(int count) {
+            this.films = count;
+            return this;
+        }
+
+        public ServiceFixture build() {
+            return new ServiceFixture(this);
+        }
+    }
+}
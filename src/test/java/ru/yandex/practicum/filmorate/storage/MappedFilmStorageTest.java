@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFilmStorageTest {
+    @TempDir
+    Path directory;
+
+    private MappedFilmStorage storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // маленькие куски, чтобы тест проходил через границы слотов и арены
+        storage = new MappedFilmStorage(directory, 4, 64);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        storage.close();
+    }
+
+    @Test
+    void shouldStoreFilmsAcrossChunks() {
+        for (int i = 1; i <= 10; i++) {
+            storage.addFilm(film("Фильм " + i, "Описание фильма номер " + i));
+        }
+
+        Film film = storage.getFilmById(7L).orElseThrow();
+        assertEquals("Фильм 7", film.getName());
+        assertEquals("Описание фильма номер 7", film.getDescription());
+        assertEquals(LocalDate.of(2000, 1, 1), film.getReleaseDate());
+        assertEquals(120, film.getDuration());
+        assertEquals(10, storage.getAllFilms().size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L),
+                storage.getAllFilms().stream().map(Film::getId).toList());
+        assertTrue(storage.getFilmById(11L).isEmpty());
+        assertFalse(storage.containsFilm(0));
+    }
+
+    @Test
+    void shouldUpdateAndRestoreFilms() {
+        storage.addFilm(film("Фильм", null));
+        Film updated = film("Новое название", "Новое описание");
+        updated.setId(1L);
+        storage.updateFilm(updated);
+
+        assertEquals("Новое название", storage.getFilmById(1L).orElseThrow().getName());
+        Film missing = film("Нет такого", null);
+        missing.setId(5L);
+        assertThrows(NotFoundException.class, () -> storage.updateFilm(missing));
+
+        storage.restoreFilm(missing);
+        assertTrue(storage.containsFilm(5));
+        assertFalse(storage.containsFilm(4));
+        assertNull(storage.getFilmById(5L).orElseThrow().getDescription());
+        assertEquals(6L, storage.addFilm(film("Следующий", null)).getId());
+        assertEquals(List.of(1L, 5L, 6L), storage.getFilmIds().boxed().toList());
+
+        updated.setDuration(90);
+        storage.updateFilm(updated);
+        assertEquals(List.of(1L), storage.getFilmsByDuration(null, 100, film -> true, 10).stream()
+                .map(Film::getId).toList());
+        assertEquals(List.of(5L, 6L), storage.getFilmsByReleaseDate(LocalDate.of(2000, 1, 1), null,
+                film -> film.getDuration() > 100, 10).stream().map(Film::getId).toList());
+
+        assertEquals("Нет такого", storage.deleteFilm(5).orElseThrow().getName());
+        assertTrue(storage.deleteFilm(5).isEmpty());
+        assertFalse(storage.containsFilm(5));
+        assertEquals(2, storage.getAllFilms().size());
+        assertEquals(List.of(6L), storage.getFilmsByReleaseDate(LocalDate.of(2000, 1, 1), null,
+                film -> film.getDuration() > 100, 10).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldKeepRangeIndexesInOrderAcrossUpdatesAndDeletes() {
+        Random random = new Random(42);
+        Map<Long, Film> expected = new HashMap<>();
+        for (int i = 1; i <= 1_000; i++) {
+            Film film = film("Фильм " + i, null);
+            film.setDuration(60 + random.nextInt(60));
+            film.setReleaseDate(random.nextInt(10) == 0 ? null : LocalDate.of(2000, 1, 1).plusDays(random.nextInt(50)));
+            Film added = storage.addFilm(film);
+            expected.put(added.getId(), added);
+        }
+        for (long id = 1; id <= 1_000; id += 3) {
+            Film film = expected.get(id);
+            film.setDuration(60 + random.nextInt(60));
+            film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(50)));
+            storage.updateFilm(film);
+        }
+        for (long id = 2; id <= 1_000; id += 5) {
+            storage.deleteFilm(id);
+            expected.remove(id);
+        }
+
+        LocalDate from = LocalDate.of(2000, 1, 10);
+        LocalDate to = LocalDate.of(2000, 1, 30);
+        assertEquals(expected.values().stream()
+                        .filter(film -> film.getReleaseDate() != null && !film.getReleaseDate().isBefore(from)
+                                && !film.getReleaseDate().isAfter(to))
+                        .sorted(Comparator.comparing(Film::getReleaseDate).thenComparing(Film::getId))
+                        .map(Film::getId).toList(),
+                storage.getFilmsByReleaseDate(from, to, film -> true, 1_000).stream().map(Film::getId).toList());
+        assertEquals(expected.values().stream()
+                        .filter(film -> film.getDuration() >= 80)
+                        .sorted(Comparator.comparing(Film::getDuration).thenComparing(Film::getId))
+                        .limit(100).map(Film::getId).toList(),
+                storage.getFilmsByDuration(80, null, film -> true, 100).stream().map(Film::getId).toList());
+    }
+
+    private static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+}
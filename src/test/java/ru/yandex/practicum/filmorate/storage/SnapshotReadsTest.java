@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.PersistentIdMap;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotReadsTest {
+
+    @Test
+    void shouldKeepPublishedVersionsUnchangedByLaterWrites() {
+        long[] ids = {1, 31, 32, 1025, 40_000, 1L << 40};
+        PersistentIdMap<String> map = PersistentIdMap.empty();
+        for (long id : ids) {
+            map = map.with(id, "v" + id);
+        }
+        PersistentIdMap<String> before = map;
+        PersistentIdMap<String> after = map.with(32, "changed").with(1025, null).with(7, "v7");
+
+        assertEquals(List.of("v1", "v31", "v32", "v1025", "v40000", "v" + (1L << 40)), new ArrayList<>(before));
+        assertEquals(6, before.size());
+        assertEquals("v32", before.get(32));
+        assertEquals("changed", after.get(32));
+        assertNull(after.get(1025));
+        assertEquals(6, after.size());
+        assertSame(after, after.with(99, null));
+
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        films.addFilm(film("Первый"));
+        Collection<Film> catalog = films.getAllFilms();
+        films.addFilm(film("Второй"));
+        Film renamed = film("Переименованный");
+        renamed.setId(1L);
+        films.updateFilm(renamed);
+        assertEquals(List.of("Первый"), catalog.stream().map(Film::getName).toList());
+        assertEquals(List.of("Переименованный", "Второй"), films.getAllFilms().stream().map(Film::getName).toList());
+
+        InMemoryFriendshipStorage friendships = new InMemoryFriendshipStorage();
+        friendships.addFriendship(1, 3);
+        long[] friends = friendships.getFriendIds(1);
+        friendships.addFriendship(1, 2);
+        friendships.removeFriendship(1, 3);
+        assertArrayEquals(new long[]{3}, friends);
+        assertArrayEquals(new long[]{2}, friendships.getFriendIds(1));
+    }
+
+    @Test
+    void shouldKeepPersistentLongSetBalancedAndVersionsIntact() {
+        PersistentLongSet set = PersistentLongSet.empty();
+        TreeSet<Long> expected = new TreeSet<>();
+        SplittableRandom random = new SplittableRandom(42);
+        PersistentLongSet middle = null;
+        long[] middleValues = null;
+        for (int i = 0; i < 60_000; i++) {
+            long value = random.nextLong(0, 20_000);
+            // сначала в основном вставки (дерево растёт до трёх уровней), затем в основном удаления
+            if (random.nextInt(10) < (i < 30_000 ? 2 : 8)) {
+                assertEquals(expected.remove(value), set.without(value) != set);
+                set = set.without(value);
+            } else {
+                assertEquals(expected.add(value), set.with(value) != set);
+                set = set.with(value);
+            }
+            if (i == 30_000) {
+                middle = set;
+                middleValues = expected.stream().mapToLong(Long::longValue).toArray();
+            }
+        }
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), set.toArray());
+        assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 20_000; value += 7) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        assertArrayEquals(middleValues, middle.toArray());
+
+        for (long value : expected) {
+            set = set.without(value);
+        }
+        assertTrue(set.isEmpty());
+        assertSame(PersistentLongSet.empty(), set);
+    }
+
+    @Test
+    void shouldRankPopularityAndServeConsistentReadsDuringWrites() {
+        PopularityIndex index = new PopularityIndex();
+        Map<Long, Integer> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 20_000; i++) {
+            long filmId = random.nextLong(1, 200);
+            int delta = random.nextInt(4) == 0 ? -1 : 1;
+            index.add(filmId, delta);
+            int updated = Math.max(0, expected.getOrDefault(filmId, 0) + delta);
+            if (updated == 0) {
+                expected.remove(filmId);
+            } else {
+                expected.put(filmId, updated);
+            }
+        }
+        List<Long> ranked = expected.keySet().stream()
+                .sorted(Comparator.comparing((Long id) -> -expected.get(id)).thenComparing(id -> id))
+                .toList();
+        assertEquals(ranked.subList(0, 10), index.getTopFilmIds(10));
+        assertEquals(ranked, index.getTopFilmIds(1_000));
+        assertEquals(expected.size(), index.size());
+
+        // пока писатель меняет дружбу звезды, читатели всегда видят списки целиком: отсортированные и без повторов
+        InMemoryFriendshipStorage friendships = new InMemoryFriendshipStorage();
+        LongStream.rangeClosed(2, 1_000).forEach(id -> friendships.addFriendship(1, id));
+        AtomicBoolean running = new AtomicBoolean(true);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            SplittableRandom writes = new SplittableRandom(7);
+            while (running.get()) {
+                long friendId = writes.nextLong(2, 2_000);
+                friendships.addFriendship(1, friendId);
+                friendships.addFriendship(0, friendId);
+                friendships.removeFriendship(1, writes.nextLong(2, 2_000));
+            }
+        });
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                assertStrictlyIncreasing(friendships.getFriendIds(1));
+                assertStrictlyIncreasing(friendships.getCommonFriendIds(0, 1));
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    void shouldCountConcurrentLikesAcrossPartitions() {
+        // фильм i получает i лайков от четырёх потоков сразу; деревья разных фильмов меняются параллельно
+        InMemoryLikeStorage likes = new InMemoryLikeStorage();
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread;
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (long filmId = 1; filmId <= 100; filmId++) {
+                    for (long userId = 1 + offset; userId <= filmId; userId += 4) {
+                        likes.addLike(filmId, userId);
+                    }
+                }
+            }));
+        }
+        writers.forEach(CompletableFuture::join);
+
+        assertEquals(LongStream.rangeClosed(1, 100).map(id -> 101 - id).boxed().toList(), likes.getTopFilmIds(1_000));
+        assertEquals(5_050, likes.getLikeEdgeCount());
+        assertEquals(100, likes.getLikedFilmCount(1));
+        assertArrayEquals(LongStream.rangeClosed(1, 37).toArray(), likes.getLikes(37));
+    }
+
+    private static void assertStrictlyIncreasing(long[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}
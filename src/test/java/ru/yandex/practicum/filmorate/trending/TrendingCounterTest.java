@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingCounterTest {
+
+    @Test
+    void shouldDropLikesOnceTheirBucketLeavesWindow() {
+        TrendingCounter counter = new TrendingCounter();
+        counter.likeAdded(1);
+        counter.likeAdded(1);
+        counter.rotate(TrendingCounter.Window.HOUR);
+        counter.likeAdded(2);
+        counter.likeAdded(2);
+        counter.likeAdded(2);
+
+        assertEquals(List.of(2L, 1L), counter.getTopFilmIds(TrendingCounter.Window.HOUR, 10));
+
+        // ещё 11 сдвигов: корзина с лайками фильма 1 выпадает из часового окна, корзина фильма 2 — ещё нет
+        for (int i = 0; i < 11; i++) {
+            counter.rotate(TrendingCounter.Window.HOUR);
+        }
+        assertEquals(List.of(2L), counter.getTopFilmIds(TrendingCounter.Window.HOUR, 10));
+        assertEquals(1, counter.size(TrendingCounter.Window.HOUR));
+        counter.rotate(TrendingCounter.Window.HOUR);
+        assertEquals(0, counter.size(TrendingCounter.Window.HOUR));
+
+        // остальные окна сдвигаются своим расписанием
+        assertEquals(List.of(2L, 1L), counter.getTopFilmIds(TrendingCounter.Window.DAY, 10));
+        assertEquals(2, counter.getLikes(TrendingCounter.Window.WEEK, 1));
+    }
+
+    @Test
+    void shouldTakeRemovedLikeFromNewestBucket() {
+        TrendingCounter counter = new TrendingCounter();
+        counter.likeAdded(1);
+        counter.rotate(TrendingCounter.Window.HOUR);
+        counter.likeAdded(1);
+        counter.likeRemoved(1);
+        counter.likeRemoved(1);
+        counter.likeRemoved(1);
+
+        assertEquals(0, counter.getLikes(TrendingCounter.Window.HOUR, 1));
+        assertEquals(0, counter.size(TrendingCounter.Window.DAY));
+        counter.likeAdded(1);
+        for (int i = 0; i < 12; i++) {
+            counter.rotate(TrendingCounter.Window.HOUR);
+        }
+        assertEquals(0, counter.getLikes(TrendingCounter.Window.HOUR, 1));
+        assertEquals(TrendingCounter.Window.WEEK, TrendingCounter.Window.parse("Week"));
+        assertThrows(ValidationException.class, () -> TrendingCounter.Window.parse("month"));
+    }
+
+    @Test
+    void shouldNotLoseLikesAddedConcurrentlyWithRotationAndReads() throws Exception {
+        TrendingCounter counter = new TrendingCounter();
+        int threads = 4;
+        int likesPerThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < likesPerThread; i++) {
+                        counter.likeAdded(i % 10 + 1);
+                    }
+                }));
+            }
+            // часовое окно сдвигается на 11 корзин из 12: ни один лайк ещё не должен выпасть
+            Future<?> reader = executor.submit(() -> {
+                for (int i = 0; i < 11; i++) {
+                    counter.rotate(TrendingCounter.Window.HOUR);
+                    counter.getTopFilmIds(TrendingCounter.Window.HOUR, 3);
+                }
+            });
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+            reader.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (long filmId = 1; filmId <= 10; filmId++) {
+            assertEquals(threads * likesPerThread / 10, counter.getLikes(TrendingCounter.Window.HOUR, filmId));
+        }
+        assertEquals(10, counter.size(TrendingCounter.Window.HOUR));
+        assertEquals(10, counter.getTopFilmIds(TrendingCounter.Window.HOUR, 20).size());
+    }
+}